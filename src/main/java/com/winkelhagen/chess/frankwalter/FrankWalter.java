@@ -21,6 +21,7 @@ import com.winkelhagen.chess.frankwalter.ci.XBoardInterface;
 import com.winkelhagen.chess.frankwalter.config.FWConfig;
 import com.winkelhagen.chess.frankwalter.util.Constants;
 import com.winkelhagen.chess.frankwalter.tools.epd.EpdReader;
+import com.winkelhagen.chess.frankwalter.tuner.TuningRunner;
 import com.winkelhagen.chess.syzygy.SyzygyBridge;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
@@ -29,6 +30,8 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Map;
 
 /**
@@ -57,7 +60,9 @@ public class FrankWalter {
 		rerouteLogging(fwConfig);
 		logger.info("Started FrankWalter {}", Constants.getVersion());
 		fwConfig.logProperties();
-		if (fwConfig.getEpd()!=null){
+		if (fwConfig.getTuneDataset()!=null){
+			tune(fwConfig);
+		} else if (fwConfig.getEpd()!=null){
 			EpdReader epdReader = EpdReader.create(fwConfig.getEpd());
 			if (epdReader!=null) {
 				epdReader.process();
@@ -70,6 +75,18 @@ public class FrankWalter {
 		}
 	}
 
+	/**
+	 * Tunes the evaluation with the dataset of the -tune argument
+	 */
+	private static void tune(FWConfig fwConfig) {
+		TuningRunner tuningRunner = new TuningRunner(fwConfig.getTuneDataset(), Paths.get(fwConfig.getTuneCheckpoint()), fwConfig.getTuneCores(), fwConfig.getTuneMethod());
+		try {
+			tuningRunner.run();
+		} catch (IOException e) {
+			logger.error("unable to tune with {}", fwConfig.getTuneDataset(), e);
+		}
+	}
+
 	private static void rerouteLogging(FWConfig fwConfig) {
 		if (fwConfig.isDebug()) {
 			LoggerContext ctx = ((LoggerContext) LogManager.getContext(false));
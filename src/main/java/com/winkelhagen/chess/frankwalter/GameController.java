@@ -125,6 +125,7 @@ public class GameController implements Runnable {
                 LOGGER.debug("executing queued command {} {} (queued: {})", command.command, command.parameter, commandQueue.size());
                 switch (command.command){
                     case STOP:
+                        fwConfig.saveTranspositionTable();
                         running = false;
                         break;
                     case INIT:
@@ -581,7 +582,12 @@ public class GameController implements Runnable {
 
     private void clearEngineState() {
         fwConfig.smpController.setMaxDepth(fwConfig.getMaxDepth());
-        fwConfig.smpController.clearCaches();
+        if (fwConfig.getTTFile() == null) {
+            fwConfig.smpController.clearCaches();
+        } else {
+            //a transposition table that is kept between sessions is kept between games as well: aging takes care of old entries
+            fwConfig.smpController.clearThreadCaches();
+        }
     }
 
     private void setupStartPosition() {
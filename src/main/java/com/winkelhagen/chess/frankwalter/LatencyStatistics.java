@@ -0,0 +1,66 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter;
+
+/**
+ * Move start and move stop latencies of the helper search threads.
+ * The start latency is the time between the start of a search and the moment the last helper started searching.
+ * The stop latency is the time between the end of the main search and the moment the last helper stopped searching.
+ */
+public class LatencyStatistics {
+
+    private int searches;
+    private long totalStartNanos;
+    private long maxStartNanos;
+    private long totalStopNanos;
+    private long maxStopNanos;
+
+    synchronized void add(long startNanos, long stopNanos) {
+        searches++;
+        totalStartNanos += startNanos;
+        maxStartNanos = Math.max(maxStartNanos, startNanos);
+        totalStopNanos += stopNanos;
+        maxStopNanos = Math.max(maxStopNanos, stopNanos);
+    }
+
+    public synchronized int getSearches() {
+        return searches;
+    }
+
+    public synchronized long getAverageStartNanos() {
+        return searches == 0 ? 0 : totalStartNanos / searches;
+    }
+
+    public synchronized long getMaxStartNanos() {
+        return maxStartNanos;
+    }
+
+    public synchronized long getAverageStopNanos() {
+        return searches == 0 ? 0 : totalStopNanos / searches;
+    }
+
+    public synchronized long getMaxStopNanos() {
+        return maxStopNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("helper latency over %d searches: start avg %d / max %d micros, stop avg %d / max %d micros",
+                searches, getAverageStartNanos() / 1000, maxStartNanos / 1000, getAverageStopNanos() / 1000, maxStopNanos / 1000);
+    }
+}
@@ -17,7 +17,9 @@
  */
 package com.winkelhagen.chess.frankwalter;
 
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
 import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.ci.OutputPrinter;
 import com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl;
 import com.winkelhagen.chess.frankwalter.engine.SearchStatistics;
 import com.winkelhagen.chess.frankwalter.engine.tt.Entry;
@@ -30,27 +32,35 @@ import org.apache.logging.log4j.Logger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SMPController {
     private static final Logger logger = LogManager.getLogger();
+    private static final long STOP_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private List<Board> boardList = new ArrayList<>();
     private List<ScoutEngineImpl> engineList = new ArrayList<>();
     private List<AtomicInteger> searchDepths = new ArrayList<>();
+    // the helper workers; the engine at index 0 is run by the calling thread, so workerList.get(i) belongs to engineList.get(i+1)
+    private List<SearchWorker> workerList = new ArrayList<>();
+    private final SearchBarrier barrier = new SearchBarrier();
+    private final LatencyStatistics latencyStatistics = new LatencyStatistics();
     private TranspositionTable transpositionTable;
     private Integer maxSearchDepth;
     private boolean running = false;
     private boolean post = true;
+    private final AttackMode attackMode;
 
-    public SMPController() {
+    public SMPController(AttackMode attackMode) {
+        this.attackMode = attackMode;
         add(1);
         engineList.get(0).setShowThinking(post);
     }
 
     private void remove(int n) {
         for (int i = 0; i < n; i++) {
+            workerList.remove(workerList.size()-1).shutdown();
             boardList.remove(boardList.size()-1);
             engineList.remove(engineList.size()-1);
             searchDepths.remove(searchDepths.size()-1);
@@ -62,7 +72,7 @@ public class SMPController {
         int currentSize = engineList.size();
         for (int i=0; i<n; i++) {
             logger.debug("added searchThread {}", currentSize + i);
-            Board board = new Board();
+            Board board = new Board(attackMode);
             ScoutEngineImpl engine = new ScoutEngineImpl();
             engine.setBoard(board);
             engine.setSearchThreadId(currentSize + i);
@@ -75,6 +85,9 @@ public class SMPController {
             boardList.add(board);
             engineList.add(engine);
             searchDepths.add(new AtomicInteger(1));
+            if (currentSize + i > 0) {
+                workerList.add(new SearchWorker(engine, barrier, "search-helper-" + (currentSize + i)));
+            }
         }
     }
     
@@ -91,38 +104,57 @@ public class SMPController {
 
     public int getBestMove(Set<Integer> avoidMoves) {
         running = true;
-        //start additional search threads
+        //wake the additional search threads
         for (AtomicInteger searchDepth : searchDepths) {
             searchDepth.set(1);
         }
-        List<FutureTask<Integer>> futures = new ArrayList<>();
         SearchStatistics statistics = new SearchStatistics();
-        for (int i = 1; i<engineList.size(); i++){
-            ScoutEngineImpl engine = engineList.get(i);
-            FutureTask<Integer> futureTask = new FutureTask<>(() -> engine.getBestMove(avoidMoves, searchDepths, statistics));
-            futures.add(futureTask);
-            Thread thread = new Thread(futureTask);
-            thread.setName("search-helper-" + i);
-            thread.start();
-
+        long searchStart = System.nanoTime();
+        barrier.reset(workerList.size());
+        for (SearchWorker worker : workerList){
+            worker.startSearch(avoidMoves, searchDepths, statistics);
         }
         int bestMove = engineList.get(0).getBestMove(avoidMoves, searchDepths, statistics);
         running = false;
         // Log some statistics
         statistics.stop(MV.toString(bestMove));
-        //make sure all search threads terminate
-        engineList.forEach(ScoutEngineImpl::forceStop);
-        for (FutureTask<Integer> futureTask : futures){
-            try {
-                futureTask.get();
-            } catch (InterruptedException | ExecutionException e) {
-                logger.warn("unexpected exception", e);
-                Thread.currentThread().interrupt();
-            }
+        //make sure all search threads finish. A helper that only just woke up resets its stop flag, so keep stopping until all have arrived.
+        long stopStart = System.nanoTime();
+        do {
+            engineList.forEach(ScoutEngineImpl::forceStop);
+        } while (!barrier.await(STOP_RETRY_NANOS));
+        long stopLatency = System.nanoTime() - stopStart;
+        long startLatency = 0;
+        for (SearchWorker worker : workerList){
+            startLatency = Math.max(startLatency, worker.getSearchStartedAt() - searchStart);
         }
+        latencyStatistics.add(startLatency, stopLatency);
+        logger.debug("helper threads started within {} micros and stopped within {} micros", startLatency / 1000, stopLatency / 1000);
+        reportTTStatistics(statistics);
         return bestMove;
     }
 
+    /**
+     * log the transposition table usage of the last search and, when thinking output is on, send it as a debug line.
+     */
+    private void reportTTStatistics(SearchStatistics statistics) {
+        if (transpositionTable == null) {
+            return;
+        }
+        String ttStatistics = statistics.getTTStatistics(transpositionTable.getHashfull());
+        logger.debug(ttStatistics);
+        if (post) {
+            OutputPrinter.printOutput("# " + ttStatistics);
+        }
+    }
+
+    /**
+     * @return the move start and move stop latencies of the helper threads over all searches
+     */
+    public LatencyStatistics getLatencyStatistics() {
+        return latencyStatistics;
+    }
+
     public boolean isRunning() {
         return running;
     }
@@ -163,7 +195,21 @@ public class SMPController {
     }
 
     public void clearCaches() {
-        engineList.forEach(ScoutEngineImpl::clearCaches);
+        if (transpositionTable != null) {
+            transpositionTable.clear();
+        }
+        clearThreadCaches();
+    }
+
+    /**
+     * clears the caches of the search threads, but keeps the transposition table.
+     */
+    public void clearThreadCaches() {
+        engineList.forEach(ScoutEngineImpl::clearThreadCaches);
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
     }
 
     public int getBestMoveFromTT() {
@@ -185,6 +231,7 @@ public class SMPController {
 
     public void printStatistics() {
         engineList.forEach(ScoutEngineImpl::printStatistics);
+        logger.info(latencyStatistics);
     }
 
     public void setCores(int cores) {
@@ -0,0 +1,62 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A reusable barrier on which a single thread waits for a number of search workers to finish.
+ */
+class SearchBarrier {
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Thread waiter;
+
+    /**
+     * prepare the barrier for a new search. Must be called before the workers are started.
+     * @param parties the number of workers that will arrive
+     */
+    void reset(int parties) {
+        waiter = Thread.currentThread();
+        pending.set(parties);
+    }
+
+    void arrive() {
+        if (pending.decrementAndGet() == 0) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * park the calling thread until all workers have arrived, or until the timeout expires.
+     * @param timeoutNanos the maximum time to wait
+     * @return true if all workers have arrived
+     */
+    boolean await(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (pending.get() > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter;
+
+import com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl;
+import com.winkelhagen.chess.frankwalter.engine.SearchStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A long lived helper thread for a single ScoutEngineImpl.
+ * The thread is parked between searches, and is woken by startSearch. It reports the end of each search to a SearchBarrier.
+ */
+class SearchWorker implements Runnable {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final ScoutEngineImpl engine;
+    private final SearchBarrier barrier;
+    private final Thread thread;
+
+    private Set<Integer> avoidMoves;
+    private List<AtomicInteger> searchDepths;
+    private SearchStatistics statistics;
+    private volatile boolean searchRequested = false;
+    private volatile boolean shutdown = false;
+    private volatile long searchStartedAt;
+
+    SearchWorker(ScoutEngineImpl engine, SearchBarrier barrier, String name) {
+        this.engine = engine;
+        this.barrier = barrier;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * wake the worker and let it search the current root position. The search stops when the engine is stopped.
+     */
+    void startSearch(Set<Integer> avoidMoves, List<AtomicInteger> searchDepths, SearchStatistics statistics) {
+        this.avoidMoves = avoidMoves;
+        this.searchDepths = searchDepths;
+        this.statistics = statistics;
+        searchRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * let the worker thread terminate once it is idle.
+     */
+    void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return the System.nanoTime() at which the worker started its last search
+     */
+    long getSearchStartedAt() {
+        return searchStartedAt;
+    }
+
+    @Override
+    public void run() {
+        while (!shutdown) {
+            if (!searchRequested) {
+                LockSupport.park(this);
+                continue;
+            }
+            searchRequested = false;
+            searchStartedAt = System.nanoTime();
+            try {
+                engine.getBestMove(avoidMoves, searchDepths, statistics);
+            } catch (RuntimeException e) {
+                logger.warn("unexpected exception", e);
+            } finally {
+                barrier.arrive();
+            }
+        }
+        logger.debug("{} terminated", thread.getName());
+    }
+}
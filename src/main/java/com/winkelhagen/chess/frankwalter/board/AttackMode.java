@@ -0,0 +1,40 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.board;
+
+/**
+ * Enumeration of the ways a Board can provide attack information.
+ * INCREMENTAL keeps the attacked and attacking tables up to date on every move,
+ * LAZY computes the attacks of a square from the bitboards when they are requested.
+ */
+public enum AttackMode {
+    INCREMENTAL, LAZY;
+
+    /**
+     * @param mode the name of the mode, case insensitive
+     * @return the matching AttackMode or null if there is no such mode
+     */
+    public static AttackMode parse(String mode) {
+        for (AttackMode attackMode : values()) {
+            if (attackMode.name().equalsIgnoreCase(mode)) {
+                return attackMode;
+            }
+        }
+        return null;
+    }
+}
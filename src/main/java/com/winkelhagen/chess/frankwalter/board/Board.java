@@ -19,6 +19,9 @@ package com.winkelhagen.chess.frankwalter.board;
 
 import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
 import com.winkelhagen.chess.frankwalter.util.Piece;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.MaterialTable;
 import com.winkelhagen.chess.frankwalter.engine.tb.Syzygy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,28 +42,28 @@ public class Board {
 
 
     /**
-     * objects to hold moves to be un-done (including hard to reconstruct states of the board)
-     *
+     * initial number of plies the history can hold. The history grows when a game or search goes deeper.
      */
-    private class UndoableMove {
-
-        int move;
-        int quiet50;
-        int epSquare;
-        int castleMask;
-        long hashKey;
-        long pinsWhite;
-        long pinsBlack;
-        long[] attacked = new long[64];
-        long[] attacking = new long[64];
-
-    }
-
-    private static final int HISTORYSIZE = 10000;
+    private static final int INITIAL_HISTORYSIZE = 256;
+    /**
+     * upper bound on the number of attack table words a single move can change (32 pieces, each touching at most 28 words, plus the moving pieces)
+     */
+    private static final int JOURNAL_MOVE_MARGIN = 2048;
     private static final int[] pieceValue = { 0, 900, 500, 300, 300, 990, 100 };
 
     private int[] materialScore = { 0, 0 };
     private int pieceCount;
+    /*
+     * piece square table scores (white minus black) for the middle game and the endgame, and the game phase (see Evaluator.PIECE_PHASE)
+     */
+    private int pcsqMid;
+    private int pcsqEnd;
+    private int phase;
+    private EvalParams evalParams = EvalParams.DEFAULT;
+    /*
+     * the number of pieces per color and type (see MaterialTable.KEY_INCREMENT), used as key for the material table
+     */
+    private long materialKey;
 
     /**
      * array of bitboards holding the squares attacked by the indexed square
@@ -71,6 +74,14 @@ public class Board {
      */
     private long[] attacked = new long[64];
 
+    /**
+     * undo journal for the attack tables: every word that is about to change is recorded with its old value.
+     * indices 0-63 refer to attacked[], indices 64-127 refer to attacking[]. undoMove replays the journal backwards.
+     */
+    private int[] journalIndex = new int[2 * JOURNAL_MOVE_MARGIN];
+    private long[] journalValue = new long[2 * JOURNAL_MOVE_MARGIN];
+    private int journalTop = 0;
+
     private static final Logger logger = LogManager.getLogger();
 
     public static final int ABSOLUTE_MAX_MOVES = 250;
@@ -94,19 +105,52 @@ public class Board {
 
     private ZobristHash zobrist = new ZobristHash();
     private ZobristHash ctrlZobrist = new ZobristHash();
+    /**
+     * hash of only the pawns on the board, used as key for the pawn hash table
+     */
+    private ZobristHash pawnZobrist = new ZobristHash();
 
     /**
      * We use a separate array for repetition detection. NullMove hashKeys are not stored, because they at best interfere with repetition detection.
      * For example: three null moves in the same position would result in a repetition being detected and the move would be scored 0 in search
      */
-    private long[] hashtory = new long[HISTORYSIZE];
+    private long[] hashtory = new long[INITIAL_HISTORYSIZE];
 
-    private UndoableMove[] history = new UndoableMove[HISTORYSIZE];
+    /*
+     * the moves to be un-done (including hard to reconstruct states of the board), indexed by ply.
+     */
+    private int[] historyMove = new int[INITIAL_HISTORYSIZE];
+    private int[] historyQuiet50 = new int[INITIAL_HISTORYSIZE];
+    private int[] historyEpSquare = new int[INITIAL_HISTORYSIZE];
+    private int[] historyCastleMask = new int[INITIAL_HISTORYSIZE];
+    private int[] historyJournalStart = new int[INITIAL_HISTORYSIZE];
+    private long[] historyHashKey = new long[INITIAL_HISTORYSIZE];
+    private long[] historyPinsWhite = new long[INITIAL_HISTORYSIZE];
+    private long[] historyPinsBlack = new long[INITIAL_HISTORYSIZE];
+    private int[] historyPcsqMid = new int[INITIAL_HISTORYSIZE];
+    private int[] historyPcsqEnd = new int[INITIAL_HISTORYSIZE];
+    private int[] historyPhase = new int[INITIAL_HISTORYSIZE];
+    private long[] historyPawnKey = new long[INITIAL_HISTORYSIZE];
+    private long[] historyMaterialKey = new long[INITIAL_HISTORYSIZE];
 
     /**
-     * Constructor: Returns a new board instance and resets it.
+     * when true the attack tables are not maintained; attack information is calculated from the bitboards on request.
+     */
+    private final boolean lazyAttacks;
+
+    /**
+     * Constructor: Returns a new board instance, with incrementally updated attack tables, and resets it.
      */
     public Board() {
+        this(AttackMode.INCREMENTAL);
+    }
+
+    /**
+     * Constructor: Returns a new board instance and resets it.
+     * @param attackMode the way this board provides attack information
+     */
+    public Board(AttackMode attackMode) {
+        lazyAttacks = attackMode == AttackMode.LAZY;
         //idea is to use assertions as a debug mechanism. It will slow the engine down a lot because hashkeys are recalculated every move
         if (getClass().desiredAssertionStatus()){
             logger.warn("Assertions are enabled.");            
@@ -114,15 +158,13 @@ public class Board {
             logger.debug("Assertions are disabled.");
         }
         resetBoard();
-        for (int i = 0; i < HISTORYSIZE; i++) {
-            history[i] = new UndoableMove();
-        }
     }
 
     private void resetBoard() {
         pinsWhite = 0;
         pinsBlack = 0;
         zobrist.reset();
+        pawnZobrist.reset();
         fullMoves = 1;
         occupied = 0;
         pieces = new long[2][7];
@@ -139,6 +181,11 @@ public class Board {
         quiet50 = 0;
         materialScore = new int[2];
         pieceCount = 0;
+        pcsqMid = 0;
+        pcsqEnd = 0;
+        phase = Evaluator.TOTAL_PHASE;
+        materialKey = 0;
+        journalTop = 0;
 
     }
 
@@ -164,14 +211,17 @@ public class Board {
     public void undoNullMove() {
         sideToMove ^= 1;
         ply--;
-        epSquare = history[ply].epSquare;
-        zobrist.setHash(history[ply].hashKey);
+        epSquare = historyEpSquare[ply];
+        zobrist.setHash(historyHashKey[ply]);
         hashtory[ply] = 0L;
     }
 
     public void doNullMove() {
-        history[ply].epSquare = epSquare;
-        history[ply].hashKey = zobrist.getHash();
+        if (ply == historyMove.length) {
+            growHistory();
+        }
+        historyEpSquare[ply] = epSquare;
+        historyHashKey[ply] = zobrist.getHash();
         hashtory[ply] = zobrist.getHash();
         if (epSquare != -1) {
             zobrist.toggleSpecial(epSquare);
@@ -201,13 +251,29 @@ public class Board {
         pieces[sideToMove][movingPiece] ^= moveBitboard;
         squares[toSquare] = movingPiece;
         squares[fromSquare] = Constants.EMPTY;
-        history[ply].epSquare = epSquare;
-        history[ply].hashKey = zobrist.getHash();
-        history[ply].pinsWhite = pinsWhite;
-        history[ply].pinsBlack = pinsBlack;
-        for (int i = 0; i < 64; i++) {
-            history[ply].attacked[i] = attacked[i];
-            history[ply].attacking[i] = attacking[i];
+        if (ply == historyMove.length) {
+            growHistory();
+        }
+        historyEpSquare[ply] = epSquare;
+        historyHashKey[ply] = zobrist.getHash();
+        historyPinsWhite[ply] = pinsWhite;
+        historyPinsBlack[ply] = pinsBlack;
+        historyJournalStart[ply] = journalTop;
+        historyPcsqMid[ply] = pcsqMid;
+        historyPcsqEnd[ply] = pcsqEnd;
+        historyPhase[ply] = phase;
+        historyPawnKey[ply] = pawnZobrist.getHash();
+        historyMaterialKey[ply] = materialKey;
+        movePcsq(sideToMove, movingPiece, fromSquare, toSquare);
+        if (movingPiece == Constants.PAWN) {
+            pawnZobrist.togglePiece(sideToMove, Constants.PAWN, fromSquare);
+            pawnZobrist.togglePiece(sideToMove, Constants.PAWN, toSquare);
+        }
+        if (capturedPiece == Constants.PAWN) {
+            pawnZobrist.togglePiece(sideToMove ^ 1, Constants.PAWN, toSquare);
+        }
+        if (journalTop + JOURNAL_MOVE_MARGIN > journalIndex.length) {
+            growJournal();
         }
 
         hashtory[ply] = zobrist.getHash();
@@ -225,10 +291,13 @@ public class Board {
             if (promotedPiece != 0) {
                 materialScore[sideToMove] -= pieceValue[Constants.PAWN];
                 materialScore[sideToMove] += pieceValue[promotedPiece];
+                removePieceIncrementally(sideToMove, Constants.PAWN, toSquare);
+                addPieceIncrementally(sideToMove, promotedPiece, toSquare);
                 long promotedBitboard = 1L << toSquare;
                 pieces[sideToMove][promotedPiece] ^= promotedBitboard; // old sideToMove!
                 pieces[sideToMove][Constants.PAWN] ^= promotedBitboard; // old sideToMove!
                 zobrist.completePromotion(sideToMove, promotedPiece, toSquare);
+                pawnZobrist.togglePiece(sideToMove, Constants.PAWN, toSquare);
                 squares[toSquare] = promotedPiece;
                 epSquare = -1;
             } else if ((toSquare & 7) == (fromSquare & 7)) { // double move of pawn: set EP
@@ -243,8 +312,11 @@ public class Board {
                 squares[toSquare - 2] = Constants.EMPTY;
                 epSquare = -1;
                 zobrist.completeCastle(sideToMove, fromSquare - 1, toSquare - 2);
-                updateAttackTables(fromSquare - 1, Constants.ROOK, sideToMove);
-                updateAttackTables(toSquare - 2, Constants.EMPTY, sideToMove);
+                movePcsq(sideToMove, Constants.ROOK, toSquare - 2, fromSquare - 1);
+                if (!lazyAttacks) {
+                    updateAttackTables(fromSquare - 1, Constants.ROOK, sideToMove);
+                    updateAttackTables(toSquare - 2, Constants.EMPTY, sideToMove);
+                }
             } else if ((toSquare & 7) == (fromSquare & 7) + 2) {
                 long castleBitBoard = 1L << (fromSquare + 1) | 1L << (toSquare + 1);
                 pieces[sideToMove][Constants.ALL] ^= castleBitBoard;
@@ -254,12 +326,17 @@ public class Board {
                 squares[toSquare + 1] = Constants.EMPTY;
                 epSquare = -1;
                 zobrist.completeCastle(sideToMove, fromSquare + 1, toSquare + 1);
-                updateAttackTables(fromSquare + 1, Constants.ROOK, sideToMove);
-                updateAttackTables(toSquare + 1, Constants.EMPTY, sideToMove);
+                movePcsq(sideToMove, Constants.ROOK, toSquare + 1, fromSquare + 1);
+                if (!lazyAttacks) {
+                    updateAttackTables(fromSquare + 1, Constants.ROOK, sideToMove);
+                    updateAttackTables(toSquare + 1, Constants.EMPTY, sideToMove);
+                }
             } else { // ep in action
                 capturedEP = epSquare;
                 squares[epSquare] = Constants.EMPTY;
                 zobrist.completeEnPassant(sideToMove, epSquare);
+                pawnZobrist.togglePiece(sideToMove ^ 1, Constants.PAWN, epSquare);
+                removePieceIncrementally(sideToMove ^ 1, Constants.PAWN, epSquare);
                 long epSquareBitboard = 1L << epSquare;
                 pieces[sideToMove ^ 1][Constants.ALL] ^= epSquareBitboard;
                 pieces[sideToMove ^ 1][Constants.PAWN] ^= epSquareBitboard;
@@ -276,6 +353,7 @@ public class Board {
         if (capturedPiece != 0) {
             pieceCount--;
             materialScore[sideToMove] -= pieceValue[capturedPiece];
+            removePieceIncrementally(sideToMove, capturedPiece, toSquare);
             long capturedBitboard = 1L << toSquare;
             occupied ^= capturedBitboard;
             pieces[sideToMove][capturedPiece] ^= capturedBitboard; // new
@@ -286,15 +364,15 @@ public class Board {
 
         move = MV.setCaptured(move, capturedPiece);
 
-        history[ply].castleMask = castleMask;
+        historyCastleMask[ply] = castleMask;
         castleMask &= BB.castleMasks[fromSquare];
         castleMask &= BB.castleMasks[toSquare];
-        if (castleMask != history[ply].castleMask) {
+        if (castleMask != historyCastleMask[ply]) {
             zobrist.toggleSpecial(castleMask);
-            zobrist.toggleSpecial(history[ply].castleMask);
+            zobrist.toggleSpecial(historyCastleMask[ply]);
         }
-        history[ply].move = move;
-        history[ply].quiet50 = quiet50;
+        historyMove[ply] = move;
+        historyQuiet50[ply] = quiet50;
         if (capturedPiece != Constants.EMPTY || movingPiece == Constants.PAWN) {
             quiet50 = 0;
         } else {
@@ -308,27 +386,32 @@ public class Board {
         // be attacked by, they might be sliders and capable of moving further /
         // less now.
         // not necessary for castles
-        long attackedBy;
-        if (capturedEP != 0) {
-            attackedBy = (attacked[fromSquare] | attacked[toSquare] | attacked[capturedEP])
-                    & ~(moveBitboard | BB.single(capturedEP));
-            updateAttackTables(capturedEP, Constants.EMPTY, sideToMove);
-        } else if (capturedPiece == Constants.EMPTY) {
-            attackedBy = (attacked[fromSquare] | attacked[toSquare]) & ~moveBitboard;
-        } else {
-            attackedBy = attacked[fromSquare];
-            updateAttackTables(toSquare, Constants.EMPTY, sideToMove);
-        }
-        updateAttackTables(fromSquare, Constants.EMPTY, sideToMove ^ 1);
-        if (promotedPiece == Constants.EMPTY) {
-            updateAttackTables(toSquare, movingPiece, sideToMove ^ 1);
-        } else {
-            updateAttackTables(toSquare, promotedPiece, sideToMove ^ 1);
+        if (!lazyAttacks) {
+            long attackedBy;
+            if (capturedEP != 0) {
+                attackedBy = (attacked[fromSquare] | attacked[toSquare] | attacked[capturedEP])
+                        & ~(moveBitboard | BB.single(capturedEP));
+                updateAttackTables(capturedEP, Constants.EMPTY, sideToMove);
+            } else if (capturedPiece == Constants.EMPTY) {
+                attackedBy = (attacked[fromSquare] | attacked[toSquare]) & ~moveBitboard;
+            } else {
+                attackedBy = attacked[fromSquare];
+                updateAttackTables(toSquare, Constants.EMPTY, sideToMove);
+            }
+            updateAttackTables(fromSquare, Constants.EMPTY, sideToMove ^ 1);
+            if (promotedPiece == Constants.EMPTY) {
+                updateAttackTables(toSquare, movingPiece, sideToMove ^ 1);
+            } else {
+                updateAttackTables(toSquare, promotedPiece, sideToMove ^ 1);
+            }
+            updateAttackTablesSecondDegree(attackedBy);
         }
-        updateAttackTablesSecondDegree(attackedBy);
         pinsWhite = updatePins(Constants.WHITE);
         pinsBlack = updatePins(Constants.BLACK);
         assert zobrist.equalsHash(calcHashKey()) : "hashcheck failed after move";
+        assert pawnZobrist.equalsHash(calcPawnKey()) : "pawn hashcheck failed after move";
+        assert pcsqMid == calcPcsq(true) && pcsqEnd == calcPcsq(false) : "pcsq check failed after move";
+        assert materialKey == calcMaterialKey() : "material key check failed after move";
     }
 
     public void undoMove() {
@@ -336,18 +419,29 @@ public class Board {
         if (ply == 0)
             throw new IllegalStateException("cannot undo ply 0");
         ply--;
-        int move = history[ply].move;
+        int move = historyMove[ply];
         hashtory[ply] = 0L;
-        history[ply].move = 0;
-        quiet50 = history[ply].quiet50;
-        epSquare = history[ply].epSquare;
-        castleMask = history[ply].castleMask;
-        zobrist.setHash(history[ply].hashKey);
-        pinsWhite = history[ply].pinsWhite;
-        pinsBlack = history[ply].pinsBlack;
-        for (int i = 0; i < 64; i++) {
-            attacked[i] = history[ply].attacked[i];
-            attacking[i] = history[ply].attacking[i];
+        historyMove[ply] = 0;
+        quiet50 = historyQuiet50[ply];
+        epSquare = historyEpSquare[ply];
+        castleMask = historyCastleMask[ply];
+        zobrist.setHash(historyHashKey[ply]);
+        pinsWhite = historyPinsWhite[ply];
+        pinsBlack = historyPinsBlack[ply];
+        pcsqMid = historyPcsqMid[ply];
+        pcsqEnd = historyPcsqEnd[ply];
+        phase = historyPhase[ply];
+        pawnZobrist.setHash(historyPawnKey[ply]);
+        materialKey = historyMaterialKey[ply];
+        int journalStart = historyJournalStart[ply];
+        while (journalTop > journalStart) {
+            journalTop--;
+            int index = journalIndex[journalTop];
+            if (index < 64) {
+                attacked[index] = journalValue[journalTop];
+            } else {
+                attacking[index - 64] = journalValue[journalTop];
+            }
         }
 
         int fromSquare = MV.getFromSquare(move);
@@ -414,6 +508,58 @@ public class Board {
         }
     }
 
+    private void growHistory() {
+        int capacity = historyMove.length * 2;
+        hashtory = Arrays.copyOf(hashtory, capacity);
+        historyMove = Arrays.copyOf(historyMove, capacity);
+        historyQuiet50 = Arrays.copyOf(historyQuiet50, capacity);
+        historyEpSquare = Arrays.copyOf(historyEpSquare, capacity);
+        historyCastleMask = Arrays.copyOf(historyCastleMask, capacity);
+        historyJournalStart = Arrays.copyOf(historyJournalStart, capacity);
+        historyHashKey = Arrays.copyOf(historyHashKey, capacity);
+        historyPinsWhite = Arrays.copyOf(historyPinsWhite, capacity);
+        historyPinsBlack = Arrays.copyOf(historyPinsBlack, capacity);
+        historyPcsqMid = Arrays.copyOf(historyPcsqMid, capacity);
+        historyPcsqEnd = Arrays.copyOf(historyPcsqEnd, capacity);
+        historyPhase = Arrays.copyOf(historyPhase, capacity);
+        historyPawnKey = Arrays.copyOf(historyPawnKey, capacity);
+        historyMaterialKey = Arrays.copyOf(historyMaterialKey, capacity);
+    }
+
+    private void addPieceIncrementally(int color, int piece, int square) {
+        pcsqMid += evalParams.pcsqMid(color, piece, square);
+        pcsqEnd += evalParams.pcsqEnd(color, piece, square);
+        phase -= Evaluator.PIECE_PHASE[piece];
+        materialKey += MaterialTable.KEY_INCREMENT[color][piece];
+    }
+
+    private void removePieceIncrementally(int color, int piece, int square) {
+        pcsqMid -= evalParams.pcsqMid(color, piece, square);
+        pcsqEnd -= evalParams.pcsqEnd(color, piece, square);
+        phase += Evaluator.PIECE_PHASE[piece];
+        materialKey -= MaterialTable.KEY_INCREMENT[color][piece];
+    }
+
+    private void movePcsq(int color, int piece, int fromSquare, int toSquare) {
+        pcsqMid += evalParams.pcsqMid(color, piece, toSquare) - evalParams.pcsqMid(color, piece, fromSquare);
+        pcsqEnd += evalParams.pcsqEnd(color, piece, toSquare) - evalParams.pcsqEnd(color, piece, fromSquare);
+    }
+
+    private void growJournal() {
+        journalIndex = Arrays.copyOf(journalIndex, journalIndex.length * 2);
+        journalValue = Arrays.copyOf(journalValue, journalValue.length * 2);
+    }
+
+    private void journalAttacked(int square) {
+        journalIndex[journalTop] = square;
+        journalValue[journalTop++] = attacked[square];
+    }
+
+    private void journalAttacking(int square) {
+        journalIndex[journalTop] = square + 64;
+        journalValue[journalTop++] = attacking[square];
+    }
+
     private void updateAllAttackTables() {
         long whites = pieces[Constants.WHITE][Constants.ALL];
         while (whites != 0) {
@@ -436,7 +582,7 @@ public class Board {
         // Determine new attacked and attacking bitboards
         switch (piece) {
         case Constants.QUEEN:
-            attackingSquares = BB.getBishopMoves(square, occupied) | BB.getRookMoves(square, occupied);
+            attackingSquares = BB.getQueenMoves(square, occupied);
             break;
         case Constants.ROOK:
             attackingSquares = BB.getRookMoves(square, occupied);
@@ -456,32 +602,40 @@ public class Board {
         case Constants.EMPTY:
             attackingSquares = attacking[square];
             removeSquareAttacked(attackingSquares, single);
+            journalAttacking(square);
             attacking[square] = 0;
             return;
         default:
             attackingSquares = 0;
         }
+        journalAttacking(square);
         attacking[square] = attackingSquares;
         addSquareToAttacked(attackingSquares, single);
     }
 
     private void removeSquareAttacked(long attackingSquares, long single) {
         while (attackingSquares != 0) {
-            attacked[BB.lsb(attackingSquares)] &= ~single;
+            int attackedSquare = BB.lsb(attackingSquares);
+            journalAttacked(attackedSquare);
+            attacked[attackedSquare] &= ~single;
             attackingSquares &= attackingSquares - 1;
         }
     }
 
     private void toggleSquareToAttacked(long attackingSquares, long single) {
         while (attackingSquares != 0) {
-            attacked[BB.lsb(attackingSquares)] ^= single;
+            int attackedSquare = BB.lsb(attackingSquares);
+            journalAttacked(attackedSquare);
+            attacked[attackedSquare] ^= single;
             attackingSquares &= attackingSquares - 1;
         }
     }
 
     private void addSquareToAttacked(long attackingSquares, long single) {
         while (attackingSquares != 0) {
-            attacked[BB.lsb(attackingSquares)] |= single;
+            int attackedSquare = BB.lsb(attackingSquares);
+            journalAttacked(attackedSquare);
+            attacked[attackedSquare] |= single;
             attackingSquares &= attackingSquares - 1;
         }
     }
@@ -496,15 +650,17 @@ public class Board {
             long difference;
             switch (squares[attackingSquare]) {
             case Constants.QUEEN:
-                attacking[attackingSquare] = BB.getBishopMoves(attackingSquare, occupied)
-                        | BB.getRookMoves(attackingSquare, occupied);
+                journalAttacking(attackingSquare);
+                attacking[attackingSquare] = BB.getQueenMoves(attackingSquare, occupied);
                 difference = attacking[attackingSquare] ^ formerAttacks;
                 break;
             case Constants.ROOK:
+                journalAttacking(attackingSquare);
                 attacking[attackingSquare] = BB.getRookMoves(attackingSquare, occupied);
                 difference = attacking[attackingSquare] ^ formerAttacks;
                 break;
             case Constants.BISHOP:
+                journalAttacking(attackingSquare);
                 attacking[attackingSquare] = BB.getBishopMoves(attackingSquare, occupied);
                 difference = attacking[attackingSquare] ^ formerAttacks;
                 break;
@@ -597,24 +753,31 @@ public class Board {
      *            "WHITE-BLACK"
      */
     private void setupPiece(String type, int square, int color, boolean determineAttacksInPlace) {
+        setupPiece(Piece.valueOf(type.toUpperCase()).getPieceID(), square, color, determineAttacksInPlace);
+    }
+
+    private void setupPiece(int piece, int square, int color, boolean determineAttacksInPlace) {
         this.pieces[color][Constants.ALL] |= BB.single(square);
         occupied |= BB.single(square);
         zobrist.togglePiece(color, Constants.EMPTY, square);
-        int piece = Piece.valueOf(type.toUpperCase()).getPieceID();
         if (piece == Constants.KING) {
             kings[color] = square;
         }
         squares[square] = piece;
         this.pieces[color][piece] |= BB.single(square);
         zobrist.togglePiece(color, piece, square);
+        if (piece == Constants.PAWN) {
+            pawnZobrist.togglePiece(color, piece, square);
+        }
 
-        if (determineAttacksInPlace) {
+        if (determineAttacksInPlace && !lazyAttacks) {
             long attackedBy = attacked[square];
             updateAttackTables(square, piece, color);
             updateAttackTablesSecondDegree(attackedBy);
         }
         pieceCount++;
         materialScore[color] += pieceValue[piece];
+        addPieceIncrementally(color, piece, square);
     }
 
     //This method is given as an example.
@@ -628,6 +791,7 @@ public class Board {
         setupOptionalInformation(fenSubStrings);
         pinsWhite = updatePins(Constants.WHITE);
         pinsBlack = updatePins(Constants.BLACK);
+        journalTop = 0;
     }
 
     public void setupBoard(String fen) throws IllegalFENException {
@@ -639,10 +803,59 @@ public class Board {
         setupEpInfo(fenSubStrings[3]);
         setupOptionalInformation(fenSubStrings);
 
-        updateAllAttackTables();
+        if (!lazyAttacks) {
+            updateAllAttackTables();
+        }
+
+        pinsWhite = updatePins(Constants.WHITE);
+        pinsBlack = updatePins(Constants.BLACK);
+        journalTop = 0;
+    }
+
+    /**
+     * set up a position from bitboards, as stored by a binary dataset. Unlike setupBoard, this does not parse a FEN.
+     *
+     * @param pieces
+     *            the bitboards by color and piece type; the ALL bitboards are ignored
+     * @param sideToMove
+     *            the side to move
+     * @param castleMask
+     *            the castle mask, as returned by getCastleMask
+     * @param epSquare
+     *            the en passant square, -1 for none
+     * @param quiet50
+     *            the number of plies since the last capture or pawn move
+     */
+    public void setupBoard(long[][] pieces, int sideToMove, int castleMask, int epSquare, int quiet50) {
+        resetBoard();
+        for (int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+            for (int piece = Constants.QUEEN; piece <= Constants.PAWN; piece++) {
+                long bitboard = pieces[color][piece];
+                while (bitboard != 0) {
+                    setupPiece(piece, BB.lsb(bitboard), color, false);
+                    bitboard &= bitboard - 1;
+                }
+            }
+        }
+        this.sideToMove = sideToMove;
+        if (sideToMove == Constants.BLACK) {
+            zobrist.toggleSideToMove();
+        }
+        this.castleMask = castleMask;
+        zobrist.toggleSpecial(castleMask);
+        this.epSquare = epSquare;
+        if (epSquare != -1) {
+            zobrist.toggleSpecial(epSquare);
+        }
+        this.quiet50 = quiet50;
+
+        if (!lazyAttacks) {
+            updateAllAttackTables();
+        }
 
         pinsWhite = updatePins(Constants.WHITE);
         pinsBlack = updatePins(Constants.BLACK);
+        journalTop = 0;
     }
 
     private void setupOptionalInformation(String[] fenSubStrings) {
@@ -854,6 +1067,39 @@ public class Board {
         return ctrlZobrist.getHash();
     }
 
+    private long calcPawnKey() {
+        ctrlZobrist.reset();
+        for (int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+            long pawns = pieces[color][Constants.PAWN];
+            while (pawns != 0) {
+                ctrlZobrist.togglePiece(color, Constants.PAWN, BB.lsb(pawns));
+                pawns &= pawns - 1;
+            }
+        }
+        return ctrlZobrist.getHash();
+    }
+
+    private long calcMaterialKey() {
+        long key = 0;
+        for (int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+            for (int piece = Constants.QUEEN; piece <= Constants.PAWN; piece++) {
+                key += Long.bitCount(pieces[color][piece]) * MaterialTable.KEY_INCREMENT[color][piece];
+            }
+        }
+        return key;
+    }
+
+    private int calcPcsq(boolean middleGame) {
+        int score = 0;
+        for (int i = 0; i < 64; i++) {
+            if (squares[i] != Constants.EMPTY) {
+                int color = (BB.single(i) & pieces[Constants.WHITE][Constants.ALL]) != 0 ? Constants.WHITE : Constants.BLACK;
+                score += middleGame ? evalParams.pcsqMid(color, squares[i], i) : evalParams.pcsqEnd(color, squares[i], i);
+            }
+        }
+        return score;
+    }
+
     public boolean isInTableBaseRange() {
         return Syzygy.isAvailable(Long.bitCount(occupied));
     }
@@ -869,16 +1115,94 @@ public class Board {
         return materialScore[stm];
     }
 
+    /**
+     * @return the middle game piece square table score, from the perspective of white
+     */
+    public int getPcsqMid() {
+        return pcsqMid;
+    }
+
+    /**
+     * @return the endgame piece square table score, from the perspective of white
+     */
+    public int getPcsqEnd() {
+        return pcsqEnd;
+    }
+
+    /**
+     * @return the evaluation parameters the piece square table scores are calculated with
+     */
+    public EvalParams getEvalParams() {
+        return evalParams;
+    }
+
+    /**
+     * use other evaluation parameters for the piece square table scores. The scores of the current position are
+     * recalculated, those of earlier plies are not: set the parameters before setting up a position.
+     * @param evalParams the evaluation parameters of the evaluator that evaluates this board
+     */
+    public void setEvalParams(EvalParams evalParams) {
+        this.evalParams = evalParams;
+        pcsqMid = calcPcsq(true);
+        pcsqEnd = calcPcsq(false);
+    }
+
+    /**
+     * @return the phase of the game: Evaluator.TOTAL_PHASE minus the phase values of the pieces on the board
+     */
+    public int getPhase() {
+        return phase;
+    }
+
     public int getPieceCount(){
         return pieceCount;
     }
 
-    public long[] getAttacking() {
-        return attacking;
+    public AttackMode getAttackMode() {
+        return lazyAttacks ? AttackMode.LAZY : AttackMode.INCREMENTAL;
+    }
+
+    /**
+     * @param square the square of the attacking piece
+     * @return a bitboard with the squares attacked by the piece on the given square (0 if the square is empty)
+     */
+    public long getAttacking(int square) {
+        if (!lazyAttacks) {
+            return attacking[square];
+        }
+        switch (squares[square]) {
+        case Constants.QUEEN:
+            return BB.getQueenMoves(square, occupied);
+        case Constants.ROOK:
+            return BB.getRookMoves(square, occupied);
+        case Constants.BISHOP:
+            return BB.getBishopMoves(square, occupied);
+        case Constants.KING:
+            return BB.king[square];
+        case Constants.KNIGHT:
+            return BB.knight[square];
+        case Constants.PAWN:
+            return BB.pawn[(pieces[Constants.WHITE][Constants.ALL] & BB.single(square)) != 0 ? Constants.WHITE : Constants.BLACK][square];
+        default:
+            return 0;
+        }
     }
 
-    public long[] getAttacked() {
-        return attacked;
+    /**
+     * @param square the attacked square
+     * @return a bitboard with the squares of all pieces (of both sides) attacking the given square
+     */
+    public long getAttacked(int square) {
+        if (!lazyAttacks) {
+            return attacked[square];
+        }
+        long queens = pieces[Constants.WHITE][Constants.QUEEN] | pieces[Constants.BLACK][Constants.QUEEN];
+        return (BB.getRookMoves(square, occupied) & (pieces[Constants.WHITE][Constants.ROOK] | pieces[Constants.BLACK][Constants.ROOK] | queens))
+                | (BB.getBishopMoves(square, occupied) & (pieces[Constants.WHITE][Constants.BISHOP] | pieces[Constants.BLACK][Constants.BISHOP] | queens))
+                | (BB.knight[square] & (pieces[Constants.WHITE][Constants.KNIGHT] | pieces[Constants.BLACK][Constants.KNIGHT]))
+                | (BB.king[square] & (pieces[Constants.WHITE][Constants.KING] | pieces[Constants.BLACK][Constants.KING]))
+                | (BB.pawn[Constants.BLACK][square] & pieces[Constants.WHITE][Constants.PAWN])
+                | (BB.pawn[Constants.WHITE][square] & pieces[Constants.BLACK][Constants.PAWN]);
     }
 
     public int getKings(int stm) {
@@ -921,6 +1245,14 @@ public class Board {
         return zobrist.getHash();
     }
 
+    public long getPawnKey() {
+        return pawnZobrist.getHash();
+    }
+
+    public long getMaterialKey() {
+        return materialKey;
+    }
+
     public int getPlyCount() {
         return ply;
     }
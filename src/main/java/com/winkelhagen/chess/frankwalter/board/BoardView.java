@@ -227,11 +227,11 @@ public class BoardView {
         StringBuilder sb = new StringBuilder();
         for (int rank = 7; rank >= 0; rank--) {
             for (int file = 0; file < 8; file++) {
-                sb.append(Long.bitCount(board.getAttacked()[rank * 8 + file]) % 10);
+                sb.append(Long.bitCount(board.getAttacked(rank * 8 + file)) % 10);
             }
             sb.append("   ");
             for (int file = 0; file < 8; file++) {
-                sb.append(Long.bitCount(board.getAttacking()[rank * 8 + file]) % 10);
+                sb.append(Long.bitCount(board.getAttacking(rank * 8 + file)) % 10);
             }
             sb.append("\n");
         }
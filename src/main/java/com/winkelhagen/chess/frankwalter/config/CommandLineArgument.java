@@ -17,6 +17,11 @@
  */
 package com.winkelhagen.chess.frankwalter.config;
 
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
+import com.winkelhagen.chess.frankwalter.engine.tt.ReplacementPolicy;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableType;
+import com.winkelhagen.chess.frankwalter.tuner.TuningMethod;
+
 import java.util.EnumMap;
 import java.util.Map;
 
@@ -24,7 +29,7 @@ import java.util.Map;
  * enumeration of commandline arguments with their detaults
  */
 public enum CommandLineArgument {
-    DEBUG("-debug"), TT_SIZE("-tt"), TB_LOCATION("-tb"), BOOK("-book"), NO_BOOK("-nobook"), EPD("-epd"), CORES("-cores");
+    DEBUG("-debug"), TT_SIZE("-tt"), TB_LOCATION("-tb"), BOOK("-book"), NO_BOOK("-nobook"), EPD("-epd"), CORES("-cores"), ATTACK_MODE("-attacks"), TT_POLICY("-ttpolicy"), TT_FILE("-ttfile"), TT_SHARED("-ttshared"), TT_TYPE("-tttype"), TUNE("-tune"), TUNE_CHECKPOINT("-checkpoint"), TUNE_METHOD("-tunemethod");
 
     private String argument;
 
@@ -44,6 +49,14 @@ public enum CommandLineArgument {
         defaults.put(BOOK, "frankwalter.openings");
         defaults.put(NO_BOOK, Boolean.FALSE);
         defaults.put(CORES, null);
+        defaults.put(ATTACK_MODE, AttackMode.INCREMENTAL);
+        defaults.put(TT_POLICY, ReplacementPolicy.DEPTH_PREFERRED);
+        defaults.put(TT_FILE, null);
+        defaults.put(TT_SHARED, null);
+        defaults.put(TT_TYPE, TranspositionTableType.LOCKLESS);
+        defaults.put(TUNE, null);
+        defaults.put(TUNE_CHECKPOINT, null);
+        defaults.put(TUNE_METHOD, TuningMethod.LOCAL);
         return defaults;
     }
 
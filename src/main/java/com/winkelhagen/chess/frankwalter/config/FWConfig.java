@@ -18,13 +18,22 @@
 package com.winkelhagen.chess.frankwalter.config;
 
 import com.winkelhagen.chess.frankwalter.SMPController;
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
 import com.winkelhagen.chess.frankwalter.board.Board;
 import com.winkelhagen.chess.frankwalter.engine.Engine;
 import com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl;
 import com.winkelhagen.chess.frankwalter.engine.TimedSearchStarter;
-import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableQuadArrayImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.ReplacementPolicy;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableCompactImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableLocklessImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableMappedImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableOffHeapImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableType;
+import com.winkelhagen.chess.frankwalter.tuner.TuningMethod;
 import com.winkelhagen.chess.frankwalter.util.BB;
 import com.winkelhagen.chess.syzygy.SyzygyBridge;
+import com.sun.management.HotSpotDiagnosticMXBean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -33,6 +42,10 @@ import static com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl.ABSOLUTE_
 import static com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl.MAX_DEPTH_MARGIN;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,18 +57,22 @@ import java.util.regex.Pattern;
 public class FWConfig {
 
 	private static final int DEFAULT_TT_MAGNITUDE = 24;
+	private static final long DIRECT_MEMORY_RESERVE = 64L << 20;
 	private static final String TT_SIZE_PATTERN = "^(?<size>\\d++)(?<quantifier>\\w+)?$";
 
 	private static final Logger logger = LogManager.getLogger();
-	public final Board dummyBoard = new Board();
-	public final SMPController smpController = new SMPController();
+	public final Board dummyBoard;
+	public final SMPController smpController;
 
 	private Map<CommandLineArgument, Object> properties = CommandLineArgument.getBaseProperties();
-	public final TimedSearchStarter timedSearchStarter = new TimedSearchStarter(smpController);
+	public final TimedSearchStarter timedSearchStarter;
 
     public FWConfig(String[] args){
 		parseArguments(args);
 
+		dummyBoard = new Board(getAttackMode());
+		smpController = new SMPController(getAttackMode());
+		timedSearchStarter = new TimedSearchStarter(smpController);
 
 		testTableBaseLibrary();
 	}
@@ -106,6 +123,14 @@ public class FWConfig {
 				case EPD:
 				case TB_LOCATION:
 				case TT_SIZE:
+				case ATTACK_MODE:
+				case TT_POLICY:
+				case TT_FILE:
+				case TT_SHARED:
+				case TT_TYPE:
+				case TUNE:
+				case TUNE_CHECKPOINT:
+				case TUNE_METHOD:
 					return commandLineArgument;
 				default:
 					logger.warn("Unimplemented commandline parameter '{}'.", argumentString);
@@ -140,6 +165,50 @@ public class FWConfig {
 			case EPD:
 				properties.put(EPD, arg);
 				break;
+			case ATTACK_MODE:
+				AttackMode attackMode = AttackMode.parse(arg);
+				if (attackMode == null) {
+					logger.warn("illegal commandline parameter for -attacks '{}' - this should be 'incremental' or 'lazy'", arg);
+				} else {
+					properties.put(ATTACK_MODE, attackMode);
+				}
+				break;
+			case TT_FILE:
+				properties.put(TT_FILE, new File(arg).getAbsolutePath());
+				break;
+			case TT_SHARED:
+				properties.put(TT_SHARED, new File(arg).getAbsolutePath());
+				break;
+			case TT_TYPE:
+				TranspositionTableType transpositionTableType = TranspositionTableType.parse(arg);
+				if (transpositionTableType == null) {
+					logger.warn("illegal commandline parameter for -tttype '{}' - this should be 'lockless' or 'compact'", arg);
+				} else {
+					properties.put(TT_TYPE, transpositionTableType);
+				}
+				break;
+			case TUNE:
+				properties.put(TUNE, new File(arg).getAbsolutePath());
+				break;
+			case TUNE_CHECKPOINT:
+				properties.put(TUNE_CHECKPOINT, new File(arg).getAbsolutePath());
+				break;
+			case TUNE_METHOD:
+				TuningMethod tuningMethod = TuningMethod.parse(arg);
+				if (tuningMethod == null) {
+					logger.warn("illegal commandline parameter for -tunemethod '{}' - this should be 'local' or 'gradient'", arg);
+				} else {
+					properties.put(TUNE_METHOD, tuningMethod);
+				}
+				break;
+			case TT_POLICY:
+				ReplacementPolicy replacementPolicy = ReplacementPolicy.parse(arg);
+				if (replacementPolicy == null) {
+					logger.warn("illegal commandline parameter for -ttpolicy '{}' - this should be 'depthpreferred', 'alwaysreplace', 'twotier' or 'agedepthweighted'", arg);
+				} else {
+					properties.put(TT_POLICY, replacementPolicy);
+				}
+				break;
 			default:
 				//should not get here.
 		}
@@ -200,6 +269,65 @@ public class FWConfig {
 		return String.class.cast(properties.get(EPD));
 	}
 
+	public AttackMode getAttackMode(){
+		return AttackMode.class.cast(properties.get(ATTACK_MODE));
+	}
+
+	/**
+	 * @return the file the transposition table is loaded from and saved to, or null if the table is not kept between sessions
+	 */
+	public String getTTFile(){
+		return String.class.cast(properties.get(TT_FILE));
+	}
+
+	/**
+	 * @return the file that holds the transposition table shared with other engine processes, or null if the table is private
+	 */
+	public String getSharedTTFile(){
+		return String.class.cast(properties.get(TT_SHARED));
+	}
+
+	/**
+	 * @return the layout of a transposition table on the java heap
+	 */
+	public TranspositionTableType getTranspositionTableType(){
+		return TranspositionTableType.class.cast(properties.get(TT_TYPE));
+	}
+
+	/**
+	 * @return the dataset to tune the evaluation with, or null to play
+	 */
+	public String getTuneDataset(){
+		return String.class.cast(properties.get(TUNE));
+	}
+
+	/**
+	 * @return the checkpoint file of the tuning run: the -checkpoint file, or the dataset with '.checkpoint' appended
+	 */
+	public String getTuneCheckpoint(){
+		String checkpoint = String.class.cast(properties.get(TUNE_CHECKPOINT));
+		return checkpoint != null ? checkpoint : getTuneDataset() + ".checkpoint";
+	}
+
+	/**
+	 * @return the way to tune the evaluation with
+	 */
+	public TuningMethod getTuneMethod(){
+		return TuningMethod.class.cast(properties.get(TUNE_METHOD));
+	}
+
+	/**
+	 * @return the number of threads to tune with: the -cores argument, or all available processors
+	 */
+	public int getTuneCores(){
+		Integer cores = Integer.class.cast(properties.get(CORES));
+		return cores != null && cores > 0 ? cores : Runtime.getRuntime().availableProcessors();
+	}
+
+	public ReplacementPolicy getReplacementPolicy(){
+		return ReplacementPolicy.class.cast(properties.get(TT_POLICY));
+	}
+
     private int getMaxTTSize() {
         Runtime rt = Runtime.getRuntime();
         long maxMemory = rt.maxMemory();
@@ -222,16 +350,117 @@ public class FWConfig {
 		try {
 			//to prevent timeouts on the first game
 			Class.forName("com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator");
+			Class.forName("com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams");
 			Class.forName("com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator");
 		} catch (ClassNotFoundException e) {
 			throw new IllegalStateException("class not found", e);
 		}
 	}
 
+	/**
+	 * Create the transposition table shared by all search threads. Tables that are too large for the java heap are allocated
+	 * in native memory, up to half of the physical memory. With -ttshared the table is mapped from a file, to be shared
+	 * with other engine processes. A table on the heap has the layout of -tttype.
+	 */
 	public void setTranspositionTable() {
-		int magnitude = getTTSize(getMaxTTSize());
-		logger.info("initializing TranspositionTables with magnitude {} ({} MB)", magnitude, (1<<(magnitude-16)));
-		smpController.setTranspositionTable(new TranspositionTableQuadArrayImpl(magnitude));
+		int maxHeapMagnitude = getMaxTTSize();
+		int magnitude = getTTSize(Math.max(maxHeapMagnitude, getMaxOffHeapTTSize()));
+		TranspositionTable transpositionTable = null;
+		if (getSharedTTFile() != null) {
+			transpositionTable = mapSharedTranspositionTable(magnitude);
+		}
+		if (transpositionTable != null) {
+			if (getTTFile() != null) {
+				logger.warn("ignoring -ttfile: the shared transposition table in {} is kept by the file itself", getSharedTTFile());
+			}
+		} else if (magnitude > maxHeapMagnitude) {
+			transpositionTable = new TranspositionTableOffHeapImpl(magnitude, getReplacementPolicy());
+		} else if (getTranspositionTableType() == TranspositionTableType.COMPACT) {
+			transpositionTable = new TranspositionTableCompactImpl(magnitude, getReplacementPolicy());
+		} else {
+			transpositionTable = new TranspositionTableLocklessImpl(magnitude, getReplacementPolicy());
+		}
+		logger.info("initializing {} with magnitude {} ({} bytes allocated, {} replacement)", transpositionTable.getClass().getSimpleName(), magnitude, transpositionTable.getSizeInBytes(), getReplacementPolicy());
+		if (transpositionTable.isPersistent()) {
+			loadTranspositionTable(transpositionTable);
+		}
+		smpController.setTranspositionTable(transpositionTable);
+	}
+
+	private TranspositionTable mapSharedTranspositionTable(int magnitude) {
+		try {
+			return new TranspositionTableMappedImpl(magnitude, new File(getSharedTTFile()), getReplacementPolicy());
+		} catch (UncheckedIOException e) {
+			logger.warn("unable to share the transposition table in {}, using a private table", getSharedTTFile(), e);
+			return null;
+		}
+	}
+
+	private void loadTranspositionTable(TranspositionTable transpositionTable) {
+		if (getTTFile() == null || !new File(getTTFile()).exists()) {
+			return;
+		}
+		try {
+			if (transpositionTable.load(new File(getTTFile()))) {
+				logger.info("loaded the transposition table from {}", getTTFile());
+			} else {
+				logger.warn("ignoring {}: it was saved by another engine version or evaluation, or by a table of another size", getTTFile());
+			}
+		} catch (IOException e) {
+			logger.warn("unable to load the transposition table from {}", getTTFile(), e);
+			transpositionTable.clear();
+		}
+	}
+
+	/**
+	 * save the transposition table to the -ttfile, if there is one and the table is persistent (a shared table is kept by
+	 * its file itself). The engine must not be searching.
+	 */
+	public void saveTranspositionTable() {
+		TranspositionTable transpositionTable = smpController.getTranspositionTable();
+		if (getTTFile() == null || transpositionTable == null || !transpositionTable.isPersistent()) {
+			return;
+		}
+		try {
+			transpositionTable.save(new File(getTTFile()));
+			logger.info("saved the transposition table to {}", getTTFile());
+		} catch (IOException e) {
+			logger.warn("unable to save the transposition table to {}", getTTFile(), e);
+		}
+	}
+
+	/**
+	 * @return the largest magnitude of an off heap transposition table, which is allowed to use half of the physical memory
+	 * and the direct memory of the JVM, minus a reserve for its other direct buffers.
+	 */
+	//getTotalPhysicalMemorySize is deprecated since java 14, but its replacement getTotalMemorySize does not exist in java 8
+	@SuppressWarnings("deprecation")
+	private int getMaxOffHeapTTSize() {
+		OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+		if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+			long physicalMemory = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getTotalPhysicalMemorySize();
+			long available = Math.min(physicalMemory / 2, getMaxDirectMemory() - DIRECT_MEMORY_RESERVE);
+			return available > 0 ? BB.msb(available / 8 / 2) : 0;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the -XX:MaxDirectMemorySize of the JVM, which defaults to the maximum heap size
+	 */
+	private long getMaxDirectMemory() {
+		HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+		if (hotSpot != null) {
+			try {
+				long maxDirectMemory = Long.parseLong(hotSpot.getVMOption("MaxDirectMemorySize").getValue());
+				if (maxDirectMemory > 0) {
+					return maxDirectMemory;
+				}
+			} catch (IllegalArgumentException e) {
+				logger.debug("unable to read MaxDirectMemorySize", e);
+			}
+		}
+		return Runtime.getRuntime().maxMemory();
 	}
 
 	public void setAdditionalCores() {
@@ -18,6 +18,7 @@
 package com.winkelhagen.chess.frankwalter.engine;
 
 import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
 import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable;
 
 import java.util.List;
@@ -50,6 +51,14 @@ public interface Engine {
      */
     void setBoard(Board board);
 
+    /**
+     * Evaluate with other evaluation parameters. The board is switched to the same parameters.
+     *
+     * @param evalParams
+     *            the evaluation parameters
+     */
+    void setEvalParams(EvalParams evalParams);
+
     /**
      * Sets the max depth we're going to search to.
      * 
@@ -83,6 +92,13 @@ public interface Engine {
      */
     int getQScore();
 
+    /**
+     * get the moves from this position to the quiet position that the last q-search score comes from, as stored in the
+     * transposition table. Call this right after getQScore.
+     * @return the moves, empty if the score is the evaluation of this position
+     */
+    int[] getQPrincipalVariation();
+
     boolean getShowThinking();
 
     void clearCaches();
@@ -20,9 +20,9 @@ package com.winkelhagen.chess.frankwalter.engine;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import com.winkelhagen.chess.frankwalter.util.Square;
 import com.winkelhagen.chess.frankwalter.engine.evaluator.Seer;
 import com.winkelhagen.chess.frankwalter.engine.moves.FailHighLow;
+import com.winkelhagen.chess.frankwalter.engine.moves.MovePicker;
 import com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator;
 import com.winkelhagen.chess.frankwalter.engine.tb.Syzygy;
 import org.apache.logging.log4j.LogManager;
@@ -31,6 +31,10 @@ import org.apache.logging.log4j.Logger;
 import com.winkelhagen.chess.frankwalter.board.Board;
 import com.winkelhagen.chess.frankwalter.ci.OutputPrinter;
 import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.MaterialTable;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalCache;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.PawnHashTable;
 import com.winkelhagen.chess.frankwalter.engine.moves.ThoughtLine;
 import com.winkelhagen.chess.frankwalter.engine.tt.Entry;
 import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable;
@@ -79,6 +83,9 @@ public class ScoutEngineImpl implements Engine {
      * Window for the Aspiration Search (small bounds close to guessed score of the position)
      */
     private static final int ASPIRATION_WINDOW = 25;
+    private static final int PAWN_HASH_MAGNITUDE = 14;
+    private static final int MATERIAL_TABLE_MAGNITUDE = 10;
+    private static final int EVAL_CACHE_MAGNITUDE = 16;
     public static final Object SYNC_OBJECT = new Object();
 
     /*
@@ -86,6 +93,10 @@ public class ScoutEngineImpl implements Engine {
      */
     private Board board;
     private TranspositionTable tt = new TranspositionTableDummy();
+    private PawnHashTable pawnHashTable = new PawnHashTable(PAWN_HASH_MAGNITUDE);
+    private MaterialTable materialTable = new MaterialTable(MATERIAL_TABLE_MAGNITUDE);
+    private EvalCache evalCache = new EvalCache(EVAL_CACHE_MAGNITUDE);
+    private Evaluator evaluator = new Evaluator(EvalParams.DEFAULT);
 
     /*
      * For reasons of performance we reuse the same memory for generated moves throughout the game. We need one array of
@@ -120,8 +131,14 @@ public class ScoutEngineImpl implements Engine {
     private int[] principalVariation;
     private int[] killer1;
     private int[] killer2;
-    private int[][] history = new int[2][4096];
-    private int[][] historyBetaCut = new int[2][4096];
+    private final int[][] history = new int[2][4096];
+    private final int[][] historyBetaCut = new int[2][4096];
+    private final MovePicker[] movePickers = new MovePicker[ABSOLUTE_MAX_DEPTH];
+    {
+        for (int i = 0; i < ABSOLUTE_MAX_DEPTH; i++) {
+            movePickers[i] = new MovePicker(history, historyBetaCut);
+        }
+    }
 
     /*
      * flags used in the engine hardStopEngine if it becomes true: stop the engine as quickly as possible. (mate move found,
@@ -144,6 +161,10 @@ public class ScoutEngineImpl implements Engine {
      * for statistics pertaining the whole search of this position
      */
     private SearchStatistics statistics = null;
+    /*
+     * the counters of this search thread, aggregated by the statistics
+     */
+    private final SearchCounters counters = new SearchCounters();
 
     private ThoughtLine lastThoughtLine;
     private int[] bestMove = new int[ABSOLUTE_MAX_DEPTH];
@@ -172,6 +193,8 @@ public class ScoutEngineImpl implements Engine {
 
         // initialize Statistics - at the real root of our tree.
         this.statistics = statistics;
+        counters.reset();
+        statistics.register(counters);
         lastThoughtLine = null;
         tt.increaseAge();
 
@@ -272,6 +295,7 @@ public class ScoutEngineImpl implements Engine {
             searchDepths.get(searchThreadId).set(currentDepth);
         }
         hardStopEngine = true;
+        collectEvalCacheStatistics();
 
         // set stopengine because we're done for now.
         // Return the best move.
@@ -309,7 +333,7 @@ public class ScoutEngineImpl implements Engine {
         mapTTonPV(list.get(0).getMove(), 0);
         return new ThoughtLine(currentDepth,
                 System.currentTimeMillis() - statistics.starttime,
-                statistics.nodecount + statistics.qnodecount, list.get(0), principalVariation, null);
+                statistics.getTotalNodeCount(), list.get(0), principalVariation, null);
     }
 
     private int checkForMate(List<ScoredMove> list) {
@@ -406,7 +430,7 @@ public class ScoutEngineImpl implements Engine {
         // searchIteration is increased to make clear that scores recorded in this call to startPVS are more accurate
         // than those recorded in previous calls
         searchIteration++;
-        statistics.nodecount++;
+        counters.nodecount++;
         boolean isExact = false;
 
         // Loop through all moves (if we search within a window, we cut-off at a score equal or exceeding beta)
@@ -459,7 +483,7 @@ public class ScoutEngineImpl implements Engine {
                     mapTTonPV(move.getMove(), 0);
                     lastThoughtLine = new ThoughtLine(currentDepth,
                             System.currentTimeMillis() - statistics.starttime,
-                            statistics.nodecount + statistics.qnodecount, move, principalVariation, determineFailHighLow(score, alpha, beta));
+                            statistics.getTotalNodeCount(), move, principalVariation, determineFailHighLow(score, alpha, beta));
                     if (showThinking) {
                         OutputPrinter.printObjectOutput(lastThoughtLine);
                     }
@@ -467,8 +491,8 @@ public class ScoutEngineImpl implements Engine {
                 // if the score is equal to, or exceeds, beta we can cut-off now!
                 if (score >= beta) {
                     Collections.sort(list);
-                    statistics.betacut++;
-                    tt.setEntry(board.getHashKey(), score, (short)selectiveSearchDepth, list.get(0).getMove(), Entry.FAIL_HIGH, 0);
+                    counters.betacut++;
+                    countStore(tt.setEntry(board.getHashKey(), score, (short)selectiveSearchDepth, list.get(0).getMove(), Entry.FAIL_HIGH, 0));
                     return;
                 }
                 alpha = score;
@@ -479,9 +503,9 @@ public class ScoutEngineImpl implements Engine {
         // Before we finish, we sort the moves based on score, only looking at the most current scores
         Collections.sort(list);
         if (isExact) {
-            tt.setEntry(board.getHashKey(), alpha, (short)selectiveSearchDepth, list.get(0).getMove(), Entry.EXACT, 0);
+            countStore(tt.setEntry(board.getHashKey(), alpha, (short)selectiveSearchDepth, list.get(0).getMove(), Entry.EXACT, 0));
         } else {
-            tt.setEntry(board.getHashKey(), alpha, (short)selectiveSearchDepth, Constants.SAVE_BEST_FAIL_LOW?list.get(0).getMove():0, Entry.FAIL_LOW, 0);
+            countStore(tt.setEntry(board.getHashKey(), alpha, (short)selectiveSearchDepth, Constants.SAVE_BEST_FAIL_LOW?list.get(0).getMove():0, Entry.FAIL_LOW, 0));
         }
 
         // in case of only one move, do it.
@@ -515,11 +539,11 @@ public class ScoutEngineImpl implements Engine {
      * @return the score of the position.
      */
     private int recurse(int depth, int alphaInput, int betaInput) {
-        statistics.nodecount++;
+        counters.nodecount++;
         int alpha = alphaInput;
         int beta = betaInput;
 
-        if (board.checkForSingleRepetitions()) {
+        if (board.checkForSingleRepetitions() || MaterialTable.isDeadDraw(board.getMaterialKey())) {
             return Evaluator.getContemptScore();
         }
 
@@ -527,7 +551,7 @@ public class ScoutEngineImpl implements Engine {
             // search normally when the search started with the same number of pieces as we have now - an indication that there is no DTZ file
             int result = Syzygy.probeWDL(board);
             if (result!=-1){
-                statistics.tbhits++;
+                counters.tbhits++;
                 return Syzygy.getWDLScore(result, depth);
             }
         }
@@ -537,20 +561,22 @@ public class ScoutEngineImpl implements Engine {
 
         // Depth to search is 0 or negative: enter quiescence
         if (depthToSearch <= 0) {
-            statistics.nodecount--;
+            counters.nodecount--;
             return recurseQuiet(alpha, beta, depth);
         }
 
         // Search TT (for direct cut-offs, narrowed bounds and/or a hashMove)
         int hashMove = 0;
         long entry = tt.getEntry(board.getHashKey());
+        counters.ttprobes++;
         if (entry != 0) {
+            counters.ttfound++;
             hashMove = Entry._move(entry);
 
             // TODO: idea: don't trust FAIL_LOW or FAIL_HIGH when it is equal to the previous aspiration search result
             // when not in aspiration search
             if (Entry._depth(entry) >= depthToSearch) {
-                statistics.tthits++;
+                counters.tthits++;
                 byte type = Entry._type(entry);
                 short entryScore = Entry._score(entry, depth);
                 if (type == Entry.EXACT) {
@@ -572,9 +598,9 @@ public class ScoutEngineImpl implements Engine {
                         alpha = entryScore;
                     }
                 }
-                statistics.tthits--;
+                counters.tthits--;
             } else {
-                statistics.ttfails++;
+                counters.ttfails++;
             }
         }
 
@@ -585,50 +611,48 @@ public class ScoutEngineImpl implements Engine {
             long iidEntry = tt.getEntry(board.getHashKey());
             if (iidEntry != 0) {
                 hashMove = Entry._move(iidEntry);
-                statistics.iddcount++;
+                counters.iddcount++;
             }
         }
 
-        int[] moves = movesTable[depth];
-        int movesNr;
+        MovePicker movePicker = movePickers[depth];
         int score;
         int extend = 0;
+        int firstMove;
 
         // Are we in (avoidable?) check? Generate different moves.
         int kingAttacker = StaticMoveGenerator.getKingAttacker(board, board.getSideToMove() ^ 1);
         if (kingAttacker != Constants.NO_SQUARE) {
             extend += CHECK_EXTENSION;
-            movesNr = StaticMoveGenerator.generateOutOfCheckMoves(board, kingAttacker, moves);
+            int movesNr = movePicker.initEvasions(board, kingAttacker, hashMove, killer1[depth], killer2[depth]);
             if (movesNr == 0) {
                 return MATED + depth;
             }
+            // Extend search when there are few options (forced moves)
+            if (movesNr == 1) {
+                extend += 7;
+            } else if (movesNr == 2) {
+                extend += 2;
+            }
+            firstMove = movePicker.next();
         } else {
-            movesNr = StaticMoveGenerator.generateMoves(board, moves);
-            // check for stalemate
-            if (movesNr == 0) {
+            // moves are generated in stages: pick the first move before the null move, so that a stalemate is not pruned
+            // (the null move search uses the pickers of the next plies, so this one keeps its state)
+            movePicker.init(board, hashMove, killer1[depth], killer2[depth]);
+            firstMove = movePicker.next();
+            if (firstMove == 0) {
                 return Evaluator.getContemptScore();
             }
             if (allowNullMove(depth)) {
                 score = tryNullMove(depth, beta);
-                statistics.nullMoveTries++;
+                counters.nullMoveTries++;
                 if (score >= beta) {
                     // in a fail-hard AB: score==beta
-                    statistics.betacut++;
-                    statistics.nullMoves++;
+                    counters.betacut++;
+                    counters.nullMoves++;
                     return beta; //used to be score
                 }
             }
-
-        }
-
-        // promote hashMove
-        orderMoves(board, movesNr, moves, hashMove, killer1[depth], killer2[depth]);
-
-        // Extend search when there are few options (forced moves)
-        if (movesNr == 1) {
-            extend += 7;
-        } else if (movesNr == 2) {
-            extend += 2;
         }
 
         boolean isExact = false;
@@ -636,8 +660,8 @@ public class ScoutEngineImpl implements Engine {
         int bestScoreSoFar = -INFINITY;
 
         // Loop through the moves
-        for (int moveNumber = 0; moveNumber < movesNr; moveNumber++) {
-            int move = MV.stripScore(moves[moveNumber]);
+        int moveNumber = 0;
+        for (int move = firstMove; move != 0; move = movePicker.next(), moveNumber++) {
             selectiveSearchDepth += extend;
             int lmr = 0;
             board.doMove(move);
@@ -671,14 +695,14 @@ public class ScoutEngineImpl implements Engine {
 
             // update alpha, check beta
             if (score > bestScoreSoFar) {
-                bestMoveSoFar = moves[moveNumber] & (1<<19)-1;
+                bestMoveSoFar = move;
                 bestScoreSoFar = score;
                 if (score > alpha) {
                     isExact = true;
                     if (score >= beta) {
                         // in a fail-hard AB: score==beta
-                        statistics.betacut++;
-                        tt.setEntry(board.getHashKey(), score, depthToSearch, bestMoveSoFar, Entry.FAIL_HIGH, depth);
+                        counters.betacut++;
+                        countStore(tt.setEntry(board.getHashKey(), score, depthToSearch, bestMoveSoFar, Entry.FAIL_HIGH, depth));
                         setKiller(depth, move, selDepth);
                         return score;
                     }
@@ -692,9 +716,9 @@ public class ScoutEngineImpl implements Engine {
             }
         }
         if (isExact) {
-            tt.setEntry(board.getHashKey(), bestScoreSoFar, depthToSearch, bestMoveSoFar, Entry.EXACT, depth);
+            countStore(tt.setEntry(board.getHashKey(), bestScoreSoFar, depthToSearch, bestMoveSoFar, Entry.EXACT, depth));
         } else {
-            tt.setEntry(board.getHashKey(), bestScoreSoFar, depthToSearch, Constants.SAVE_BEST_FAIL_LOW?bestMoveSoFar:0, Entry.FAIL_LOW, depth);
+            countStore(tt.setEntry(board.getHashKey(), bestScoreSoFar, depthToSearch, Constants.SAVE_BEST_FAIL_LOW?bestMoveSoFar:0, Entry.FAIL_LOW, depth));
         }
         return bestScoreSoFar;
 
@@ -771,27 +795,33 @@ public class ScoutEngineImpl implements Engine {
     private int recurseQuiet(int alphaInput, int betaInput, int depth) {
         int alpha = alphaInput;
         int beta = betaInput;
+        if (MaterialTable.isDeadDraw(board.getMaterialKey())) {
+            return Evaluator.getContemptScore();
+        }
         //todo should we use this? (https://www.chessprogramming.org/Syzygy_Bases#During_the_Search)
         if (Constants.USE_TB && Syzygy.isAvailable(board.getPieceCount()) && board.getPieceCount()<piecesAtRoot){
             // search normally when the search started with the same number of pieces as we have now - an indication that there is no DTZ file
             int result = Syzygy.probeWDL(board);
             if (result!=-1){
-                statistics.tbhits++;
+                counters.tbhits++;
                 return Syzygy.getWDLScore(result, depth);
             }
         }
-        statistics.qnodecount++;
+        counters.qnodecount++;
         int[] moves = movesTable[depth];
         int movesNr;
         int bestScore = -INFINITY;
 
         int hashMove = 0;
+        int staticEval = Entry.NO_EVAL;
         if (Constants.TT_IN_QSEARCH) {
             long entry = tt.getEntry(board.getHashKey());
+            counters.ttprobes++;
             if (entry != 0) {
+                counters.ttfound++;
                 hashMove = Entry._move(entry);
 
-                statistics.tthits++;
+                counters.tthits++;
                 byte type = Entry._type(entry);
                 short entryScore = Entry._score(entry, depth);
                 if (type == Entry.EXACT) {
@@ -813,30 +843,41 @@ public class ScoutEngineImpl implements Engine {
                         alpha = entryScore;
                     }
                 }
-                statistics.tthits--;
+                counters.tthits--;
+                staticEval = tt.getStaticEval(board.getHashKey());
             }
         }
 
         // Are we in (avoidable?) check?
+        MovePicker evasionPicker = null;
         int kingAttacker = StaticMoveGenerator.getKingAttacker(board, board.getSideToMove() ^ 1);
         if (kingAttacker != Constants.NO_SQUARE) {
-            movesNr = StaticMoveGenerator.generateOutOfCheckMoves(board, kingAttacker, moves);
+            evasionPicker = movePickers[depth];
+            movesNr = evasionPicker.initEvasions(board, kingAttacker, hashMove, 0, 0);
             if (movesNr == 0) {
                 return MATE_IN_Q + depth;
             }
 
             //todo: how do we deal with continuous checks? by not generating checks?
-            orderMoves(board, movesNr, moves, hashMove, 0, 0);
             // Else check how good standing pat is and generate captures.
         } else {
             // option: introduce SideToMove bonus.
 
             //todo: impose restrictions on when to use lazy eval. (if it is used)
-            int patScore = Evaluator.eval(board, alpha, beta);
+            // the evaluation depends on the 50 move counter near the 50 move edge, which is not part of the hashKey.
+            boolean evalIsCacheable = board.getQuiet50() < 80;
+            int patScore;
+            if (staticEval != Entry.NO_EVAL && evalIsCacheable) {
+                patScore = staticEval;
+            } else {
+                patScore = evaluator.eval(board, alpha, beta, pawnHashTable, materialTable, evalCache);
+                // lazy eval only returns bounds outside the window: a score inside it is the full evaluation.
+                staticEval = evalIsCacheable && patScore > alpha && patScore < beta ? patScore : Entry.NO_EVAL;
+            }
             if (patScore >= beta) {
-                statistics.qbetacut++;
+                counters.qbetacut++;
                 if (Constants.TT_IN_QSEARCH) {
-                    tt.setEntry(board.getHashKey(), patScore, (short) 0, 0, Entry.FAIL_HIGH, depth);
+                    countStore(tt.setEntry(board.getHashKey(), patScore, (short) 0, 0, Entry.FAIL_HIGH, depth, staticEval));
                 }
                 return patScore;
             }
@@ -852,7 +893,7 @@ public class ScoutEngineImpl implements Engine {
         int bestMoveSoFar = 0;
         boolean isExact = false;
         for (int i = 0; i < movesNr; i++) {
-            int move = MV.stripScore(moves[i]);
+            int move = evasionPicker != null ? evasionPicker.next() : MV.stripScore(moves[i]);
             board.doMove(move);
 
             // if we're in check after the move, then it's not a good move. Else recurse.
@@ -864,9 +905,9 @@ public class ScoutEngineImpl implements Engine {
                 bestMoveSoFar = move;
                 if (score > alpha) {
                     if (score >= beta) {
-                        statistics.qbetacut++;
+                        counters.qbetacut++;
                         if (Constants.TT_IN_QSEARCH) {
-                            tt.setEntry(board.getHashKey(), score, (short) 0, bestMoveSoFar, Entry.FAIL_HIGH, depth);
+                            countStore(tt.setEntry(board.getHashKey(), score, (short) 0, bestMoveSoFar, Entry.FAIL_HIGH, depth, staticEval));
                         }
                         return score;
                     }
@@ -878,9 +919,9 @@ public class ScoutEngineImpl implements Engine {
         }
         if (Constants.TT_IN_QSEARCH) {
             if (isExact){
-                tt.setEntry(board.getHashKey(), bestScore, (short) 0, bestMoveSoFar, Entry.EXACT, depth);
+                countStore(tt.setEntry(board.getHashKey(), bestScore, (short) 0, bestMoveSoFar, Entry.EXACT, depth, staticEval));
             } else{
-                tt.setEntry(board.getHashKey(), bestScore, (short) 0, Constants.SAVE_BEST_FAIL_LOW?bestMoveSoFar:0, Entry.FAIL_LOW, depth);
+                countStore(tt.setEntry(board.getHashKey(), bestScore, (short) 0, Constants.SAVE_BEST_FAIL_LOW?bestMoveSoFar:0, Entry.FAIL_LOW, depth, staticEval));
             }
         }
 
@@ -947,6 +988,17 @@ public class ScoutEngineImpl implements Engine {
     @Override
     public void setBoard(Board board) {
         this.board = board;
+        if (board.getEvalParams() != evaluator.getParams()) {
+            board.setEvalParams(evaluator.getParams());
+        }
+    }
+
+    @Override
+    public void setEvalParams(EvalParams evalParams) {
+        evaluator = new Evaluator(evalParams);
+        if (board != null) {
+            board.setEvalParams(evalParams);
+        }
     }
 
     @Override
@@ -962,13 +1014,44 @@ public class ScoutEngineImpl implements Engine {
         if (this.tt != null) {
             this.tt.clear();
         }
+        clearThreadCaches();
+    }
+
+    /**
+     * clears the caches that belong to this engine only, leaving the (possibly shared) transposition table alone.
+     */
+    public void clearThreadCaches(){
+        pawnHashTable.clear(pawnHashTable.getGeneration());
+        materialTable.clear(materialTable.getGeneration());
+        evalCache.clear(evalCache.getGeneration());
         clearHistory();
     }
 
+    /**
+     * count the overwrites of the transposition table
+     * @param result the result of TranspositionTable.setEntry
+     */
+    private void countStore(int result) {
+        if (result == TranspositionTable.STORED_SAME_KEY) {
+            counters.ttsamekey++;
+        } else if (result == TranspositionTable.STORED_FOREIGN) {
+            counters.ttforeign++;
+        }
+    }
+
+    private void collectEvalCacheStatistics() {
+        statistics.addPawnHashStatistics(pawnHashTable.getProbes(), pawnHashTable.getHits());
+        pawnHashTable.resetStatistics();
+        statistics.addMaterialTableStatistics(materialTable.getProbes(), materialTable.getHits());
+        materialTable.resetStatistics();
+        statistics.addEvalCacheStatistics(evalCache.getProbes(), evalCache.getHits());
+        evalCache.resetStatistics();
+    }
+
     @Override
     public void printStatistics() {
         logger.info(historyStatistics());
-        logger.info("nodecout: {}", statistics.nodecount);
+        logger.info("nodecout: {}", statistics.getNodeCount());
     }
 
     public SearchStatistics getStatistics() {
@@ -978,7 +1061,30 @@ public class ScoutEngineImpl implements Engine {
     @Override
     public int getQScore() {
         statistics = new SearchStatistics();
-        return recurseQuiet(-INFINITY, +INFINITY, 0);
+        counters.reset();
+        statistics.register(counters);
+        int score = recurseQuiet(-INFINITY, +INFINITY, 0);
+        pawnHashTable.resetStatistics();
+        materialTable.resetStatistics();
+        evalCache.resetStatistics();
+        return score;
+    }
+
+    @Override
+    public int[] getQPrincipalVariation() {
+        // only exact entries are on the principal variation: a quiet position stores its stand pat as a fail low without a move.
+        int[] moves = new int[ABSOLUTE_MAX_DEPTH];
+        int length = 0;
+        long entry = tt.getEntry(board.getHashKey());
+        while (entry != 0 && Entry._type(entry) == Entry.EXACT && Entry._move(entry) != 0 && length < moves.length) {
+            moves[length++] = Entry._move(entry);
+            board.doMove(Entry._move(entry));
+            entry = tt.getEntry(board.getHashKey());
+        }
+        for (int i = 0; i < length; i++) {
+            board.undoMove();
+        }
+        return Arrays.copyOf(moves, length);
     }
 
     @Override
@@ -1032,34 +1138,16 @@ public class ScoutEngineImpl implements Engine {
 
     }
 
-    private void orderMoves(Board board, int movesNr, int[] moves, int hashMove, int killer1, int killer2) {
-        for (int i = 0; i < movesNr; i++) {
-            if (moves[i] == hashMove) {
-                moves[i] = MV.setScore(moves[i], Evaluator.HASHSCORE);
-            } else if (moves[i] == killer1) {
-                moves[i] = MV.setScore(moves[i], Evaluator.KILLERSCORE);
-            } else if (moves[i] == killer2) {
-                moves[i] = MV.setScore(moves[i], Evaluator.KILLERSCORE - 1);
-            } else {
-                moves[i] = MV.setScore(moves[i], getScore(board, moves[i]));
-            }
-        }
-        sortMoves(moves, movesNr);
-    }
-
 
     private int orderUnquietMoves(Board board, int hashMove, int movesNr, int[] moves) {
         int positiveCaptures = 0;
-        int score;
         for (int i = 0; i < movesNr; i++) {
             if (moves[i] == hashMove) {
-                score = Evaluator.HASHSCORE;
-            } else {
-                score = getQuiesceScore(board, moves[i]);
-            }
-            if (score >= 0) {
                 positiveCaptures++;
-                moves[i] = MV.setScore(moves[i], score+1);
+                moves[i] = MV.setScore(moves[i], Evaluator.HASHSCORE);
+            } else if (Seer.seeGreaterOrEqual(moves[i], board, 0)) {
+                positiveCaptures++;
+                moves[i] = MV.setScore(moves[i], MovePicker.getCaptureScore(board, moves[i]));
             } else {
                 moves[i] = 0;
             }
@@ -1067,51 +1155,4 @@ public class ScoutEngineImpl implements Engine {
         sortMoves(moves, movesNr);
         return positiveCaptures;
     }
-
-    private int getQuiesceScore(Board board, int move) {
-        return Seer.see(move, board);
-    }
-
-    private int getScore(Board board, int move) {
-        int fromTo = MV.getFromTo(move);
-        int to = MV.getToSquare(move);
-        int capture = board.getSquares()[to];
-        int score = 0;
-        int sideToMove = board.getSideToMove();
-        if (capture != 0) { // misses en passant captures
-            int see = Seer.see(move, board);
-            if (see>=0) {
-                score+=Evaluator.CAPTURESCORE+see;
-            } else {
-                score+=Evaluator.KILLERSCORE-1+see;
-            }
-        } else {
-
-            int divider = history[sideToMove][fromTo];
-            if (divider!=0) {
-                //Relative History Heuristic (as seen in chess22k)
-                score = 100 * historyBetaCut[sideToMove][fromTo] / divider; //+100?  //+2?
-            } else {
-                int from = MV.getFromSquare(move);
-                int piece = board.getSquares()[from];
-                score = Evaluator.MOVE_PCSQ[piece - 1][Square.relative(to, sideToMove)] - Evaluator.MOVE_PCSQ[piece - 1][Square.relative(from, sideToMove)];
-            }
-
-
-            if ((board.getPieces()[sideToMove ^ 1][Constants.ALL] & board.getAttacked()[to]) != 0) {
-                score -= 10;
-            }
-            score+=100;
-        }
-        if (MV.getPromotion(move) != Constants.EMPTY) {
-            if (MV.getPromotion(move) == Constants.QUEEN) {
-                if (capture == 0) {
-                    score = Evaluator.CAPTURESCORE + 6;
-                }
-            } else {
-                score = 0;
-            }
-        }
-        return score;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine;
+
+/**
+ * The search counters of a single search thread. Only the owning thread writes them, so plain increments suffice;
+ * other threads read them when SearchStatistics aggregates. The counters are padded on both sides (through the class
+ * hierarchy, as the JVM keeps superclass fields first) so that no two threads write to the same cache line.
+ */
+final class SearchCounters extends SearchCountersFields {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+
+    void reset() {
+        nodecount = 0;
+        betacut = 0;
+        qnodecount = 0;
+        qbetacut = 0;
+        tthits = 0;
+        ttfails = 0;
+        ttprobes = 0;
+        ttfound = 0;
+        ttsamekey = 0;
+        ttforeign = 0;
+        iddcount = 0;
+        tbhits = 0;
+        nullMoves = 0;
+        nullMoveTries = 0;
+    }
+}
+
+abstract class SearchCountersPadding {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SearchCountersFields extends SearchCountersPadding {
+    long nodecount;
+    long betacut;
+    long qnodecount;
+    long qbetacut;
+    long tthits;
+    long ttfails;
+    long ttprobes;
+    long ttfound;
+    long ttsamekey;
+    long ttforeign;
+    long iddcount;
+    long tbhits;
+    long nullMoves;
+    long nullMoveTries;
+}
@@ -17,9 +17,10 @@
  */
 package com.winkelhagen.chess.frankwalter.engine;
 
-import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,23 +29,153 @@ import com.winkelhagen.chess.frankwalter.engine.moves.ThoughtLine;
 
 /**
  * Class holding some numbers describing the statistics of the search.
+ * Every search thread counts in its own SearchCounters; the totals are aggregated on demand.
  */
 public class SearchStatistics {
 
     private static final Logger LOG = LogManager.getLogger();
 
-    volatile int nodecount;
-    volatile int betacut;
-    volatile int qnodecount;
-    volatile int qbetacut;
-    volatile int tthits;
-    volatile int ttfails;
     long starttime = System.currentTimeMillis();
-    volatile int iddcount;
-    volatile int tbhits;
 
-    volatile int nullMoves;
-    volatile int nullMoveTries;
+    private final List<SearchCounters> threadCounters = new CopyOnWriteArrayList<>();
+
+    private int pawnprobes;
+    private int pawnhits;
+    private int materialprobes;
+    private int materialhits;
+    private long evalprobes;
+    private long evalhits;
+
+    /**
+     * add the counters of a search thread to these statistics
+     * @param counters the counters of the search thread
+     */
+    void register(SearchCounters counters) {
+        threadCounters.add(counters);
+    }
+
+    private long sum(ToLongFunction<SearchCounters> counter) {
+        long total = 0;
+        for (SearchCounters counters : threadCounters) {
+            total += counter.applyAsLong(counters);
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of main search and quiescence search nodes over all search threads
+     */
+    public long getTotalNodeCount() {
+        return sum(counters -> counters.nodecount + counters.qnodecount);
+    }
+
+    public long getNodeCount() {
+        return sum(counters -> counters.nodecount);
+    }
+
+    public long getQNodeCount() {
+        return sum(counters -> counters.qnodecount);
+    }
+
+    /**
+     * @return the number of transposition table lookups that ended the search of a node, over all search threads
+     */
+    public long getTTHits() {
+        return sum(counters -> counters.tthits);
+    }
+
+    /**
+     * @return the number of transposition table lookups in the main and quiescence search, over all search threads
+     */
+    public long getTTProbes() {
+        return sum(counters -> counters.ttprobes);
+    }
+
+    /**
+     * @return the number of transposition table lookups that found an entry, over all search threads
+     */
+    public long getTTFound() {
+        return sum(counters -> counters.ttfound);
+    }
+
+    /**
+     * @return the number of stores that overwrote an entry of the same position, over all search threads
+     */
+    public long getTTSameKeyOverwrites() {
+        return sum(counters -> counters.ttsamekey);
+    }
+
+    /**
+     * @return the number of stores that overwrote an entry of a different position, over all search threads
+     */
+    public long getTTForeignOverwrites() {
+        return sum(counters -> counters.ttforeign);
+    }
+
+    /**
+     * @param hashfull the permille of the transposition table in use
+     * @return a single line describing the transposition table usage of this search
+     */
+    public String getTTStatistics(int hashfull) {
+        long probes = getTTProbes();
+        long found = getTTFound();
+        return String.format("tt hashfull %d probes %d hits %d (%d permille) cutoffs %d overwrites same %d foreign %d",
+                hashfull, probes, found, probes == 0 ? 0 : found * 1000 / probes, getTTHits(),
+                getTTSameKeyOverwrites(), getTTForeignOverwrites());
+    }
+
+    /**
+     * @return the number of nodes per second over all search threads since the start of the search
+     */
+    public long getNodesPerSecond() {
+        long duration = System.currentTimeMillis() - starttime;
+        return duration == 0 ? 0 : getTotalNodeCount() * 1000 / duration;
+    }
+
+    /**
+     * add the pawn hash table usage of a search thread
+     * @param probes the number of lookups
+     * @param hits the number of lookups that found a score
+     */
+    public synchronized void addPawnHashStatistics(int probes, int hits) {
+        pawnprobes += probes;
+        pawnhits += hits;
+    }
+
+    /**
+     * add the material table usage of a search thread
+     * @param probes the number of lookups
+     * @param hits the number of lookups that found the material information
+     */
+    public synchronized void addMaterialTableStatistics(int probes, int hits) {
+        materialprobes += probes;
+        materialhits += hits;
+    }
+
+    /**
+     * add the evaluation cache usage of a search thread
+     * @param probes the number of lookups
+     * @param hits the number of lookups that found a score
+     */
+    public synchronized void addEvalCacheStatistics(int probes, int hits) {
+        evalprobes += probes;
+        evalhits += hits;
+    }
+
+    public synchronized long getEvalCacheProbes() {
+        return evalprobes;
+    }
+
+    public synchronized long getEvalCacheHits() {
+        return evalhits;
+    }
+
+    /**
+     * @return the permille of evaluation cache lookups that found a score
+     */
+    public synchronized int getEvalCacheHitRate() {
+        return evalprobes == 0 ? 0 : (int) (evalhits * 1000 / evalprobes);
+    }
 
     /**
      * stop statistics and log them
@@ -54,13 +185,18 @@ public class SearchStatistics {
     public void stop(String move) {
         long duration = new GregorianCalendar().getTimeInMillis() - starttime;
         if (LOG.isDebugEnabled()) {
-            LOG.debug("Found move {} in {} millis.", move, duration);
-            LOG.debug("Nodecount: {}: (with {} betacuts).", nodecount, betacut);
-            LOG.debug("Quietnodes: {} with {} betacuts.", qnodecount, qbetacut);
-            LOG.debug("TranspositionTable: +{}/-{}.", tthits, ttfails);
-            LOG.debug("Tablebase hits: {}",tbhits);
-            LOG.debug("IDD Count: {}.", iddcount);
-            LOG.debug("Nullmoves: {}/{}.", nullMoves, nullMoveTries);
+            LOG.debug("Found move {} in {} millis ({} nps).", move, duration, getNodesPerSecond());
+            LOG.debug("Nodecount: {}: (with {} betacuts).", getNodeCount(), sum(counters -> counters.betacut));
+            LOG.debug("Quietnodes: {} with {} betacuts.", getQNodeCount(), sum(counters -> counters.qbetacut));
+            LOG.debug("TranspositionTable: +{}/-{}.", sum(counters -> counters.tthits), sum(counters -> counters.ttfails));
+            LOG.debug("Tablebase hits: {}", sum(counters -> counters.tbhits));
+            LOG.debug("IDD Count: {}.", sum(counters -> counters.iddcount));
+            LOG.debug("Nullmoves: {}/{}.", sum(counters -> counters.nullMoves), sum(counters -> counters.nullMoveTries));
+            synchronized (this) {
+                LOG.debug("Pawn hash: {} hits / {} probes.", pawnhits, pawnprobes);
+                LOG.debug("Material table: {} hits / {} probes.", materialhits, materialprobes);
+                LOG.debug("Eval cache: {} hits / {} probes ({} permille).", evalhits, evalprobes, getEvalCacheHitRate());
+            }
         }
     }
 
@@ -0,0 +1,98 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * direct mapped cache for full evaluations, keyed by the hash key of the board.
+ * Each entry is a single long: the upper 48 bits of the hash key and the score in the lower 16 bits.
+ * Only full evaluations are stored, never the bounds returned by lazy eval.
+ * Not thread safe: each search thread has its own table.
+ */
+public class EvalCache {
+
+    private static final long KEY_MASK = ~0xFFFFL;
+
+    private final long[] entries;
+    private final int mask;
+    private int generation = -1;
+
+    private int probes;
+    private int hits;
+
+    /**
+     * @param magnitude the table holds 2^magnitude entries
+     */
+    public EvalCache(int magnitude) {
+        entries = new long[1 << magnitude];
+        mask = (1 << magnitude) - 1;
+    }
+
+    /**
+     * @param hashKey the hash key of the board
+     * @return true if the table holds a score for the hash key. Use getScore to retrieve it.
+     */
+    public boolean contains(long hashKey) {
+        probes++;
+        if ((entries[(int) hashKey & mask] & KEY_MASK) == (hashKey & KEY_MASK)) {
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    public int getScore(long hashKey) {
+        return (short) entries[(int) hashKey & mask];
+    }
+
+    public void store(long hashKey, int score) {
+        entries[(int) hashKey & mask] = (hashKey & KEY_MASK) | (score & 0xFFFF);
+    }
+
+    /**
+     * the generation of the evaluation weights the scores in this table were calculated with
+     * @return the generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * remove all scores from the table.
+     * @param generation the generation of the evaluation weights new scores will be calculated with
+     */
+    public void clear(int generation) {
+        //an empty slot only matches a hash key of which the upper 48 bits are 0, for which it returns a score of 0.
+        Arrays.fill(entries, 0L);
+        this.generation = generation;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+}
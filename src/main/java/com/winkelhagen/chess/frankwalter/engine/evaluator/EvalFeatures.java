@@ -0,0 +1,92 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+/**
+ * the evaluation of a position as a sparse linear function of the tuning weights (see Evaluator.extractFeatures):
+ * the score for other weights is the score for the weights the features were extracted with, plus the sum of the
+ * coefficients times the changes of the weights. All scores are from the perspective of white.
+ */
+public final class EvalFeatures {
+
+    private final int eval;
+    private final int phase;
+    private final short[] indices;
+    private final float[] coefficients;
+
+    /**
+     * @param eval the score for the weights the features were extracted with
+     * @param phase the phase of the position (see Board.getPhase)
+     * @param coefficients the coefficient of each weight, mostly 0
+     * @param scale the factor to apply to all coefficients
+     */
+    EvalFeatures(int eval, int phase, double[] coefficients, double scale) {
+        this.eval = eval;
+        this.phase = phase;
+        int size = 0;
+        for (double coefficient : coefficients) {
+            if (coefficient * scale != 0) {
+                size++;
+            }
+        }
+        this.indices = new short[size];
+        this.coefficients = new float[size];
+        int feature = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] * scale != 0) {
+                indices[feature] = (short) i;
+                this.coefficients[feature++] = (float) (coefficients[i] * scale);
+            }
+        }
+    }
+
+    /**
+     * @param delta the change of each weight, relative to the weights the features were extracted with
+     * @return the score for the changed weights
+     */
+    public double evaluate(double[] delta) {
+        double score = eval;
+        for (int i = 0; i < indices.length; i++) {
+            score += coefficients[i] * delta[indices[i]];
+        }
+        return score;
+    }
+
+    public int getEval() {
+        return eval;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the number of weights with a coefficient
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    public int getIndex(int feature) {
+        return indices[feature];
+    }
+
+    public float getCoefficient(int feature) {
+        return coefficients[feature];
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.Square;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * immutable set of evaluation parameters: the base values below with a vector of tuning weights applied.
+ * All parameters are flattened into one int[] for locality. An Evaluator and the Boards it evaluates share one instance,
+ * so several parameter sets can be evaluated concurrently and a search thread never sees a half applied update.
+ */
+public final class EvalParams {
+
+    public static final int PARAMETER_COUNT = 411;
+    public static final int PCSQ_PRECISION = 4;
+
+    private static final int PCSQ_MID = 0;
+    private static final int PCSQ_END = PCSQ_MID + 2 * 7 * 64;
+    private static final int PAWN_BONUS = PCSQ_END + 2 * 7 * 64;
+    private static final int PAWN_RACE = PAWN_BONUS + 9;
+    private static final int ISOLATED_PAWN = PAWN_RACE + 6;
+    private static final int DOUBLED_PAWN = ISOLATED_PAWN + 1;
+    private static final int CONNECTED_PAWN = DOUBLED_PAWN + 1;
+    private static final int PAWN_SHELTER = CONNECTED_PAWN + 1;
+    private static final int SIZE = PAWN_SHELTER + 5;
+
+    /*
+     * weight indices: the offset of the weights of each piece square table, indexed by piece, and the other weights.
+     */
+    private static final int[] PCSQ_MID_WEIGHTS = {0, 192, 128, 64, 0, 256, 324};
+    private static final int[] PCSQ_END_WEIGHTS = {0, 224, 160, 96, 32, 292, 356};
+    public static final int PAWN_BONUS_WEIGHT = 388;
+    public static final int PAWN_RACE_WEIGHT = 397;
+    public static final int ISOLATED_PAWN_WEIGHT = 403;
+    public static final int DOUBLED_PAWN_WEIGHT = 404;
+    public static final int CONNECTED_PAWN_WEIGHT = 405;
+    public static final int PAWN_SHELTER_WEIGHT = 406;
+
+    /*
+     * the weight (relative to the offset of the table) of each square of a piece square table. The tables are symmetric, so
+     * a weight covers a square and its mirror image. The middle game king table has separate weights for the first rank.
+     */
+    private static final int[] PCSQ_WEIGHT = new int[64];
+    private static final int[] KING_PCSQ_WEIGHT = new int[64];
+
+    static {
+        for (int i=0; i<4; i++){
+            for (int j=0; j<8; j++) {
+                PCSQ_WEIGHT[j*8+i] = j*4+i;
+                PCSQ_WEIGHT[j*8+7-i] = j*4+i;
+                KING_PCSQ_WEIGHT[j*8+i] = j == 0 ? i : j*4+i+4;
+                KING_PCSQ_WEIGHT[j*8+7-i] = j*4+i+4;
+            }
+        }
+    }
+
+    private static final AtomicInteger generations = new AtomicInteger();
+
+    private static final int[] knightPSQ = {288, 348, 332, 348, 348, 332, 348, 288, 344, 328, 364, 376, 376, 364, 328, 344, 340, 372, 384, 388, 388, 384, 372, 340, 348, 380, 384, 384, 384, 384, 380, 348, 372, 380, 404, 404, 404, 404, 380, 372, 340, 428, 400, 428, 428, 400, 428, 340, 276, 316, 400, 356, 356, 400, 316, 276, 172, 264, 248, 364, 364, 248, 264, 172};
+    private static final int[] knightEndgamePSQ = {260, 248, 280, 280, 280, 280, 248, 260, 252, 280, 288, 292, 292, 288, 280, 252, 276, 288, 296, 312, 312, 296, 288, 276, 280, 296, 320, 324, 324, 320, 296, 280, 276, 304, 316, 324, 324, 316, 304, 276, 264, 272, 308, 300, 300, 308, 272, 264, 268, 288, 272, 300, 300, 272, 288, 268, 244, 252, 288, 264, 264, 288, 252, 244};
+    private static final int[] bishopPSQ = {320, 340, 344, 344, 344, 344, 340, 320, 352, 372, 360, 352, 352, 360, 372, 352, 352, 356, 364, 348, 348, 364, 356, 352, 340, 348, 340, 364, 364, 340, 348, 340, 336, 336, 352, 372, 372, 352, 336, 336, 324, 364, 368, 352, 352, 368, 364, 324, 288, 340, 316, 332, 332, 316, 340, 288, 320, 316, 268, 256, 256, 268, 316, 320};
+    private static final int[] bishopEndgamePSQ = {272, 280, 272, 280, 280, 272, 280, 272, 264, 264, 272, 276, 276, 272, 264, 264, 276, 276, 276, 284, 284, 276, 276, 276, 280, 276, 284, 276, 276, 284, 276, 280, 284, 284, 280, 272, 272, 280, 284, 284, 288, 272, 272, 268, 268, 272, 272, 288, 284, 276, 284, 272, 272, 284, 276, 284, 272, 272, 280, 288, 288, 280, 272, 272};
+    private static final int[] rookPSQ = {456, 452, 468, 476, 476, 468, 452, 456, 420, 452, 456, 460, 460, 456, 452, 420, 428, 444, 448, 444, 444, 448, 444, 428, 428, 448, 440, 452, 452, 440, 448, 428, 428, 440, 456, 452, 452, 456, 440, 428, 448, 476, 464, 448, 448, 464, 476, 448, 476, 476, 508, 512, 512, 508, 476, 476, 448, 480, 432, 476, 476, 432, 480, 448};
+    private static final int[] rookEndgamePSQ = {476, 484, 480, 472, 472, 480, 484, 476, 488, 472, 472, 472, 472, 472, 472, 488, 480, 480, 472, 472, 472, 472, 480, 480, 488, 484, 484, 472, 472, 484, 484, 488, 496, 484, 488, 480, 480, 488, 484, 496, 488, 484, 484, 484, 484, 484, 484, 488, 492, 488, 480, 472, 472, 480, 488, 492, 500, 488, 500, 484, 484, 500, 488, 500};
+    private static final int[] queenPSQ = {940, 944, 944, 960, 960, 944, 944, 940, 928, 936, 952, 940, 940, 952, 936, 928, 924, 936, 916, 916, 916, 916, 936, 924, 924, 904, 904, 892, 892, 904, 904, 924, 916, 888, 900, 872, 872, 900, 888, 916, 952, 932, 896, 900, 900, 896, 932, 952, 920, 868, 908, 884, 884, 908, 868, 920, 920, 912, 924, 956, 956, 924, 912, 920};
+    private static final int[] queenEndgamePSQ = {928, 916, 916, 916, 916, 916, 916, 928, 940, 920, 916, 936, 936, 916, 920, 940, 968, 936, 972, 956, 956, 972, 936, 968, 972, 1000, 976, 988, 988, 976, 1000, 972, 996, 1012, 992, 1012, 1012, 992, 1012, 996, 952, 964, 1004, 1020, 1020, 1004, 964, 952, 964, 996, 1000, 1032, 1032, 1000, 996, 964, 980, 996, 1000, 980, 980, 1000, 996, 980};
+    private static final int[] kingPSQ = {84, 128, 112, 60, 120, 80, 148, 136, 136, 120, 68, 48, 48, 68, 120, 136, 84, 96, 64, 36, 36, 64, 96, 84, 32, 72, 32, 12, 12, 32, 72, 32, 56, 84, 88, 64, 64, 88, 84, 56, 136, 184, 212, 120, 120, 212, 184, 136, 104, 108, 124, 180, 180, 124, 108, 104, 76, 216, 148, 104, 104, 148, 216, 76};
+    private static final int[] kingEndgamePSQ = {12, 36, 64, 56, 56, 64, 36, 12, 52, 76, 96, 104, 104, 96, 76, 52, 72, 88, 104, 116, 116, 104, 88, 72, 76, 92, 116, 124, 124, 116, 92, 76, 84, 112, 116, 116, 116, 116, 112, 84, 80, 104, 100, 96, 96, 100, 104, 80, 84, 100, 108, 88, 88, 108, 100, 84, 36, 44, 72, 60, 60, 72, 44, 36};
+    private static final int[] pawnPSQ = {0, 0, 0, 0, 0, 0, 0, 0, 56, 80, 76, 60, 60, 76, 80, 56, 64, 80, 80, 76, 76, 80, 80, 64, 52, 72, 80, 96, 96, 80, 72, 52, 56, 88, 84, 104, 104, 84, 88, 56, 56, 64, 92, 64, 64, 92, 64, 56, -104, -40, -64, -28, -28, -64, -40, -104, 0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] pawnEndgamePSQ = {0, 0, 0, 0, 0, 0, 0, 0, 88, 84, 92, 92, 92, 92, 84, 88, 84, 80, 80, 84, 84, 80, 80, 84, 96, 88, 80, 76, 76, 80, 88, 96, 112, 96, 88, 72, 72, 88, 96, 112, 140, 136, 104, 84, 84, 104, 136, 140, 232, 200, 168, 152, 152, 168, 200, 232, 0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] pawnBonus = {66, 77, 87, 91, 95, 100, 107, 120, 143};
+    private static final int[] pawnRace = {4, 5, 19, 40, 88, 164};
+    private static final int ISOLATED_PAWN_PENALTY = 8;
+    private static final int DOUBLED_PAWN_PENALTY = 14;
+    private static final int CONNECTED_PAWN_BONUS = 5;
+    private static final int[] PAWN_SHELTER_BONUS = {-20, -8, 4, 20, 17};
+
+    /**
+     * the parameters without tuning weights applied
+     */
+    public static final EvalParams DEFAULT = new EvalParams(new int[PARAMETER_COUNT]);
+
+    private final int[] values = new int[SIZE];
+    private final int[] weights;
+    private final int generation = generations.getAndIncrement();
+
+    /**
+     * @param weights the tuning weights (PARAMETER_COUNT of them) to add to the base values
+     */
+    public EvalParams(int[] weights) {
+        if (weights.length != PARAMETER_COUNT) {
+            throw new IllegalArgumentException("expected " + PARAMETER_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = Arrays.copyOf(weights, PARAMETER_COUNT);
+        fillPcsqTables(Constants.KNIGHT, weights, knightPSQ, knightEndgamePSQ);
+        fillPcsqTables(Constants.BISHOP, weights, bishopPSQ, bishopEndgamePSQ);
+        fillPcsqTables(Constants.ROOK, weights, rookPSQ, rookEndgamePSQ);
+        fillPcsqTables(Constants.QUEEN, weights, queenPSQ, queenEndgamePSQ);
+        fillPcsqTables(Constants.KING, weights, kingPSQ, kingEndgamePSQ);
+        fillPcsqTables(Constants.PAWN, weights, pawnPSQ, pawnEndgamePSQ);
+
+        applyToArray(pawnBonus, weights, PAWN_BONUS_WEIGHT, PAWN_BONUS);
+        applyToArray(pawnRace, weights, PAWN_RACE_WEIGHT, PAWN_RACE);
+        values[ISOLATED_PAWN] = ISOLATED_PAWN_PENALTY + weights[ISOLATED_PAWN_WEIGHT];
+        values[DOUBLED_PAWN] = DOUBLED_PAWN_PENALTY + weights[DOUBLED_PAWN_WEIGHT];
+        values[CONNECTED_PAWN] = CONNECTED_PAWN_BONUS + weights[CONNECTED_PAWN_WEIGHT];
+        applyToArray(PAWN_SHELTER_BONUS, weights, PAWN_SHELTER_WEIGHT, PAWN_SHELTER);
+    }
+
+    /**
+     * @return the middle game piece square table score, from the perspective of white (so negative for black)
+     */
+    public int pcsqMid(int color, int piece, int square) {
+        return values[PCSQ_MID + (color * 7 + piece) * 64 + square];
+    }
+
+    /**
+     * @return the endgame piece square table score, from the perspective of white (so negative for black)
+     */
+    public int pcsqEnd(int color, int piece, int square) {
+        return values[PCSQ_END + (color * 7 + piece) * 64 + square];
+    }
+
+    /**
+     * @param pawns the number of pawns of a side
+     * @return the value of the pawns on top of their piece square table scores
+     */
+    public int pawnBonus(int pawns) {
+        return values[PAWN_BONUS + pawns];
+    }
+
+    /**
+     * @param rank the rank of the passed pawn minus one, from its own perspective
+     */
+    public int pawnRace(int rank) {
+        return values[PAWN_RACE + rank];
+    }
+
+    public int isolatedPawnPenalty() {
+        return values[ISOLATED_PAWN];
+    }
+
+    public int doubledPawnPenalty() {
+        return values[DOUBLED_PAWN];
+    }
+
+    public int connectedPawnBonus() {
+        return values[CONNECTED_PAWN];
+    }
+
+    /**
+     * @param pawns the number of pawns (at most 4) sheltering the king
+     */
+    public int pawnShelterBonus(int pawns) {
+        return values[PAWN_SHELTER + pawns];
+    }
+
+    /**
+     * the index of the tuning weight of a piece square table entry. Each weight adds PCSQ_PRECISION to the entry.
+     * @param piece the piece
+     * @param endgame true for the endgame table, false for the middle game table
+     * @param square the square, from the perspective of white
+     * @return the index in the weights
+     */
+    public static int pcsqWeight(int piece, boolean endgame, int square) {
+        if (endgame) {
+            return PCSQ_END_WEIGHTS[piece] + PCSQ_WEIGHT[square];
+        }
+        return PCSQ_MID_WEIGHTS[piece] + (piece == Constants.KING ? KING_PCSQ_WEIGHT[square] : PCSQ_WEIGHT[square]);
+    }
+
+    /**
+     * unique for every instance, so that cached scores calculated with other parameters can be discarded
+     * @return the generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return a copy of the tuning weights these parameters were created with
+     */
+    public int[] getWeights() {
+        return Arrays.copyOf(weights, PARAMETER_COUNT);
+    }
+
+    /**
+     * @return the parameters by name, in the form of the base values
+     */
+    public Map<String, Object> getParameters(){
+        Map<String, Object> parameterMap = new LinkedHashMap<>();
+        parameterMap.put("knightPSQ", whitePcsq(PCSQ_MID, Constants.KNIGHT));
+        parameterMap.put("knightEndgamePSQ", whitePcsq(PCSQ_END, Constants.KNIGHT));
+        parameterMap.put("bishopPSQ", whitePcsq(PCSQ_MID, Constants.BISHOP));
+        parameterMap.put("bishopEndgamePSQ", whitePcsq(PCSQ_END, Constants.BISHOP));
+        parameterMap.put("rookPSQ", whitePcsq(PCSQ_MID, Constants.ROOK));
+        parameterMap.put("rookEndgamePSQ", whitePcsq(PCSQ_END, Constants.ROOK));
+        parameterMap.put("queenPSQ", whitePcsq(PCSQ_MID, Constants.QUEEN));
+        parameterMap.put("queenEndgamePSQ", whitePcsq(PCSQ_END, Constants.QUEEN));
+        parameterMap.put("kingPSQ", whitePcsq(PCSQ_MID, Constants.KING));
+        parameterMap.put("kingEndgamePSQ", whitePcsq(PCSQ_END, Constants.KING));
+        parameterMap.put("pawnPSQ", whitePcsq(PCSQ_MID, Constants.PAWN));
+        parameterMap.put("pawnEndgamePSQ", whitePcsq(PCSQ_END, Constants.PAWN));
+        parameterMap.put("pawnBonus", Arrays.copyOfRange(values, PAWN_BONUS, PAWN_RACE));
+        parameterMap.put("pawnRace", Arrays.copyOfRange(values, PAWN_RACE, ISOLATED_PAWN));
+        parameterMap.put("ISOLATED_PAWN_PENALTY", isolatedPawnPenalty());
+        parameterMap.put("DOUBLED_PAWN_PENALTY", doubledPawnPenalty());
+        parameterMap.put("CONNECTED_PAWN_BONUS", connectedPawnBonus());
+        parameterMap.put("PAWN_SHELTER_BONUS", Arrays.copyOfRange(values, PAWN_SHELTER, SIZE));
+
+        return parameterMap;
+    }
+
+    private int[] whitePcsq(int table, int piece) {
+        int offset = table + (Constants.WHITE * 7 + piece) * 64;
+        return Arrays.copyOfRange(values, offset, offset + 64);
+    }
+
+    private void applyToArray(int[] target, int[] weights, int offset, int valuesOffset){
+        for (int i=0; i<target.length; i++){
+            values[valuesOffset + i] = target[i]+weights[i+offset];
+        }
+    }
+
+    private void fillPcsqTables(int piece, int[] weights, int[] pcsqMid, int[] pcsqEnd){
+        for (int square = 0; square < 64; square++){
+            int mid = (pcsqMid[square]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[pcsqWeight(piece, false, square)] * PCSQ_PRECISION;
+            int end = (pcsqEnd[square]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[pcsqWeight(piece, true, square)] * PCSQ_PRECISION;
+            values[PCSQ_MID + (Constants.WHITE * 7 + piece) * 64 + square] = mid;
+            values[PCSQ_END + (Constants.WHITE * 7 + piece) * 64 + square] = end;
+            values[PCSQ_MID + (Constants.BLACK * 7 + piece) * 64 + Square.relative(square, Constants.BLACK)] = -mid;
+            values[PCSQ_END + (Constants.BLACK * 7 + piece) * 64 + Square.relative(square, Constants.BLACK)] = -end;
+        }
+    }
+}
@@ -22,8 +22,6 @@ import com.winkelhagen.chess.frankwalter.util.Square;
 import com.winkelhagen.chess.frankwalter.util.BB;
 import com.winkelhagen.chess.frankwalter.util.Constants;
 
-import java.util.*;
-
 /**
  * very simple piece-square based evaluator
  *
@@ -36,7 +34,6 @@ public class Evaluator {
     public static final int HASHSCORE = 1000;
 //    private static final int[] pieceValueKingSafety = { 0, -20, -10, -8, -7, -0, -3 };
     private static final int MOBILITY_FACTOR = 5; //used to be 4.
-    private static final int PCSQ_PRECISION = 4;
     public static final int[][] MOVE_PCSQ = {
             {
                     0,2,4,6,6,4,2,0,
@@ -105,33 +102,65 @@ public class Evaluator {
     private static final int BISHOP_PHASE = 1;
     private static final int ROOK_PHASE = 2;
     private static final int QUEEN_PHASE = 4;
-    private static final int TOTAL_PHASE = PAWN_PHASE *16 + KNIGHT_PHASE *4 + BISHOP_PHASE *4 + ROOK_PHASE *4 + QUEEN_PHASE *2;
+    public static final int TOTAL_PHASE = PAWN_PHASE *16 + KNIGHT_PHASE *4 + BISHOP_PHASE *4 + ROOK_PHASE *4 + QUEEN_PHASE *2;
+    /**
+     * phase value per piece type, indexed by piece.
+     */
+    public static final int[] PIECE_PHASE = {0, QUEEN_PHASE, ROOK_PHASE, BISHOP_PHASE, KNIGHT_PHASE, 0, PAWN_PHASE};
     private static final int CONTEMPT = 0;
+    private static final int BISHOP_PAIR_BONUS = 25;
+    private static final int KBNK_CORNER_BONUS = 30;
+    private static final int KBNK_KING_PROXIMITY_BONUS = 10;
+    private static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+
+    private final EvalParams params;
+
+    /**
+     * @param params the evaluation parameters. Boards evaluated by this evaluator must use the same parameters (see Board.setEvalParams)
+     */
+    public Evaluator(EvalParams params) {
+        this.params = params;
+    }
+
+    public EvalParams getParams() {
+        return params;
+    }
+
 
+    public int eval(Board board, int alpha, int beta) {
+        return eval(board, alpha, beta, null, null, null);
+    }
+
+    public int eval(Board board, int alpha, int beta, PawnHashTable pawnHashTable, MaterialTable materialTable) {
+        return eval(board, alpha, beta, pawnHashTable, materialTable, null);
+    }
 
-    private static int[] _knightPSQ;
-    private static int[] _knightEndgamePSQ;
-    private static int[] _bishopPSQ;
-    private static int[] _bishopEndgamePSQ;
-    private static int[] _rookPSQ;
-    private static int[] _rookEndgamePSQ;
-    private static int[] _queenPSQ;
-    private static int[] _queenEndgamePSQ;
-    private static int[] _kingPSQ;
-    private static int[] _kingEndgamePSQ;
-    private static int[] _pawnPSQ;
-    private static int[] _pawnEndgamePSQ;
-    private static int[] _pawnBonus;
-    private static int[] _pawnRace;
-    private static int _ISOLATED_PAWN_PENALTY;
-    private static int _DOUBLED_PAWN_PENALTY;
-    private static int _CONNECTED_PAWN_BONUS;
-    private static int[] _PAWN_SHELTER_BONUS;
-
-
-    public static int eval(Board board, int alpha, int beta) {
-        //Lazy Eval block
-        {
+    /**
+     * evaluate the board from the perspective of the side to move
+     * @param board the board
+     * @param alpha lower bound, used for lazy eval
+     * @param beta upper bound, used for lazy eval
+     * @param pawnHashTable the table to cache pawn structure scores in, or null to always calculate them
+     * @param materialTable the table to cache material information in, or null to always calculate it
+     * @param evalCache the table to cache full evaluations in, or null to always evaluate
+     * @return the score
+     */
+    public int eval(Board board, int alpha, int beta, PawnHashTable pawnHashTable, MaterialTable materialTable, EvalCache evalCache) {
+        assert board.getEvalParams() == params : "the board uses other evaluation parameters";
+        // the evaluation depends on the 50 move counter near the 50 move edge, which is not part of the hashKey.
+        boolean cacheable = evalCache != null && board.getQuiet50() < 80;
+        if (cacheable) {
+            if (evalCache.getGeneration() != params.getGeneration()) {
+                evalCache.clear(params.getGeneration());
+            }
+            if (evalCache.contains(board.getHashKey())) {
+                return evalCache.getScore(board.getHashKey());
+            }
+        }
+        int materialInfo = getMaterialInfo(board, materialTable);
+        //Lazy Eval block - not for endgames that are scaled or need specialized knowledge
+        if (MaterialTable.isPlain(materialInfo)) {
             int simpleScore = board.getMaterialScore(Constants.WHITE) - board.getMaterialScore(Constants.BLACK);
             if (board.getSideToMove() == Constants.BLACK)
                 simpleScore = 0 - simpleScore;
@@ -153,7 +182,10 @@ public class Evaluator {
         }
 
         // evaluate both sides - the scores for the first side to evaluate are subtracted from the second side to evaulate.
-        int score = eval(board, true, board.getSideToMove()^1, 0, 0, 0, TOTAL_PHASE);
+        int score = eval(board, true, board.getSideToMove()^1, 0, 0, getPawnScore(board, pawnHashTable) + MaterialTable.imbalance(materialInfo));
+        if (!MaterialTable.isPlain(materialInfo)) {
+            score = evalEndgame(board, score, materialInfo);
+        }
 
         //taper down scores near 50move edge
         if (board.getQuiet50() > 79) {
@@ -164,6 +196,10 @@ public class Evaluator {
             }
         }
 
+        // only the full evaluation is cached: the lazy eval bounds above depend on the window.
+        if (cacheable) {
+            evalCache.store(board.getHashKey(), score);
+        }
         return score;
     }
 
@@ -171,15 +207,8 @@ public class Evaluator {
         return (comtempt*scale + (20-scale)*score)/20;
     }
 
-    private static int eval(Board board, boolean negateThisSide, int sideToScore, int score, int scoreMid, int scoreEnd, int phase){
-        long[] attacking = board.getAttacking();
-        long pieces = board.getPieces()[sideToScore][Constants.ALL];
-        int bishops = Long.bitCount(board.getPieces()[sideToScore][Constants.BISHOP]);
-
-        if (bishops==2) {
-            score +=25;
-        }
-
+    private int eval(Board board, boolean negateThisSide, int sideToScore, int score, int scoreMid, int whiteScore){
+        long pieces = board.getPieces()[sideToScore][Constants.ALL] & ~board.getPieces()[sideToScore][Constants.PAWN];
 
         // Penalize pins
         score -= Long.bitCount(board.getPins(sideToScore)) * 4;
@@ -188,210 +217,322 @@ public class Evaluator {
             int square = BB.lsb(pieces);
             pieces &= pieces - 1;
             switch (board.getSquares()[square]) {
-            case Constants.KNIGHT:
-                scoreMid += _knightPSQ[Square.relative(square, sideToScore)];
-                scoreEnd += _knightEndgamePSQ[Square.relative(square, sideToScore)];
-                phase -= KNIGHT_PHASE;
-                break;
             case Constants.BISHOP:
-                scoreMid += _bishopPSQ[Square.relative(square, sideToScore)];
-                scoreEnd += _bishopEndgamePSQ[Square.relative(square, sideToScore)];
-                score += Long.bitCount(attacking[square]) * MOBILITY_FACTOR;
-                phase -= BISHOP_PHASE;
+                score += Long.bitCount(board.getAttacking(square)) * MOBILITY_FACTOR;
                 break;
             case Constants.ROOK:
-                scoreMid += _rookPSQ[Square.relative(square, sideToScore)];
-                scoreEnd += _rookEndgamePSQ[Square.relative(square, sideToScore)];
-                score += Long.bitCount(attacking[square]) * MOBILITY_FACTOR;
+                score += Long.bitCount(board.getAttacking(square)) * MOBILITY_FACTOR;
                 if ((BB.file[BB.fileOf(square)] & board.getPieces()[sideToScore][Constants.PAWN]) == 0) {
                     score += 12;
                     if ((BB.file[BB.fileOf(square)] & board.getPieces()[sideToScore^1][Constants.PAWN]) == 0) {
                         score += 12;
                     }
                 }
-                phase -= ROOK_PHASE;
                 break;
             case Constants.QUEEN:
-                scoreMid += _queenPSQ[Square.relative(square, sideToScore)];
-                scoreEnd += _queenEndgamePSQ[Square.relative(square, sideToScore)];
-                score += Long.bitCount(attacking[square]) * MOBILITY_FACTOR;
-                phase -= QUEEN_PHASE;
+                score += Long.bitCount(board.getAttacking(square)) * MOBILITY_FACTOR;
                 break;
             case Constants.KING:
-                scoreMid += _kingPSQ[Square.relative(square, sideToScore)];
-                scoreMid += _PAWN_SHELTER_BONUS[Math.min(Long.bitCount(BB.thickFileInFront[sideToScore][square] & board.getPieces()[sideToScore][Constants.PAWN] & BB.rank23[sideToScore]), 4)];
-                scoreEnd += _kingEndgamePSQ[Square.relative(square, sideToScore)];
-                break;
-            case Constants.PAWN:
-                int rank = BB.rankOf(square)^(sideToScore*7);
-                int file = BB.fileOf(square);
-                //passed pawn
-                if ((BB.thickFileInFront[sideToScore][square]
-                        & board.getPieces()[sideToScore^1][Constants.PAWN]) == 0) {
-                    score += _pawnRace[rank - 1];
-                }
-                //isolated pawn
-                if ((BB.closeFiles[file] & board.getPieces()[sideToScore][Constants.PAWN]) == 0) {
-                    score -= _ISOLATED_PAWN_PENALTY;
-                }
-                //double pawn
-                if ((BB.fileInFront[sideToScore][square] & board.getPieces()[sideToScore][Constants.PAWN]) != 0) {
-                    score -= _DOUBLED_PAWN_PENALTY;
-                }
-                //connected pawn
-                if (((board.getAttacked()[square] | board.getAttacked()[square + Square.IN_FRONT[sideToScore]]) & board.getPieces()[sideToScore][Constants.PAWN]) != 0){
-                    score += _CONNECTED_PAWN_BONUS;
-                }
-                scoreMid += _pawnPSQ[Square.relative(square, sideToScore)];
-                scoreEnd += _pawnEndgamePSQ[Square.relative(square, sideToScore)];
-                phase -= PAWN_PHASE;
+                scoreMid += params.pawnShelterBonus(shelterPawns(board, sideToScore, square));
                 break;
             default:
             }
         }
 
-        // PAWN BONUSSES
-        int pawns = Long.bitCount(board.getPieces()[sideToScore][Constants.PAWN]);
-        score = score + _pawnBonus[pawns];
-
         if (negateThisSide){
-            return eval(board, false, sideToScore^1, -score, -scoreMid, -scoreEnd, phase);
+            return eval(board, false, sideToScore^1, -score, -scoreMid, whiteScore);
         } else {
-            score += calculatePcsqForPhase(scoreMid, scoreEnd, phase);
+            // the piece square table scores are kept up to date by the board, the pawn and material scores are calculated for white
+            if (sideToScore == Constants.WHITE) {
+                score += whiteScore;
+                score += calculatePcsqForPhase(scoreMid + board.getPcsqMid(), board.getPcsqEnd(), board.getPhase());
+            } else {
+                score -= whiteScore;
+                score += calculatePcsqForPhase(scoreMid - board.getPcsqMid(), -board.getPcsqEnd(), board.getPhase());
+            }
             return score;
         }
     }
 
-    private static int calculatePcsqForPhase(int pscq_mid, int pscq_end, int phase) {
-        int phaseMod = (phase * 256 + (TOTAL_PHASE / 2)) / TOTAL_PHASE;
-        return ((pscq_mid * (256 - phaseMod)) + (pscq_end * phaseMod)) / 256;
+    /**
+     * apply the scale factor of the side that is ahead and the specialized endgame knowledge from the material information
+     * @param board the board
+     * @param score the score from the perspective of the side to move
+     * @param materialInfo the material information (see MaterialTable.pack)
+     * @return the adjusted score from the perspective of the side to move
+     */
+    private static int evalEndgame(Board board, int score, int materialInfo) {
+        score = addEndgameKnowledge(board, score, materialInfo);
+        return score * endgameScale(board, score, materialInfo) / MaterialTable.SCALE_NORMAL;
+    }
+
+    private static int addEndgameKnowledge(Board board, int score, int materialInfo) {
+        int endgame = MaterialTable.endgame(materialInfo);
+        if (endgame >= MaterialTable.ENDGAME_KBNK) {
+            int strongSide = endgame - MaterialTable.ENDGAME_KBNK;
+            int bonus = evalKBNK(board, strongSide);
+            score += strongSide == board.getSideToMove() ? bonus : -bonus;
+        }
+        return score;
     }
 
     /**
-     * score for a draw, based on contempt. Other formula's than return 0 are untested.
-     * 
-     * @return the contempt constant
+     * @return the scale factor (relative to MaterialTable.SCALE_NORMAL) of the score, including the endgame knowledge
      */
-    public static int getContemptScore() {
-        return CONTEMPT;
+    private static int endgameScale(Board board, int score, int materialInfo) {
+        int endgame = MaterialTable.endgame(materialInfo);
+        int scale = MaterialTable.SCALE_NORMAL;
+        if (endgame == MaterialTable.ENDGAME_BISHOPS) {
+            boolean whiteBishopDark = (board.getPieces()[Constants.WHITE][Constants.BISHOP] & DARK_SQUARES) != 0;
+            boolean blackBishopDark = (board.getPieces()[Constants.BLACK][Constants.BISHOP] & DARK_SQUARES) != 0;
+            if (whiteBishopDark != blackBishopDark) {
+                scale = MaterialTable.SCALE_NORMAL / 2;
+            }
+        }
+        int sideAhead = score > 0 ? board.getSideToMove() : board.getSideToMove() ^ 1;
+        return Math.min(scale, MaterialTable.scale(materialInfo, sideAhead));
+    }
+
+    /**
+     * drive the bare king to a corner of the color of the bishop, and keep the strong king close.
+     */
+    private static int evalKBNK(Board board, int strongSide) {
+        int weakKing = board.getKings(strongSide ^ 1);
+        int cornerDistance;
+        if ((board.getPieces()[strongSide][Constants.BISHOP] & DARK_SQUARES) != 0) {
+            cornerDistance = Math.min(distance(weakKing, 0), distance(weakKing, 63));
+        } else {
+            cornerDistance = Math.min(distance(weakKing, 7), distance(weakKing, 56));
+        }
+        return KBNK_CORNER_BONUS * (7 - cornerDistance) + KBNK_KING_PROXIMITY_BONUS * (7 - distance(weakKing, board.getKings(strongSide)));
+    }
+
+    private static int distance(int square1, int square2) {
+        return Math.max(Math.abs(BB.rankOf(square1) - BB.rankOf(square2)), Math.abs(BB.fileOf(square1) - BB.fileOf(square2)));
     }
 
-//tuning
+    /**
+     * the material information (imbalance, scale factors and endgame type) of the board. It depends only on the material key, so it can be cached.
+     */
+    private int getMaterialInfo(Board board, MaterialTable materialTable) {
+        long materialKey = board.getMaterialKey();
+        if (materialTable == null) {
+            return calculateMaterialInfo(materialKey);
+        }
+        if (materialTable.getGeneration() != params.getGeneration()) {
+            materialTable.clear(params.getGeneration());
+        }
+        if (materialTable.contains(materialKey)) {
+            return materialTable.getInfo(materialKey);
+        }
+        int materialInfo = calculateMaterialInfo(materialKey);
+        materialTable.store(materialKey, materialInfo);
+        return materialInfo;
+    }
 
-    private static int[] applyToArray(int[] target, int[] weights, int offset){
-        int[] result = new int[target.length];
-        for (int i=0; i<target.length; i++){
-            result[i] = target[i]+weights[i+offset];
+    private int calculateMaterialInfo(long materialKey) {
+        int imbalance = materialImbalance(materialKey, Constants.WHITE) - materialImbalance(materialKey, Constants.BLACK);
+        int endgame = MaterialTable.ENDGAME_NONE;
+        if (isOnlyBishopAndPawns(materialKey, Constants.WHITE) && isOnlyBishopAndPawns(materialKey, Constants.BLACK)) {
+            endgame = MaterialTable.ENDGAME_BISHOPS;
+        } else if (materialKey == MaterialTable.KEY_INCREMENT[Constants.WHITE][Constants.BISHOP] + MaterialTable.KEY_INCREMENT[Constants.WHITE][Constants.KNIGHT]) {
+            endgame = MaterialTable.ENDGAME_KBNK + Constants.WHITE;
+        } else if (materialKey == MaterialTable.KEY_INCREMENT[Constants.BLACK][Constants.BISHOP] + MaterialTable.KEY_INCREMENT[Constants.BLACK][Constants.KNIGHT]) {
+            endgame = MaterialTable.ENDGAME_KBNK + Constants.BLACK;
         }
-        return result;
+        return MaterialTable.pack(imbalance, scaleFactor(materialKey, Constants.WHITE), scaleFactor(materialKey, Constants.BLACK), endgame);
     }
 
-    private static int[] applyToPcsqArray(int[] target, int[] weights, int offset){
-        int[] result = new int[64];
-        for (int i=0; i<4; i++){
-            for (int j=0; j<8; j++) {
-                int k = j*8+i;
-                int l = j*8+7-i;
-                int m = j*4+i;
-                result[k] = (target[k]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[m + offset] * PCSQ_PRECISION;
-                result[l] = (target[l]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[m + offset] * PCSQ_PRECISION;
-            }
+    private int materialImbalance(long materialKey, int side) {
+        int score = params.pawnBonus(MaterialTable.count(materialKey, side, Constants.PAWN));
+        if (MaterialTable.count(materialKey, side, Constants.BISHOP) == 2) {
+            score += BISHOP_PAIR_BONUS;
         }
-        return result;
+        return score;
+    }
+
+    private static boolean isOnlyBishopAndPawns(long materialKey, int side) {
+        return MaterialTable.count(materialKey, side, Constants.BISHOP) == 1
+                && MaterialTable.count(materialKey, side, Constants.KNIGHT) == 0
+                && MaterialTable.count(materialKey, side, Constants.ROOK) == 0
+                && MaterialTable.count(materialKey, side, Constants.QUEEN) == 0;
     }
 
-    /*
-    different because a king on d1 is different to e1.
+    /**
+     * without pawns a side cannot win with a single minor piece, nor with two knights against the bare king.
      */
-    private static int[] applyToKingPcsqArray(int[] target, int[] weights, int offset){
-        int[] result = new int[64];
-        for (int i=0; i<4; i++){
-            for (int j=-1; j<8; j++) {
-                int k = j*8+i;
-                int l = j*8+7-i;
-                int m = j*4+i;
-                if (j==-1){
-                    result[i] = (target[i]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[i + offset] * PCSQ_PRECISION;
-                } else if (j==0){
-                    result[l] = (target[l]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[m + offset + 4] * PCSQ_PRECISION;
-                } else {
-                    result[k] = (target[k]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[m + offset + 4] * PCSQ_PRECISION;
-                    result[l] = (target[l]/PCSQ_PRECISION)*PCSQ_PRECISION + weights[m + offset + 4] * PCSQ_PRECISION;
-                }
+    private static int scaleFactor(long materialKey, int side) {
+        if (MaterialTable.count(materialKey, side, Constants.PAWN) > 0
+                || MaterialTable.count(materialKey, side, Constants.QUEEN) > 0
+                || MaterialTable.count(materialKey, side, Constants.ROOK) > 0) {
+            return MaterialTable.SCALE_NORMAL;
+        }
+        int knights = MaterialTable.count(materialKey, side, Constants.KNIGHT);
+        int bishops = MaterialTable.count(materialKey, side, Constants.BISHOP);
+        if (knights + bishops <= 1) {
+            return 0;
+        }
+        if (bishops == 0 && knights == 2 && materialKey == 2 * MaterialTable.KEY_INCREMENT[side][Constants.KNIGHT]) {
+            return 0;
+        }
+        return MaterialTable.SCALE_NORMAL;
+    }
+
+    /**
+     * the pawn structure score from the perspective of white. It depends only on the pawns, so it can be cached by pawn hash key.
+     */
+    private int getPawnScore(Board board, PawnHashTable pawnHashTable) {
+        if (pawnHashTable == null) {
+            return evalPawns(board, Constants.WHITE) - evalPawns(board, Constants.BLACK);
+        }
+        if (pawnHashTable.getGeneration() != params.getGeneration()) {
+            pawnHashTable.clear(params.getGeneration());
+        }
+        long pawnKey = board.getPawnKey();
+        if (pawnHashTable.contains(pawnKey)) {
+            return pawnHashTable.getScore(pawnKey);
+        }
+        int pawnScore = evalPawns(board, Constants.WHITE) - evalPawns(board, Constants.BLACK);
+        pawnHashTable.store(pawnKey, pawnScore);
+        return pawnScore;
+    }
+
+    private int evalPawns(Board board, int sideToScore) {
+        int score = 0;
+        long ownPawns = board.getPieces()[sideToScore][Constants.PAWN];
+        long pawns = ownPawns;
+        while (pawns != 0) {
+            int square = BB.lsb(pawns);
+            pawns &= pawns - 1;
+            if (isPassed(board, sideToScore, square)) {
+                score += params.pawnRace(relativeRank(sideToScore, square) - 1);
+            }
+            if (isIsolated(ownPawns, square)) {
+                score -= params.isolatedPawnPenalty();
+            }
+            if (isDoubled(ownPawns, sideToScore, square)) {
+                score -= params.doubledPawnPenalty();
+            }
+            if (isConnected(ownPawns, sideToScore, square)) {
+                score += params.connectedPawnBonus();
             }
         }
-        return result;
+        return score;
+    }
+
+    private static int relativeRank(int side, int square) {
+        return BB.rankOf(square)^(side*7);
+    }
+
+    private static boolean isPassed(Board board, int side, int square) {
+        return (BB.thickFileInFront[side][square] & board.getPieces()[side^1][Constants.PAWN]) == 0;
+    }
+
+    private static boolean isIsolated(long ownPawns, int square) {
+        return (BB.closeFiles[BB.fileOf(square)] & ownPawns) == 0;
+    }
+
+    private static boolean isDoubled(long ownPawns, int side, int square) {
+        return (BB.fileInFront[side][square] & ownPawns) != 0;
+    }
+
+    /**
+     * defended by, or able to be defended by, an own pawn
+     */
+    private static boolean isConnected(long ownPawns, int side, int square) {
+        return ((BB.pawn[side^1][square] | BB.pawn[side^1][square + Square.IN_FRONT[side]]) & ownPawns) != 0;
+    }
+
+    /**
+     * the number of own pawns (at most 4) on the second and third rank in front of and next to the king
+     */
+    private static int shelterPawns(Board board, int side, int kingSquare) {
+        return Math.min(Long.bitCount(BB.thickFileInFront[side][kingSquare] & board.getPieces()[side][Constants.PAWN] & BB.rank23[side]), 4);
+    }
+
+    private static int calculatePcsqForPhase(int pscq_mid, int pscq_end, int phase) {
+        int phaseMod = phaseMod(phase);
+        return ((pscq_mid * (256 - phaseMod)) + (pscq_end * phaseMod)) / 256;
     }
 
-    public static void applyWeights(int[] weights) {
-        _knightPSQ = applyToPcsqArray(knightPSQ, weights, 0);
-        _knightEndgamePSQ = applyToPcsqArray(knightEndgamePSQ, weights, 32);
-        _bishopPSQ = applyToPcsqArray(bishopPSQ, weights, 64);
-        _bishopEndgamePSQ = applyToPcsqArray(bishopEndgamePSQ, weights, 96);
-        _rookPSQ = applyToPcsqArray(rookPSQ, weights, 128);
-        _rookEndgamePSQ = applyToPcsqArray(rookEndgamePSQ, weights, 160);
-        _queenPSQ = applyToPcsqArray(queenPSQ, weights, 192);
-        _queenEndgamePSQ = applyToPcsqArray(queenEndgamePSQ, weights, 224);
-        _kingPSQ = applyToKingPcsqArray(kingPSQ, weights, 256);
-        _kingEndgamePSQ = applyToPcsqArray(kingEndgamePSQ, weights, 292);
-        _pawnPSQ = applyToPcsqArray(pawnPSQ, weights, 324);
-        _pawnEndgamePSQ = applyToPcsqArray(pawnEndgamePSQ, weights, 356);
-
-        _pawnBonus = applyToArray(pawnBonus, weights, 388);
-        _pawnRace = applyToArray(pawnRace, weights, 397);
-        _ISOLATED_PAWN_PENALTY = ISOLATED_PAWN_PENALTY + weights[403];
-        _DOUBLED_PAWN_PENALTY = DOUBLED_PAWN_PENALTY + weights[404];
-        _CONNECTED_PAWN_BONUS = CONNECTED_PAWN_BONUS + weights[405];
-        _PAWN_SHELTER_BONUS = applyToArray(PAWN_SHELTER_BONUS, weights, 406);
+    /**
+     * @return the weight (out of 256) of the endgame tables
+     */
+    private static int phaseMod(int phase) {
+        return (phase * 256 + (TOTAL_PHASE / 2)) / TOTAL_PHASE;
     }
 
-    private static int[] knightPSQ = {288, 348, 332, 348, 348, 332, 348, 288, 344, 328, 364, 376, 376, 364, 328, 344, 340, 372, 384, 388, 388, 384, 372, 340, 348, 380, 384, 384, 384, 384, 380, 348, 372, 380, 404, 404, 404, 404, 380, 372, 340, 428, 400, 428, 428, 400, 428, 340, 276, 316, 400, 356, 356, 400, 316, 276, 172, 264, 248, 364, 364, 248, 264, 172};
-    private static int[] knightEndgamePSQ = {260, 248, 280, 280, 280, 280, 248, 260, 252, 280, 288, 292, 292, 288, 280, 252, 276, 288, 296, 312, 312, 296, 288, 276, 280, 296, 320, 324, 324, 320, 296, 280, 276, 304, 316, 324, 324, 316, 304, 276, 264, 272, 308, 300, 300, 308, 272, 264, 268, 288, 272, 300, 300, 272, 288, 268, 244, 252, 288, 264, 264, 288, 252, 244};
-    private static int[] bishopPSQ = {320, 340, 344, 344, 344, 344, 340, 320, 352, 372, 360, 352, 352, 360, 372, 352, 352, 356, 364, 348, 348, 364, 356, 352, 340, 348, 340, 364, 364, 340, 348, 340, 336, 336, 352, 372, 372, 352, 336, 336, 324, 364, 368, 352, 352, 368, 364, 324, 288, 340, 316, 332, 332, 316, 340, 288, 320, 316, 268, 256, 256, 268, 316, 320};
-    private static int[] bishopEndgamePSQ = {272, 280, 272, 280, 280, 272, 280, 272, 264, 264, 272, 276, 276, 272, 264, 264, 276, 276, 276, 284, 284, 276, 276, 276, 280, 276, 284, 276, 276, 284, 276, 280, 284, 284, 280, 272, 272, 280, 284, 284, 288, 272, 272, 268, 268, 272, 272, 288, 284, 276, 284, 272, 272, 284, 276, 284, 272, 272, 280, 288, 288, 280, 272, 272};
-    private static int[] rookPSQ = {456, 452, 468, 476, 476, 468, 452, 456, 420, 452, 456, 460, 460, 456, 452, 420, 428, 444, 448, 444, 444, 448, 444, 428, 428, 448, 440, 452, 452, 440, 448, 428, 428, 440, 456, 452, 452, 456, 440, 428, 448, 476, 464, 448, 448, 464, 476, 448, 476, 476, 508, 512, 512, 508, 476, 476, 448, 480, 432, 476, 476, 432, 480, 448};
-    private static int[] rookEndgamePSQ = {476, 484, 480, 472, 472, 480, 484, 476, 488, 472, 472, 472, 472, 472, 472, 488, 480, 480, 472, 472, 472, 472, 480, 480, 488, 484, 484, 472, 472, 484, 484, 488, 496, 484, 488, 480, 480, 488, 484, 496, 488, 484, 484, 484, 484, 484, 484, 488, 492, 488, 480, 472, 472, 480, 488, 492, 500, 488, 500, 484, 484, 500, 488, 500};
-    private static int[] queenPSQ = {940, 944, 944, 960, 960, 944, 944, 940, 928, 936, 952, 940, 940, 952, 936, 928, 924, 936, 916, 916, 916, 916, 936, 924, 924, 904, 904, 892, 892, 904, 904, 924, 916, 888, 900, 872, 872, 900, 888, 916, 952, 932, 896, 900, 900, 896, 932, 952, 920, 868, 908, 884, 884, 908, 868, 920, 920, 912, 924, 956, 956, 924, 912, 920};
-    private static int[] queenEndgamePSQ = {928, 916, 916, 916, 916, 916, 916, 928, 940, 920, 916, 936, 936, 916, 920, 940, 968, 936, 972, 956, 956, 972, 936, 968, 972, 1000, 976, 988, 988, 976, 1000, 972, 996, 1012, 992, 1012, 1012, 992, 1012, 996, 952, 964, 1004, 1020, 1020, 1004, 964, 952, 964, 996, 1000, 1032, 1032, 1000, 996, 964, 980, 996, 1000, 980, 980, 1000, 996, 980};
-    private static int[] kingPSQ = {84, 128, 112, 60, 120, 80, 148, 136, 136, 120, 68, 48, 48, 68, 120, 136, 84, 96, 64, 36, 36, 64, 96, 84, 32, 72, 32, 12, 12, 32, 72, 32, 56, 84, 88, 64, 64, 88, 84, 56, 136, 184, 212, 120, 120, 212, 184, 136, 104, 108, 124, 180, 180, 124, 108, 104, 76, 216, 148, 104, 104, 148, 216, 76};
-    private static int[] kingEndgamePSQ = {12, 36, 64, 56, 56, 64, 36, 12, 52, 76, 96, 104, 104, 96, 76, 52, 72, 88, 104, 116, 116, 104, 88, 72, 76, 92, 116, 124, 124, 116, 92, 76, 84, 112, 116, 116, 116, 116, 112, 84, 80, 104, 100, 96, 96, 100, 104, 80, 84, 100, 108, 88, 88, 108, 100, 84, 36, 44, 72, 60, 60, 72, 44, 36};
-    private static int[] pawnPSQ = {0, 0, 0, 0, 0, 0, 0, 0, 56, 80, 76, 60, 60, 76, 80, 56, 64, 80, 80, 76, 76, 80, 80, 64, 52, 72, 80, 96, 96, 80, 72, 52, 56, 88, 84, 104, 104, 84, 88, 56, 56, 64, 92, 64, 64, 92, 64, 56, -104, -40, -64, -28, -28, -64, -40, -104, 0, 0, 0, 0, 0, 0, 0, 0};
-    private static int[] pawnEndgamePSQ = {0, 0, 0, 0, 0, 0, 0, 0, 88, 84, 92, 92, 92, 92, 84, 88, 84, 80, 80, 84, 84, 80, 80, 84, 96, 88, 80, 76, 76, 80, 88, 96, 112, 96, 88, 72, 72, 88, 96, 112, 140, 136, 104, 84, 84, 104, 136, 140, 232, 200, 168, 152, 152, 168, 200, 232, 0, 0, 0, 0, 0, 0, 0, 0};
-    private static int[] pawnBonus = {66, 77, 87, 91, 95, 100, 107, 120, 143};
-    private static int[] pawnRace = {4, 5, 19, 40, 88, 164};
-    private static int ISOLATED_PAWN_PENALTY = 8;
-    private static int DOUBLED_PAWN_PENALTY = 14;
-    private static int CONNECTED_PAWN_BONUS = 5;
-    private static int[] PAWN_SHELTER_BONUS = {-20, -8, 4, 20, 17};
-
-    public static final int PARAMETER_COUNT = 411;
-
-    static {
-        applyWeights(new int[PARAMETER_COUNT]);
+    /**
+     * the evaluation as a linear function of the tuning weights, for tuning: the score for other weights is the score
+     * for the weights of these parameters plus the sum of the coefficients times the changes of the weights. The
+     * coefficients include the game phase and the endgame scale factor. They are exact up to rounding, as long as the
+     * weights do not change which side is ahead in scaled endgames.
+     * @param board the board, which must use the parameters of this evaluator
+     * @return the features of the board, from the perspective of white
+     */
+    public EvalFeatures extractFeatures(Board board) {
+        assert board.getEvalParams() == params : "the board uses other evaluation parameters";
+        double[] coefficients = new double[EvalParams.PARAMETER_COUNT];
+        int phaseMod = phaseMod(board.getPhase());
+        double mid = (256 - phaseMod) / 256d;
+        double end = phaseMod / 256d;
+        for (int side = Constants.WHITE; side <= Constants.BLACK; side++) {
+            int sign = side == Constants.WHITE ? 1 : -1;
+            long pieces = board.getPieces()[side][Constants.ALL];
+            while (pieces != 0) {
+                int square = BB.lsb(pieces);
+                pieces &= pieces - 1;
+                int piece = board.getSquares()[square];
+                int whiteSquare = Square.relative(square, side);
+                coefficients[EvalParams.pcsqWeight(piece, false, whiteSquare)] += sign * EvalParams.PCSQ_PRECISION * mid;
+                coefficients[EvalParams.pcsqWeight(piece, true, whiteSquare)] += sign * EvalParams.PCSQ_PRECISION * end;
+            }
+            coefficients[EvalParams.PAWN_SHELTER_WEIGHT + shelterPawns(board, side, board.getKings(side))] += sign * mid;
+            coefficients[EvalParams.PAWN_BONUS_WEIGHT + MaterialTable.count(board.getMaterialKey(), side, Constants.PAWN)] += sign;
+            long ownPawns = board.getPieces()[side][Constants.PAWN];
+            long pawns = ownPawns;
+            while (pawns != 0) {
+                int square = BB.lsb(pawns);
+                pawns &= pawns - 1;
+                if (isPassed(board, side, square)) {
+                    coefficients[EvalParams.PAWN_RACE_WEIGHT + relativeRank(side, square) - 1] += sign;
+                }
+                if (isIsolated(ownPawns, square)) {
+                    coefficients[EvalParams.ISOLATED_PAWN_WEIGHT] -= sign;
+                }
+                if (isDoubled(ownPawns, side, square)) {
+                    coefficients[EvalParams.DOUBLED_PAWN_WEIGHT] -= sign;
+                }
+                if (isConnected(ownPawns, side, square)) {
+                    coefficients[EvalParams.CONNECTED_PAWN_WEIGHT] += sign;
+                }
+            }
+        }
+
+        double scale = 1;
+        int materialInfo = getMaterialInfo(board, null);
+        if (!MaterialTable.isPlain(materialInfo)) {
+            int score = eval(board, true, board.getSideToMove()^1, 0, 0, getPawnScore(board, null) + MaterialTable.imbalance(materialInfo));
+            score = addEndgameKnowledge(board, score, materialInfo);
+            scale = endgameScale(board, score, materialInfo) / (double) MaterialTable.SCALE_NORMAL;
+        }
+        if (board.getQuiet50() > 99) {
+            scale = 0;
+        } else if (board.getQuiet50() > 79) {
+            scale = scale * (20 - (board.getQuiet50() - 80)) / 20;
+        }
+
+        int score = eval(board, -32000, 32000);
+        return new EvalFeatures(board.getSideToMove() == Constants.WHITE ? score : -score, board.getPhase(), coefficients, scale);
     }
 
-    public static Map<String, Object> getParameters(){
-        Map<String, Object> parameterMap = new LinkedHashMap<>();
-        parameterMap.put("knightPSQ", _knightPSQ);
-        parameterMap.put("knightEndgamePSQ", _knightEndgamePSQ);
-        parameterMap.put("bishopPSQ", _bishopPSQ);
-        parameterMap.put("bishopEndgamePSQ", _bishopEndgamePSQ);
-        parameterMap.put("rookPSQ", _rookPSQ);
-        parameterMap.put("rookEndgamePSQ", _rookEndgamePSQ);
-        parameterMap.put("queenPSQ", _queenPSQ);
-        parameterMap.put("queenEndgamePSQ", _queenEndgamePSQ);
-        parameterMap.put("kingPSQ", _kingPSQ);
-        parameterMap.put("kingEndgamePSQ", _kingEndgamePSQ);
-        parameterMap.put("pawnPSQ", _pawnPSQ);
-        parameterMap.put("pawnEndgamePSQ", _pawnEndgamePSQ);
-        parameterMap.put("pawnBonus", _pawnBonus);
-        parameterMap.put("pawnRace", _pawnRace);
-        parameterMap.put("ISOLATED_PAWN_PENALTY", _ISOLATED_PAWN_PENALTY);
-        parameterMap.put("DOUBLED_PAWN_PENALTY", _DOUBLED_PAWN_PENALTY);
-        parameterMap.put("CONNECTED_PAWN_BONUS", _CONNECTED_PAWN_BONUS);
-        parameterMap.put("PAWN_SHELTER_BONUS", _PAWN_SHELTER_BONUS);
-
-        return parameterMap;
+    /**
+     * score for a draw, based on contempt. Other formula's than return 0 are untested.
+     * 
+     * @return the contempt constant
+     */
+    public static int getContemptScore() {
+        return CONTEMPT;
     }
 
 }
@@ -0,0 +1,200 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import com.winkelhagen.chess.frankwalter.util.Constants;
+
+import java.util.Arrays;
+
+/**
+ * direct mapped cache for the material dependent part of the evaluation, keyed by the material key of the board.
+ * The material key holds the number of pieces per color and piece type (kings excluded) in 4 bits each.
+ * An entry packs the material imbalance (from the perspective of white), a scale factor per color and the type of specialized endgame in one int.
+ * Not thread safe: each search thread has its own table.
+ */
+public class MaterialTable {
+
+    /**
+     * the increment of the material key when adding a piece, indexed by color and piece.
+     */
+    public static final long[][] KEY_INCREMENT = new long[2][7];
+
+    /**
+     * the scale factor of a side that can win normally. A scale factor of 0 means the side cannot win.
+     */
+    public static final int SCALE_NORMAL = 16;
+
+    public static final int ENDGAME_NONE = 0;
+    /**
+     * each side has a single bishop and only pawns besides that. The bishops may or may not be on opposite colors.
+     */
+    public static final int ENDGAME_BISHOPS = 1;
+    /**
+     * king, bishop and knight against the bare king, add the strong side to get the actual endgame type.
+     */
+    public static final int ENDGAME_KBNK = 2;
+
+    private static final int SCALE_BITS = 5;
+    private static final int SCALE_MASK = (1 << SCALE_BITS) - 1;
+    private static final int SCALE_SHIFT = 16;
+    private static final int ENDGAME_SHIFT = SCALE_SHIFT + 2 * SCALE_BITS;
+
+    static {
+        for (int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+            for (int piece = Constants.QUEEN; piece <= Constants.PAWN; piece++) {
+                if (piece != Constants.KING) {
+                    KEY_INCREMENT[color][piece] = 1L << shift(color, piece);
+                }
+            }
+        }
+    }
+
+    private final long[] keys;
+    private final int[] infos;
+    private final int shift;
+    private int generation = -1;
+
+    private int probes;
+    private int hits;
+
+    /**
+     * @param magnitude the table holds 2^magnitude entries
+     */
+    public MaterialTable(int magnitude) {
+        keys = new long[1 << magnitude];
+        infos = new int[1 << magnitude];
+        shift = 64 - magnitude;
+    }
+
+    private static int shift(int color, int piece) {
+        return 4 * (color * 6 + piece - 1);
+    }
+
+    /**
+     * @param materialKey the material key
+     * @param color the color of the pieces to count
+     * @param piece the type of the pieces to count
+     * @return the number of pieces of the color and type
+     */
+    public static int count(long materialKey, int color, int piece) {
+        return (int) (materialKey >>> shift(color, piece)) & 0xF;
+    }
+
+    /**
+     * only kings and at most a single minor piece: neither side can ever mate.
+     * @param materialKey the material key
+     * @return true if the position is a dead draw based on the material alone
+     */
+    public static boolean isDeadDraw(long materialKey) {
+        return materialKey == 0
+                || materialKey == KEY_INCREMENT[Constants.WHITE][Constants.KNIGHT]
+                || materialKey == KEY_INCREMENT[Constants.WHITE][Constants.BISHOP]
+                || materialKey == KEY_INCREMENT[Constants.BLACK][Constants.KNIGHT]
+                || materialKey == KEY_INCREMENT[Constants.BLACK][Constants.BISHOP];
+    }
+
+    /**
+     * @param imbalance the material imbalance from the perspective of white
+     * @param scaleWhite the scale factor (0 - SCALE_NORMAL) for white
+     * @param scaleBlack the scale factor (0 - SCALE_NORMAL) for black
+     * @param endgame the type of specialized endgame
+     * @return the information packed in an int
+     */
+    public static int pack(int imbalance, int scaleWhite, int scaleBlack, int endgame) {
+        return (imbalance & 0xFFFF) | scaleWhite << SCALE_SHIFT | scaleBlack << (SCALE_SHIFT + SCALE_BITS) | endgame << ENDGAME_SHIFT;
+    }
+
+    public static int imbalance(int info) {
+        return (short) info;
+    }
+
+    public static int scale(int info, int color) {
+        return (info >>> (SCALE_SHIFT + color * SCALE_BITS)) & SCALE_MASK;
+    }
+
+    public static int endgame(int info) {
+        return info >>> ENDGAME_SHIFT;
+    }
+
+    /**
+     * @param info the packed information
+     * @return true if both sides can win normally and there is no specialized endgame knowledge
+     */
+    public static boolean isPlain(int info) {
+        return (info & ~0xFFFF) == pack(0, SCALE_NORMAL, SCALE_NORMAL, ENDGAME_NONE);
+    }
+
+    private int index(long materialKey) {
+        return (int) ((materialKey * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * @param materialKey the material key
+     * @return true if the table holds the information for the material key. Use getInfo to retrieve it.
+     */
+    public boolean contains(long materialKey) {
+        probes++;
+        if (keys[index(materialKey)] == materialKey) {
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    public int getInfo(long materialKey) {
+        return infos[index(materialKey)];
+    }
+
+    public void store(long materialKey, int info) {
+        int index = index(materialKey);
+        keys[index] = materialKey;
+        infos[index] = info;
+    }
+
+    /**
+     * the generation of the evaluation weights the information in this table was calculated with
+     * @return the generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * remove all information from the table.
+     * @param generation the generation of the evaluation weights new information will be calculated with
+     */
+    public void clear(int generation) {
+        //an empty slot matches the material key of two bare kings: no imbalance and neither side can win.
+        Arrays.fill(keys, 0L);
+        Arrays.fill(infos, 0);
+        this.generation = generation;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * direct mapped cache for the pawn structure scores, keyed by the pawn hash key of the board.
+ * Not thread safe: each search thread has its own table.
+ */
+public class PawnHashTable {
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private int generation = -1;
+
+    private int probes;
+    private int hits;
+
+    /**
+     * @param magnitude the table holds 2^magnitude entries
+     */
+    public PawnHashTable(int magnitude) {
+        keys = new long[1 << magnitude];
+        scores = new int[1 << magnitude];
+        mask = (1 << magnitude) - 1;
+    }
+
+    /**
+     * @param pawnKey the pawn hash key
+     * @return true if the table holds a score for the pawn hash key. Use getScore to retrieve it.
+     */
+    public boolean contains(long pawnKey) {
+        probes++;
+        if (keys[(int) pawnKey & mask] == pawnKey) {
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    public int getScore(long pawnKey) {
+        return scores[(int) pawnKey & mask];
+    }
+
+    public void store(long pawnKey, int score) {
+        int index = (int) pawnKey & mask;
+        keys[index] = pawnKey;
+        scores[index] = score;
+    }
+
+    /**
+     * the generation of the evaluation weights the scores in this table were calculated with
+     * @return the generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * remove all scores from the table.
+     * @param generation the generation of the evaluation weights new scores will be calculated with
+     */
+    public void clear(int generation) {
+        //an empty slot matches the pawn hash key of positions without pawns, which always score 0.
+        Arrays.fill(keys, 0L);
+        Arrays.fill(scores, 0);
+        this.generation = generation;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+}
@@ -30,59 +30,131 @@ public class Seer {
 
     private static final int[] SEE_VALUE = { 0, 9, 5, 3, 3, 100, 1 };
 
-    //todo: maybe somehow add a bonus to pawn promotions, iff not captured. (try to do those last)
+    /* the order in which the pieces of a side join the exchange: least valuable attackers first */
+    private static final int[] LEAST_VALUABLE_FIRST = { Constants.PAWN, Constants.KNIGHT, Constants.BISHOP, Constants.ROOK, Constants.QUEEN, Constants.KING };
+
+    /* the size of the swap list */
+    public static final int MAX_EXCHANGES = 32;
+
+    /**
+     * Static exchange evaluation of a move: the material balance after all (profitable) recaptures on the target square.
+     * Uses a swap list: the exchange is played out with the least valuable attacker of each side, after which
+     * the list is evaluated backwards, allowing each side to stop capturing.
+     * @param move the move to evaluate
+     * @param board the board to evaluate the move on
+     * @return the material balance in pawn units
+     */
     public static int see(int move, Board board) {
+        return see(move, board, new int[MAX_EXCHANGES]);
+    }
+
+    /**
+     * Static exchange evaluation of a move, see see(int, Board), with a swap list of the caller. The move ordering calls
+     * this for every capture, so it keeps one swap list instead of allocating one per call.
+     * @param move the move to evaluate
+     * @param board the board to evaluate the move on
+     * @param gain the swap list, of at least MAX_EXCHANGES ints; its contents are overwritten
+     * @return the material balance in pawn units
+     */
+    //todo: maybe somehow add a bonus to pawn promotions, iff not captured. (try to do those last)
+    public static int see(int move, Board board, int[] gain) {
         int battleGround = MV.getToSquare(move);
-        int capture = board.getSquares()[battleGround];
         int fromSquare = MV.getFromSquare(move);
-        int mover = board.getSquares()[fromSquare];
-        int stm = board.getSideToMove();
-        long defenders = board.getAttacked()[battleGround];
+        int victim = board.getSquares()[fromSquare];
+        int side = board.getSideToMove() ^ 1;
+        long[][] pieces = board.getPieces();
         long currentlyOccupied = board.getOccupied() ^ BB.single(fromSquare);
-        if (mover != Constants.KNIGHT) {
-            defenders = addUncoveredDefenders(battleGround, currentlyOccupied, defenders, board.getPieces());
+        long attackers = board.getAttacked(battleGround);
+        if (victim != Constants.KNIGHT) {
+            attackers = addUncoveredDefenders(battleGround, currentlyOccupied, attackers, pieces);
         }
-        return seeRecursive(battleGround, stm ^ 1, mover, capture, currentlyOccupied, defenders, board.getSquares(), board.getPieces());
+        gain[0] = SEE_VALUE[board.getSquares()[battleGround]];
+        int exchanges = 0;
+        while (true) {
+            long sideAttackers = attackers & pieces[side][Constants.ALL] & currentlyOccupied;
+            if (sideAttackers == 0) {
+                break;
+            }
+            gain[++exchanges] = SEE_VALUE[victim];
+            if (victim == Constants.KING) {
+                //the king was captured, so the previous capture was illegal
+                break;
+            }
+            victim = getLeastValuableAttacker(sideAttackers, pieces[side]);
+            currentlyOccupied ^= Long.lowestOneBit(sideAttackers & pieces[side][victim]);
+            if (victim != Constants.KNIGHT) {
+                attackers = addUncoveredDefenders(battleGround, currentlyOccupied, attackers, pieces);
+            }
+            side ^= 1;
+        }
+        while (exchanges > 0) {
+            exchanges--;
+            gain[exchanges] -= Math.max(0, gain[exchanges + 1]);
+        }
+        return gain[0];
     }
 
-    /*
-    calculate the SEE score that reflects the 'stm' capturing 'capture' with 'mover'
-    Use recursion to see how the score might be affected when 'mover' becomes the new 'capture'
+    /**
+     * Determine whether the static exchange evaluation of a move is at least the threshold, without calculating the exact value.
+     * The exchange is abandoned as soon as its outcome relative to the threshold is certain.
+     * @param move the move to evaluate
+     * @param board the board to evaluate the move on
+     * @param threshold the threshold in pawn units
+     * @return true iff see(move, board) &gt;= threshold
      */
-    private static int seeRecursive(int battleGround, int stm, int mover, int capture, long currentlyOccupied, long defenders, int[] squares, long[][] pieces) {
-        //determine the remaining defenders
-        long remainingDefenders = defenders & pieces[stm][Constants.ALL] & currentlyOccupied;
-        if (remainingDefenders == 0 || capture == Constants.KING) {
-            //if there is no recapture then return the value of the captured piece
-            return SEE_VALUE[capture];
-        } else {
-            int fromSquare = getLowestDefender(remainingDefenders, squares);
-            currentlyOccupied ^= BB.single(fromSquare);
-            if (mover != Constants.KNIGHT) {
-                defenders = addUncoveredDefenders(battleGround, currentlyOccupied, defenders, pieces);
+    public static boolean seeGreaterOrEqual(int move, Board board, int threshold) {
+        int battleGround = MV.getToSquare(move);
+        int fromSquare = MV.getFromSquare(move);
+        int mover = board.getSquares()[fromSquare];
+        //the balance for the side to move if the exchange stops now, relative to the threshold
+        int swap = SEE_VALUE[board.getSquares()[battleGround]] - threshold;
+        if (swap < 0) {
+            return false;
+        }
+        //the balance for the opponent if it recaptures and the exchange stops then
+        swap = SEE_VALUE[mover] - swap;
+        if (swap <= 0) {
+            return true;
+        }
+        int side = board.getSideToMove();
+        long[][] pieces = board.getPieces();
+        long currentlyOccupied = board.getOccupied() ^ BB.single(fromSquare);
+        long attackers = board.getAttacked(battleGround);
+        if (mover != Constants.KNIGHT) {
+            attackers = addUncoveredDefenders(battleGround, currentlyOccupied, attackers, pieces);
+        }
+        int result = 1;
+        while (true) {
+            side ^= 1;
+            long sideAttackers = attackers & pieces[side][Constants.ALL] & currentlyOccupied;
+            if (sideAttackers == 0) {
+                break;
+            }
+            result ^= 1;
+            int attacker = getLeastValuableAttacker(sideAttackers, pieces[side]);
+            if (attacker == Constants.KING) {
+                //the king may only capture if the opponent has no attackers left
+                return ((attackers & pieces[side ^ 1][Constants.ALL] & currentlyOccupied) != 0) != (result == 1);
+            }
+            swap = SEE_VALUE[attacker] - swap;
+            if (swap < result) {
+                break;
             }
-            int score = -seeRecursive(battleGround, stm ^ 1, squares[fromSquare], mover, currentlyOccupied, defenders, squares, pieces);
-            if (score > 0) {
-                return SEE_VALUE[capture];
-            } else {
-                return SEE_VALUE[capture] + score;
+            currentlyOccupied ^= Long.lowestOneBit(sideAttackers & pieces[side][attacker]);
+            if (attacker != Constants.KNIGHT) {
+                attackers = addUncoveredDefenders(battleGround, currentlyOccupied, attackers, pieces);
             }
         }
+        return result == 1;
     }
 
-    private static int getLowestDefender(long remainingDefenders, int[] squares) {
-        int lowestDefendingSquare = 0;
-        int lowestDefenderValue = 10000;
-        while (remainingDefenders != 0) {
-            int defender = BB.lsb(remainingDefenders);
-            int value = SEE_VALUE[squares[defender]];
-            remainingDefenders &= remainingDefenders - 1;
-            if (value < lowestDefenderValue) {
-                lowestDefendingSquare = defender;
-                lowestDefenderValue = value;
+    private static int getLeastValuableAttacker(long sideAttackers, long[] sidePieces) {
+        for (int piece : LEAST_VALUABLE_FIRST) {
+            if ((sideAttackers & sidePieces[piece]) != 0) {
+                return piece;
             }
         }
-        return lowestDefendingSquare;
+        throw new IllegalStateException("no attacker found");
     }
 
     private static long addUncoveredDefenders(int battleGround, long currentlyOccupied, long defenders, long[][] pieces) {
@@ -0,0 +1,292 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.moves;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.Seer;
+import com.winkelhagen.chess.frankwalter.util.BB;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.MV;
+import com.winkelhagen.chess.frankwalter.util.Square;
+
+/**
+ * hands out the moves of a position one at a time, in stages, so that moves after a beta cut-off are never generated or scored:
+ * <ol>
+ * <li>the hash move (verified, but before any generation)</li>
+ * <li>captures with a non-negative static exchange evaluation, by most valuable victim / least valuable attacker</li>
+ * <li>the killer moves</li>
+ * <li>the captures that lose material</li>
+ * <li>the remaining moves, by history</li>
+ * </ol>
+ * When the side to move is in check all evasions are generated and scored at once.
+ * One instance is used per ply of the search.
+ */
+public class MovePicker {
+
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_GOOD_CAPTURES = 2;
+    private static final int STAGE_KILLER1 = 3;
+    private static final int STAGE_KILLER2 = 4;
+    private static final int STAGE_BAD_CAPTURES = 5;
+    private static final int STAGE_GENERATE_QUIETS = 6;
+    private static final int STAGE_QUIETS = 7;
+    private static final int STAGE_EVASIONS = 8;
+    private static final int STAGE_DONE = 9;
+
+    // victim and attacker values, indexed by piece. An empty destination square means an en passant capture.
+    private static final int[] VICTIM_VALUE = { 1, 9, 5, 3, 3, 0, 1 };
+    private static final int[] ATTACKER_VALUE = { 0, 9, 5, 3, 3, 1, 1 };
+
+    private final int[][] history;
+    private final int[][] historyBetaCut;
+    private final int[] moves = new int[Board.ABSOLUTE_MAX_MOVES];
+    private final int[] badCaptures = new int[Board.ABSOLUTE_MAX_MOVES];
+    private final int[] scratch = new int[Board.ABSOLUTE_MAX_MOVES];
+    private final int[] seeGain = new int[Seer.MAX_EXCHANGES];
+
+    private Board board;
+    private int stage;
+    private int movesNr;
+    private int index;
+    private int badCapturesNr;
+    private int badCapturesIndex;
+    // reset to 0 when they cannot be played, so that the quiet stage does not skip them
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+
+    /**
+     * @param history the number of times (weighted by depth) a move was searched, indexed by color and from / to squares
+     * @param historyBetaCut the number of times (weighted by depth) a move caused a beta cut-off, indexed by color and from / to squares
+     */
+    public MovePicker(int[][] history, int[][] historyBetaCut) {
+        this.history = history;
+        this.historyBetaCut = historyBetaCut;
+    }
+
+    /**
+     * start picking moves for a position in which the side to move is not in check.
+     */
+    public void init(Board board, int hashMove, int killer1, int killer2) {
+        this.board = board;
+        this.hashMove = hashMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        stage = STAGE_HASH;
+        badCapturesNr = 0;
+        badCapturesIndex = 0;
+    }
+
+    /**
+     * start picking moves for a position in which the side to move is in check.
+     * @return the number of legal moves
+     */
+    public int initEvasions(Board board, int kingAttacker, int hashMove, int killer1, int killer2) {
+        this.board = board;
+        stage = STAGE_EVASIONS;
+        movesNr = StaticMoveGenerator.generateOutOfCheckMoves(board, kingAttacker, moves);
+        for (int i = 0; i < movesNr; i++) {
+            if (moves[i] == hashMove) {
+                moves[i] = MV.setScore(moves[i], Evaluator.HASHSCORE);
+            } else if (moves[i] == killer1) {
+                moves[i] = MV.setScore(moves[i], Evaluator.KILLERSCORE);
+            } else if (moves[i] == killer2) {
+                moves[i] = MV.setScore(moves[i], Evaluator.KILLERSCORE - 1);
+            } else {
+                moves[i] = MV.setScore(moves[i], getScore(moves[i]));
+            }
+        }
+        index = 0;
+        return movesNr;
+    }
+
+    /**
+     * @return the next move to search, or 0 if there are no more moves
+     */
+    @SuppressWarnings("fallthrough")
+    public int next() {
+        switch (stage) {
+        case STAGE_HASH:
+            stage = STAGE_GENERATE_CAPTURES;
+            if (hashMove != 0 && StaticMoveGenerator.isLegalMove(board, hashMove, scratch)) {
+                return hashMove;
+            }
+            hashMove = 0;
+            // fall through
+        case STAGE_GENERATE_CAPTURES:
+            movesNr = StaticMoveGenerator.generateUnquiet(board, moves);
+            for (int i = 0; i < movesNr; i++) {
+                moves[i] = MV.setScore(moves[i], getCaptureScore(board, moves[i]));
+            }
+            index = 0;
+            stage = STAGE_GOOD_CAPTURES;
+            // fall through
+        case STAGE_GOOD_CAPTURES:
+            while (index < movesNr) {
+                int move = pickBest();
+                if (move == hashMove) {
+                    continue;
+                }
+                if (!Seer.seeGreaterOrEqual(move, board, 0)) {
+                    badCaptures[badCapturesNr++] = move;
+                    continue;
+                }
+                return move;
+            }
+            stage = STAGE_KILLER1;
+            // fall through
+        case STAGE_KILLER1:
+            stage = STAGE_KILLER2;
+            if (isPlayableKiller(killer1)) {
+                return killer1;
+            }
+            killer1 = 0;
+            // fall through
+        case STAGE_KILLER2:
+            stage = STAGE_BAD_CAPTURES;
+            if (isPlayableKiller(killer2)) {
+                return killer2;
+            }
+            killer2 = 0;
+            // fall through
+        case STAGE_BAD_CAPTURES:
+            if (badCapturesIndex < badCapturesNr) {
+                return badCaptures[badCapturesIndex++];
+            }
+            stage = STAGE_GENERATE_QUIETS;
+            // fall through
+        case STAGE_GENERATE_QUIETS:
+            generateQuiets();
+            stage = STAGE_QUIETS;
+            // fall through
+        case STAGE_QUIETS:
+        case STAGE_EVASIONS:
+            if (index < movesNr) {
+                return pickBest();
+            }
+            stage = STAGE_DONE;
+            // fall through
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * select the move with the highest score from the moves not yet handed out
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < movesNr; i++) {
+            if (moves[i] >> 19 > moves[best] >> 19) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index++] = move;
+        return MV.stripScore(move);
+    }
+
+    private boolean isPlayableKiller(int killer) {
+        return killer != 0 && killer != hashMove && !isCapture(killer) && StaticMoveGenerator.isLegalMove(board, killer, scratch);
+    }
+
+    /**
+     * @return true if the move captures a piece, including en passant
+     */
+    private boolean isCapture(int move) {
+        int fromSquare = MV.getFromSquare(move);
+        int toSquare = MV.getToSquare(move);
+        return board.getSquares()[toSquare] != Constants.EMPTY
+                || (board.getSquares()[fromSquare] == Constants.PAWN && BB.fileOf(fromSquare) != BB.fileOf(toSquare));
+    }
+
+    /**
+     * generate all moves, and keep those that were not handed out in an earlier stage
+     */
+    private void generateQuiets() {
+        int generatedNr = StaticMoveGenerator.generateMoves(board, moves);
+        movesNr = 0;
+        for (int i = 0; i < generatedNr; i++) {
+            int move = moves[i];
+            int promotion = MV.getPromotion(move);
+            if (move == hashMove || move == killer1 || move == killer2
+                    || (isCapture(move) && (promotion == Constants.EMPTY || promotion == Constants.QUEEN))) {
+                continue;
+            }
+            moves[movesNr++] = MV.setScore(move, getScore(move));
+        }
+        index = 0;
+    }
+
+    /**
+     * @param board the board the capture is played on
+     * @param move the capture
+     * @return the most valuable victim / least valuable attacker score of the capture, always positive
+     */
+    public static int getCaptureScore(Board board, int move) {
+        int victim = board.getSquares()[MV.getToSquare(move)];
+        int attacker = board.getSquares()[MV.getFromSquare(move)];
+        return VICTIM_VALUE[victim] * 16 - ATTACKER_VALUE[attacker] + 16;
+    }
+
+    private int getScore(int move) {
+        int fromTo = MV.getFromTo(move);
+        int to = MV.getToSquare(move);
+        int capture = board.getSquares()[to];
+        int score = 0;
+        int sideToMove = board.getSideToMove();
+        if (capture != 0) { // misses en passant captures
+            int see = Seer.see(move, board, seeGain);
+            if (see>=0) {
+                score+=Evaluator.CAPTURESCORE+see;
+            } else {
+                score+=Evaluator.KILLERSCORE-1+see;
+            }
+        } else {
+
+            int divider = history[sideToMove][fromTo];
+            if (divider!=0) {
+                //Relative History Heuristic (as seen in chess22k)
+                score = 100 * historyBetaCut[sideToMove][fromTo] / divider; //+100?  //+2?
+            } else {
+                int from = MV.getFromSquare(move);
+                int piece = board.getSquares()[from];
+                score = Evaluator.MOVE_PCSQ[piece - 1][Square.relative(to, sideToMove)] - Evaluator.MOVE_PCSQ[piece - 1][Square.relative(from, sideToMove)];
+            }
+
+
+            if ((board.getPieces()[sideToMove ^ 1][Constants.ALL] & board.getAttacked(to)) != 0) {
+                score -= 10;
+            }
+            score+=100;
+        }
+        if (MV.getPromotion(move) != Constants.EMPTY) {
+            if (MV.getPromotion(move) == Constants.QUEEN) {
+                if (capture == 0) {
+                    score = Evaluator.CAPTURESCORE + 6;
+                }
+            } else {
+                score = 0;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.moves;
+
+/**
+ * direct mapped cache for perft node counts, keyed by the zobrist hash key of the board and the remaining depth.
+ * Thread safe without locking: every slot stores the key xor-ed with the count, so a torn write never validates.
+ */
+public class PerftHashTable {
+
+    private static final long DEPTH_SALT = 0x9E3779B97F4A7C15L;
+
+    private final long[] checks;
+    private final long[] counts;
+    private final int mask;
+
+    /**
+     * @param magnitude the table holds 2^magnitude entries
+     */
+    public PerftHashTable(int magnitude) {
+        checks = new long[1 << magnitude];
+        counts = new long[1 << magnitude];
+        mask = (1 << magnitude) - 1;
+    }
+
+    /**
+     * @param hashKey the zobrist hash key of the position
+     * @param depth the remaining depth
+     * @return the stored node count, or -1 if the table does not hold one
+     */
+    public long probe(long hashKey, int depth) {
+        long key = hashKey ^ (depth * DEPTH_SALT);
+        int index = (int) key & mask;
+        long count = counts[index];
+        if ((checks[index] ^ count) == key) {
+            return count;
+        }
+        return -1;
+    }
+
+    public void store(long hashKey, int depth, long count) {
+        long key = hashKey ^ (depth * DEPTH_SALT);
+        int index = (int) key & mask;
+        counts[index] = count;
+        checks[index] = key ^ count;
+    }
+}
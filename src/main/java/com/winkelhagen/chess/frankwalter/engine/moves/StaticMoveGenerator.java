@@ -43,7 +43,7 @@ public class StaticMoveGenerator {
         while (movers != 0) {
             int fromSquare = BB.lsb(movers);
             movers &= movers - 1;
-            long newMoves = board.getAttacking()[fromSquare] & targets;
+            long newMoves = board.getAttacking(fromSquare) & targets;
             while (newMoves != 0) {
                 int toSquare = BB.lsb(newMoves);
                 newMoves &= newMoves - 1;
@@ -52,12 +52,12 @@ public class StaticMoveGenerator {
         }
         // Kings get special treatment
         int kingSquare = board.getKings(sideToMove);
-        long kingMoves = board.getAttacking()[kingSquare] & targets;
+        long kingMoves = board.getAttacking(kingSquare) & targets;
         long enemyPieces = board.getPieces()[sideToMove ^ 1][Constants.ALL];
         while (kingMoves != 0) {
             int toSquare = BB.lsb(kingMoves);
             kingMoves &= kingMoves - 1;
-            if ((board.getAttacked()[toSquare] & enemyPieces) == 0) {
+            if ((board.getAttacked(toSquare) & enemyPieces) == 0) {
                 moves[numberOfMoves++] = MV.getMove(kingSquare, toSquare);
             }
         }
@@ -99,7 +99,7 @@ public class StaticMoveGenerator {
                         if (board.getEpSquare() != -1) {
                             epBB = BB.single(board.getEpSquare());
                         }
-                        long validPawnAttack = kingAttackSquaresBishop & board.getAttacking()[pinnedPiece]
+                        long validPawnAttack = kingAttackSquaresBishop & board.getAttacking(pinnedPiece)
                                 & (enemyPieces | epBB);
                         if (validPawnAttack != 0) {
                             int toSquare = BB.lsb(validPawnAttack);
@@ -129,12 +129,12 @@ public class StaticMoveGenerator {
                     break;
                 case (Constants.ROOK):
                     if ((kingAttackSquaresRook & pinnedPieceBB) != 0) {
-                        newMoves = kingAttackSquaresRook & board.getAttacking()[pinnedPiece];
+                        newMoves = kingAttackSquaresRook & board.getAttacking(pinnedPiece);
                     }
                     break;
                 case (Constants.BISHOP):
                     if ((kingAttackSquaresBishop & pinnedPieceBB) != 0) {
-                        newMoves = kingAttackSquaresBishop & board.getAttacking()[pinnedPiece];
+                        newMoves = kingAttackSquaresBishop & board.getAttacking(pinnedPiece);
                     }
                     break;
                 default:
@@ -193,7 +193,7 @@ public class StaticMoveGenerator {
         while (movers != 0) {
             int fromSquare = BB.lsb(movers);
             movers &= movers - 1;
-            long newMoves = board.getAttacking()[fromSquare] & targets;
+            long newMoves = board.getAttacking(fromSquare) & targets;
             while (newMoves != 0) {
                 int toSquare = BB.lsb(newMoves);
                 newMoves &= newMoves - 1;
@@ -202,12 +202,12 @@ public class StaticMoveGenerator {
         }
         // Kings get special treatment
         int kingSquare = board.getKings(sideToMove);
-        long kingMoves = board.getAttacking()[kingSquare] & targets;
+        long kingMoves = board.getAttacking(kingSquare) & targets;
         long enemyPieces = board.getPieces()[sideToMove ^ 1][Constants.ALL];
         while (kingMoves != 0) {
             int toSquare = BB.lsb(kingMoves);
             kingMoves &= kingMoves - 1;
-            if ((board.getAttacked()[toSquare] & enemyPieces) == 0) {
+            if ((board.getAttacked(toSquare) & enemyPieces) == 0) {
                 moves[numberOfMoves++] = MV.getMove(kingSquare, toSquare);
             }
         }
@@ -230,7 +230,7 @@ public class StaticMoveGenerator {
                         if (board.getEpSquare() != -1) {
                             epBB = BB.single(board.getEpSquare());
                         }
-                        long validPawnAttack = kingAttackSquaresBishop & board.getAttacking()[pinnedPiece]
+                        long validPawnAttack = kingAttackSquaresBishop & board.getAttacking(pinnedPiece)
                                 & (enemyPieces | epBB);
                         if (validPawnAttack != 0) {
                             int toSquare = BB.lsb(validPawnAttack);
@@ -259,12 +259,12 @@ public class StaticMoveGenerator {
                     break;
                 case (Constants.ROOK):
                     if ((kingAttackSquaresRook & pinnedPieceBB) != 0) {
-                        newMoves = kingAttackSquaresRook & board.getAttacking()[pinnedPiece] & targets;
+                        newMoves = kingAttackSquaresRook & board.getAttacking(pinnedPiece) & targets;
                     }
                     break;
                 case (Constants.BISHOP):
                     if ((kingAttackSquaresBishop & pinnedPieceBB) != 0) {
-                        newMoves = kingAttackSquaresBishop & board.getAttacking()[pinnedPiece] & targets;
+                        newMoves = kingAttackSquaresBishop & board.getAttacking(pinnedPiece) & targets;
                     }
                     break;
                 default:
@@ -292,11 +292,11 @@ public class StaticMoveGenerator {
 
         // More than one king attacker means we cannot block / capture it: need to move king.
         if (attackingSquare == Constants.MULTIPLE_SQUARES) {
-            long kingPossibilities = board.getAttacking()[kingSquare] & ~board.getPieces()[stm][Constants.ALL];
+            long kingPossibilities = board.getAttacking(kingSquare) & ~board.getPieces()[stm][Constants.ALL];
             while (kingPossibilities != 0) {
                 int toSquare = BB.lsb(kingPossibilities);
                 kingPossibilities &= kingPossibilities - 1;
-                if ((board.getAttacked()[toSquare] & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
+                if ((board.getAttacked(toSquare) & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
                     if (((BB.getBishopMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
                             | board.getPieces()[stm ^ 1][Constants.BISHOP]))
                             | (BB.getRookMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
@@ -310,11 +310,11 @@ public class StaticMoveGenerator {
             int numSquares = interveningSquares.length;
             if (numSquares == 1) {
                 numberOfMoves = generateCapturesTo(board, moves, numberOfMoves, interveningSquares[0], stm);
-                long kingPossibilities = board.getAttacking()[kingSquare] & ~board.getPieces()[stm][Constants.ALL];
+                long kingPossibilities = board.getAttacking(kingSquare) & ~board.getPieces()[stm][Constants.ALL];
                 while (kingPossibilities != 0) {
                     int toSquare = BB.lsb(kingPossibilities);
                     kingPossibilities &= kingPossibilities - 1;
-                    if ((board.getAttacked()[toSquare] & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
+                    if ((board.getAttacked(toSquare) & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
                         if (((BB.getBishopMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
                                 | board.getPieces()[stm ^ 1][Constants.BISHOP]))
                                 | (BB.getRookMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
@@ -330,7 +330,7 @@ public class StaticMoveGenerator {
                     } else {
                         toSquare -= 8;
                     }
-                    long epPossibilities = board.getAttacked()[toSquare]
+                    long epPossibilities = board.getAttacked(toSquare)
                             & (board.getPieces()[stm][Constants.PAWN] & ~board.getPins(stm));
                     while (epPossibilities != 0) {
                         int fromSquare = BB.lsb(epPossibilities);
@@ -340,11 +340,11 @@ public class StaticMoveGenerator {
                 }
             } else {
                 numberOfMoves = generateCapturesTo(board, moves, numberOfMoves, interveningSquares[0], stm);
-                long kingPossibilities = board.getAttacking()[kingSquare] & ~board.getPieces()[stm][Constants.ALL];
+                long kingPossibilities = board.getAttacking(kingSquare) & ~board.getPieces()[stm][Constants.ALL];
                 while (kingPossibilities != 0) {
                     int toSquare = BB.lsb(kingPossibilities);
                     kingPossibilities &= kingPossibilities - 1;
-                    if ((board.getAttacked()[toSquare] & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
+                    if ((board.getAttacked(toSquare) & board.getPieces()[stm ^ 1][Constants.ALL]) == 0) {
                         if (((BB.getBishopMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
                                 | board.getPieces()[stm ^ 1][Constants.BISHOP]))
                                 | (BB.getRookMoves(toSquare, kingless) & (board.getPieces()[stm ^ 1][Constants.QUEEN]
@@ -363,11 +363,11 @@ public class StaticMoveGenerator {
     }
 
     private static boolean canCastle(Board board, int startSquare, int stm) {
-        if ((board.getAttacked()[startSquare] & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
+        if ((board.getAttacked(startSquare) & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
             return false;
-        if ((board.getAttacked()[startSquare + 1] & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
+        if ((board.getAttacked(startSquare + 1) & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
             return false;
-        if ((board.getAttacked()[startSquare + 2] & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
+        if ((board.getAttacked(startSquare + 2) & board.getPieces()[stm ^ 1][Constants.ALL]) != 0)
             return false;
         return true;
     }
@@ -758,7 +758,7 @@ public class StaticMoveGenerator {
 
     public static int getKingAttacker(Board board, int stm) {
         int kingSquare = board.getKings(stm ^ 1);
-        long kingAttackers = (board.getAttacked()[kingSquare] & board.getPieces()[stm][Constants.ALL]);
+        long kingAttackers = (board.getAttacked(kingSquare) & board.getPieces()[stm][Constants.ALL]);
 
         if (kingAttackers == 0)
             return Constants.NO_SQUARE;
@@ -776,7 +776,7 @@ public class StaticMoveGenerator {
 
     public static boolean isKingAttacked(Board board, int stm) {
         int kingSquare = BB.lsb(board.getPieces()[stm ^ 1][Constants.KING]);
-        return (board.getAttacked()[kingSquare] & board.getPieces()[stm][Constants.ALL]) != 0;
+        return (board.getAttacked(kingSquare) & board.getPieces()[stm][Constants.ALL]) != 0;
 
     }
 
@@ -898,6 +898,46 @@ public class StaticMoveGenerator {
         return generatedMovesNr;
     }
 
+    /**
+     * verify a move that was not generated for this position (such as a hash move or a killer move), without generating all moves.
+     * Only valid when the side to move is not in check.
+     *
+     * @param board the board
+     * @param move the move to verify
+     * @param scratch an array to generate moves of a single piece in, at least {@value Board#ABSOLUTE_MAX_MOVES} long
+     * @return true if generateMoves would have generated the move
+     */
+    public static boolean isLegalMove(Board board, int move, int[] scratch) {
+        int sideToMove = board.getSideToMove();
+        int fromSquare = MV.getFromSquare(move);
+        int toSquare = MV.getToSquare(move);
+        long own = board.getPieces()[sideToMove][Constants.ALL];
+        if ((own & BB.single(fromSquare)) == 0 || (own & BB.single(toSquare)) != 0) {
+            return false;
+        }
+        int piece = board.getSquares()[fromSquare];
+        int movesNr;
+        if ((board.getPins(sideToMove) & BB.single(fromSquare)) != 0) {
+            // pinned pieces are rare: check against all moves
+            movesNr = generateMoves(board, scratch);
+        } else if (piece == Constants.PAWN) {
+            movesNr = generatePawnMoves(board, scratch, 0, BB.single(fromSquare));
+        } else if (MV.getSpecial(move)) {
+            movesNr = piece == Constants.KING ? generateCastlingMoves(sideToMove, board, 0, scratch) : 0;
+        } else {
+            if (move != MV.getMove(fromSquare, toSquare) || (board.getAttacking(fromSquare) & BB.single(toSquare)) == 0) {
+                return false;
+            }
+            return piece != Constants.KING || (board.getAttacked(toSquare) & board.getPieces()[sideToMove ^ 1][Constants.ALL]) == 0;
+        }
+        for (int i = 0; i < movesNr; i++) {
+            if (scratch[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static int findLegalMove(Board board, int bookMove) {
         int[] moveArray = new int[Board.ABSOLUTE_MAX_MOVES];
         int move = 0;
@@ -29,7 +29,7 @@ public class ThoughtLine implements Serializable {
 	private int depth;
 	private long duration;
 	private int score;
-	private int totalNodeCount;
+	private long totalNodeCount;
 	private String move;
 	private String pv;
 
@@ -37,11 +37,11 @@ public class ThoughtLine implements Serializable {
 		this(0, 0, score, 0, MV.toString(move), MV.toString(move));
 	}
 
-	public ThoughtLine(int depth, long duration, int totalNodeCount, ScoredMove move, int[] principalVariation, FailHighLow fail){
+	public ThoughtLine(int depth, long duration, long totalNodeCount, ScoredMove move, int[] principalVariation, FailHighLow fail){
 		this(depth, duration, move.getScore(), totalNodeCount, MV.toString(move.getMove()), MV.toString(principalVariation, fail));
 	}
 
-	private ThoughtLine(int depth, long duration, int score, int totalNodeCount, String move, String pv) {
+	private ThoughtLine(int depth, long duration, int score, long totalNodeCount, String move, String pv) {
 		this.depth = depth;
 		this.duration = duration;
 		this.score = score;
@@ -62,10 +62,17 @@ public class ThoughtLine implements Serializable {
 		return score;
 	}
 
-	public int getTotalNodeCount() {
+	public long getTotalNodeCount() {
 		return totalNodeCount;
 	}
 
+	/**
+	 * @return the number of nodes searched per second by all search threads, or 0 if no time has passed.
+	 */
+	public long getNodesPerSecond() {
+		return duration == 0 ? 0 : totalNodeCount * 1000 / duration;
+	}
+
 	public String getMove() {
 		return move;
 	}
@@ -39,6 +39,10 @@ public class Entry {
      * FAIL_HIGH entries indicate a lower bound: the position cannot score lower than entry.score
      */
     public static final byte FAIL_HIGH = 3;
+    /**
+     * returned as static evaluation by tables that do not have one for the position
+     */
+    public static final int NO_EVAL = Short.MIN_VALUE;
 
     public long hashKey;
     public short score;
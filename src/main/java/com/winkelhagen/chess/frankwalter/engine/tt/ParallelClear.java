@@ -0,0 +1,64 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * clears large tables in chunks on all available cores.
+ */
+final class ParallelClear {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private ParallelClear() {
+        //empty
+    }
+
+    static void clear(long[] table) {
+        IntStream.range(0, chunks(table.length)).parallel()
+                .forEach(chunk -> Arrays.fill(table, chunk * CHUNK_SIZE, end(chunk, table.length), 0L));
+    }
+
+    static void clear(Object[] table) {
+        IntStream.range(0, chunks(table.length)).parallel()
+                .forEach(chunk -> Arrays.fill(table, chunk * CHUNK_SIZE, end(chunk, table.length), null));
+    }
+
+    /**
+     * clears heap as well as direct buffers.
+     */
+    static void clear(LongBuffer table) {
+        int length = table.limit();
+        IntStream.range(0, chunks(length)).parallel().forEach(chunk -> {
+            for (int i = chunk * CHUNK_SIZE; i < end(chunk, length); i++) {
+                table.put(i, 0L);
+            }
+        });
+    }
+
+    private static int chunks(int length) {
+        return (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private static int end(int chunk, int length) {
+        return (int) Math.min((long) (chunk + 1) * CHUNK_SIZE, length);
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import static com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl.ONE_PLY;
+
+/**
+ * Enumeration of the ways a bucketed transposition table chooses the entry to overwrite.
+ * Empty entries are always used first. If the bucket holds the position itself, keepSameKey decides whether that entry
+ * is overwritten or the new entry is dropped. Otherwise the entry with the lowest value is replaced (the first one on a tie).
+ * The relative age of an entry is the number of searches since it was written, 0 for entries of the current search.
+ * Depths are in fractions of a ply, see ScoutEngineImpl.ONE_PLY.
+ */
+public enum ReplacementPolicy {
+    /**
+     * keep deeper entries of the same position, unless the new entry is exact. Replace entries of older searches first,
+     * then the least deep entry.
+     */
+    DEPTH_PREFERRED {
+        @Override
+        public boolean keepSameKey(int index, int entryDepth, int relativeAge, int newDepth, byte newType) {
+            return entryDepth > newDepth && newType != Entry.EXACT;
+        }
+
+        @Override
+        public int value(long hashKey, int index, int entryDepth, int relativeAge, int newDepth) {
+            return relativeAge != 0 ? Integer.MIN_VALUE : entryDepth;
+        }
+    },
+    /**
+     * always store the new entry. Replace entries of older searches first, then the entry the hashKey points to, as in
+     * a table without buckets.
+     */
+    ALWAYS_REPLACE {
+        @Override
+        public boolean keepSameKey(int index, int entryDepth, int relativeAge, int newDepth, byte newType) {
+            return false;
+        }
+
+        @Override
+        public int value(long hashKey, int index, int entryDepth, int relativeAge, int newDepth) {
+            return relativeAge != 0 ? Integer.MIN_VALUE : ((int) (hashKey >>> 32) ^ index) & 3;
+        }
+    },
+    /**
+     * the first entry of a bucket is always replaced, the others are depth preferred. A new entry replaces the least deep
+     * of the depth preferred entries if it is at least as deep, otherwise it goes to the first entry.
+     */
+    TWO_TIER {
+        @Override
+        public boolean keepSameKey(int index, int entryDepth, int relativeAge, int newDepth, byte newType) {
+            return index != 0 && entryDepth > newDepth && newType != Entry.EXACT;
+        }
+
+        @Override
+        public int value(long hashKey, int index, int entryDepth, int relativeAge, int newDepth) {
+            if (relativeAge != 0) {
+                return Integer.MIN_VALUE;
+            }
+            return index == 0 ? newDepth * 2 + 1 : entryDepth * 2;
+        }
+    },
+    /**
+     * weigh depth against age: every search since an entry was written counts as AGE_WEIGHT plies less depth. Entries
+     * of the same position are kept only if they are of the current search and deeper.
+     */
+    AGE_DEPTH_WEIGHTED {
+        @Override
+        public boolean keepSameKey(int index, int entryDepth, int relativeAge, int newDepth, byte newType) {
+            return relativeAge == 0 && entryDepth > newDepth && newType != Entry.EXACT;
+        }
+
+        @Override
+        public int value(long hashKey, int index, int entryDepth, int relativeAge, int newDepth) {
+            return entryDepth - relativeAge * AGE_WEIGHT * ONE_PLY;
+        }
+    };
+
+    private static final int AGE_WEIGHT = 8;
+
+    /**
+     * @param index the index of the entry in the bucket
+     * @param entryDepth the depth of the entry for the same position
+     * @param relativeAge the number of searches since the entry was written
+     * @param newDepth the depth of the new entry
+     * @param newType the type of the new entry
+     * @return true if the existing entry should be kept and the new entry dropped
+     */
+    public abstract boolean keepSameKey(int index, int entryDepth, int relativeAge, int newDepth, byte newType);
+
+    /**
+     * @param hashKey the hashKey of the new entry
+     * @param index the index of the entry in the bucket
+     * @param entryDepth the depth of the entry
+     * @param relativeAge the number of searches since the entry was written
+     * @param newDepth the depth of the new entry
+     * @return the value of keeping the entry; the entry with the lowest value is replaced
+     */
+    public abstract int value(long hashKey, int index, int entryDepth, int relativeAge, int newDepth);
+
+    /**
+     * @param policy the name of the policy, case insensitive, with or without underscores
+     * @return the matching ReplacementPolicy or null if there is no such policy
+     */
+    public static ReplacementPolicy parse(String policy) {
+        for (ReplacementPolicy replacementPolicy : values()) {
+            if (replacementPolicy.name().replace("_", "").equalsIgnoreCase(policy.replace("_", "").replace("-", ""))) {
+                return replacementPolicy;
+            }
+        }
+        return null;
+    }
+}
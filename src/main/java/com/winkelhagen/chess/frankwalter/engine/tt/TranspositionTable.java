@@ -17,16 +17,95 @@
  */
 package com.winkelhagen.chess.frankwalter.engine.tt;
 
+import java.io.File;
+import java.io.IOException;
+
 public interface TranspositionTable {
 
-	void setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth);
+	/**
+	 * returned by setEntry when a deeper entry for the same position was kept
+	 */
+	int NOT_STORED = 0;
+	/**
+	 * returned by setEntry when the entry was stored in an empty place
+	 */
+	int STORED_EMPTY = 1;
+	/**
+	 * returned by setEntry when the entry overwrote an entry for the same position
+	 */
+	int STORED_SAME_KEY = 2;
+	/**
+	 * returned by setEntry when the entry overwrote an entry for a different position
+	 */
+	int STORED_FOREIGN = 3;
+	/**
+	 * the number of entries sampled by getHashfull
+	 */
+	int HASHFULL_SAMPLE = 1000;
+
+	/**
+	 * @return one of NOT_STORED, STORED_EMPTY, STORED_SAME_KEY or STORED_FOREIGN
+	 */
+	int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth);
+
+	/**
+	 * store an entry together with the static evaluation of the position. Tables without room for it ignore the evaluation.
+	 * @return one of NOT_STORED, STORED_EMPTY, STORED_SAME_KEY or STORED_FOREIGN
+	 */
+	default int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth, int staticEval) {
+		return setEntry(hashKey, score, selDepth, move, type, depth);
+	}
 
 	long getEntry(long hashKey);
 
+	/**
+	 * @return the static evaluation stored for the position, or Entry.NO_EVAL
+	 */
+	default int getStaticEval(long hashKey) {
+		return Entry.NO_EVAL;
+	}
+
 	void free();
 
 	void clear();
 
 	void increaseAge();
 
+	/**
+	 * @return the number of bytes allocated for the entries of this table
+	 */
+	long getSizeInBytes();
+
+	/**
+	 * @return the permille of the first HASHFULL_SAMPLE entries that is in use (by the current search, for tables that age
+	 * their entries)
+	 */
+	int getHashfull();
+
+	/**
+	 * @return true if the table can be saved to and loaded from a file (see save and load)
+	 */
+	default boolean isPersistent() {
+		return false;
+	}
+
+	/**
+	 * write the entries to a file, so that a later session can continue with them (see load).
+	 * Only persistent tables can be saved, the others throw an UnsupportedOperationException.
+	 * @param file the file to write, it is replaced when the save completes
+	 */
+	default void save(File file) throws IOException {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be saved");
+	}
+
+	/**
+	 * replace the entries by those saved in the file. Files saved by another engine version or evaluation, or by a table of
+	 * another type or size, are rejected. If an IOException occurs the table may be partially loaded and should be cleared.
+	 * @param file the file to read
+	 * @return true if the entries were loaded, false if the file was rejected
+	 */
+	default boolean load(File file) throws IOException {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -17,8 +17,6 @@
  */
 package com.winkelhagen.chess.frankwalter.engine.tt;
 
-import java.util.Arrays;
-
 /**
  * Of the three implementations of the Transposition table, this one seems to work the best in practice: we see a much higher nodecount in short games.
  * @author Laurens
@@ -45,14 +43,14 @@ public class TranspositionTableArrayImpl implements TranspositionTable {
 	 * @see com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable#setEntry(long, short, short, int, byte)
 	 */
     @Override
-	public void setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
 		int key = (int)hashKey & mask;
 		long entryhash = table[key*2];
 		long entry = table[key*2+1];
 		if (entryhash==hashKey && Entry._depth(entry)>selDepth && type != Entry.EXACT){
 			// If this is the same position AND it is searched deeper then do not overwrite.
 			// Unless the new entry is exact: note that then the old entry would not be exact OR would be less deep.
-			return;
+			return NOT_STORED;
 		}
 //		//TODO figure out if this improves shown PV by not removing PV entries from the TT. (seems 1 worse in WAC...)
 //		if (entryhash==hashKey) {
@@ -70,6 +68,10 @@ public class TranspositionTableArrayImpl implements TranspositionTable {
 //		}
 		table[key*2] = hashKey;
 		table[key*2+1] = Entry.toLong(Entry.correctMateScore(score, depth), selDepth, move, type);
+		if (entryhash==0){
+			return STORED_EMPTY;
+		}
+		return entryhash==hashKey ? STORED_SAME_KEY : STORED_FOREIGN;
 	}
 	
 	/* (non-Javadoc)
@@ -93,7 +95,7 @@ public class TranspositionTableArrayImpl implements TranspositionTable {
 
 	@Override
 	public void clear() {
-		Arrays.fill(table, 0);
+		ParallelClear.clear(table);
 	}
 
 	@Override
@@ -101,4 +103,21 @@ public class TranspositionTableArrayImpl implements TranspositionTable {
 		//no-op
 	}
 
+	@Override
+	public long getSizeInBytes() {
+		return (1L << magnitude) * 8 * 2;
+	}
+
+	@Override
+	public int getHashfull() {
+		int sample = Math.min(HASHFULL_SAMPLE, table.length/2);
+		int used = 0;
+		for (int i=0; i<sample; i++){
+			if (table[i*2] != 0){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
 }
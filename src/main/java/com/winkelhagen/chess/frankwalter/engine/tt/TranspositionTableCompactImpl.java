@@ -0,0 +1,225 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.util.MV;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Transposition table with three entries in a bucket of four longs (32 bytes, so six entries per cache line where the
+ * TranspositionTableQuadArrayImpl has four). The first three longs hold the data of an entry:
+ * <pre>
+ * move (from, to, promotion, special)  16 bits
+ * score                                16 bits
+ * static eval                          16 bits
+ * depth                                14 bits
+ * type                                  2 bits
+ * </pre>
+ * The fourth long holds for every entry 16 bits of key verification and a 5 bit generation. The verification is the
+ * upper 16 bits of the hashKey xor-ed with the folded data, so data and verification written by different threads do
+ * not validate (except by chance). The lower bits of the hashKey select the bucket.
+ */
+public class TranspositionTableCompactImpl implements TranspositionTable {
+	private static final int BUCKET_LONGS = 4;
+	private static final int ENTRIES = 3;
+	private static final int SLOT_BITS = 21;
+	private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+	private static final int CHECK_MASK = 0xFFFF;
+	private static final int GENERATION_MASK = 31;
+	private static final int DEPTH_MASK = (1 << 14) - 1;
+
+	private long[] table = null;
+
+	private int magnitude;
+	private int mask; //bits of the key selecting the bucket
+	private int currentAge;
+	private final ReplacementPolicy policy;
+
+	/**
+	 * @param magnitude the table takes the memory of 2^magnitude entries of 16 bytes, and holds 1.5 * 2^magnitude entries
+	 */
+	public TranspositionTableCompactImpl(int magnitude){
+		this(magnitude, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+
+	/**
+	 * @param magnitude the table takes the memory of 2^magnitude entries of 16 bytes, and holds 1.5 * 2^magnitude entries
+	 * @param policy decides which entry of a bucket is replaced
+	 */
+	public TranspositionTableCompactImpl(int magnitude, ReplacementPolicy policy){
+		this.magnitude = magnitude;
+		this.policy = policy;
+		this.mask = (1 << (magnitude-1)) - 1;
+		table = new long[(1 << (magnitude-1)) * BUCKET_LONGS];
+		currentAge = 0;
+	}
+
+	@Override
+	public void increaseAge(){
+		currentAge = (currentAge+1)&GENERATION_MASK;
+	}
+
+	@Override
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+		return setEntry(hashKey, score, selDepth, move, type, depth, Entry.NO_EVAL);
+	}
+
+	@Override
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth, int staticEval){
+		int bucket = (int)(hashKey & mask) * BUCKET_LONGS;
+		int key = (int)(hashKey >>> 48);
+		long checks = table[bucket + ENTRIES];
+		int replaceIndex = 0;
+		int replaceValue = Integer.MAX_VALUE;
+		int result = STORED_FOREIGN;
+		for (int i=0; i<ENTRIES; i++){
+			long data = table[bucket + i];
+			if (data == 0){
+				replaceIndex = i;
+				result = STORED_EMPTY;
+				break;
+			}
+			int relativeAge = (currentAge - ((int)(checks >>> (SLOT_BITS*i + 16)) & GENERATION_MASK)) & GENERATION_MASK;
+			if (isMatch(checks, i, data, key)){
+				//this is the one
+				if (policy.keepSameKey(i, depth(data), relativeAge, selDepth, type)){
+					return NOT_STORED;
+				}
+				if (staticEval == Entry.NO_EVAL){
+					staticEval = (short)(data >>> 32);
+				}
+				replaceIndex = i;
+				result = STORED_SAME_KEY;
+				break;
+			}
+			int value = policy.value(hashKey, i, depth(data), relativeAge, selDepth);
+			if (value<replaceValue){
+				replaceIndex = i;
+				replaceValue = value;
+			}
+		}
+		long data = (MV.toCompact(move) & 0xFFFFL)
+				| ((Entry.correctMateScore(score, depth) & 0xFFFFL) << 16)
+				| ((staticEval & 0xFFFFL) << 32)
+				| ((long)(selDepth & DEPTH_MASK) << 48)
+				| ((long)type << 62);
+		long slot = ((key ^ fold(data)) & CHECK_MASK) | ((long)currentAge << 16);
+		int shift = SLOT_BITS*replaceIndex;
+		table[bucket + replaceIndex] = data;
+		table[bucket + ENTRIES] = (checks & ~(SLOT_MASK << shift)) | (slot << shift);
+		return result;
+	}
+
+	@Override
+	public long getEntry(long hashKey){
+		long data = findData(hashKey);
+		if (data == 0){
+			return 0;
+		}
+		return Entry.toLong((short)(data >>> 16), (short)depth(data), MV.fromCompact((int)data & 0xFFFF), (byte)(data >>> 62));
+	}
+
+	@Override
+	public int getStaticEval(long hashKey){
+		long data = findData(hashKey);
+		if (data == 0){
+			return Entry.NO_EVAL;
+		}
+		return (short)(data >>> 32);
+	}
+
+	private long findData(long hashKey){
+		int bucket = (int)(hashKey & mask) * BUCKET_LONGS;
+		int key = (int)(hashKey >>> 48);
+		long checks = table[bucket + ENTRIES];
+		for (int i=0; i<ENTRIES; i++){
+			long data = table[bucket + i];
+			if (data != 0 && isMatch(checks, i, data, key)){
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean isMatch(long checks, int index, long data, int key){
+		return (((int)(checks >>> (SLOT_BITS*index)) ^ fold(data)) & CHECK_MASK) == key;
+	}
+
+	private static int fold(long data){
+		return (int)(data ^ (data >>> 16) ^ (data >>> 32) ^ (data >>> 48));
+	}
+
+	private static int depth(long data){
+		return (int)(data >>> 48) & DEPTH_MASK;
+	}
+
+	@Override
+	public void free() {
+		table = null;
+	}
+
+	@Override
+	public void clear() {
+		currentAge = 0;
+		ParallelClear.clear(table);
+	}
+
+	@Override
+	public long getSizeInBytes() {
+		return (1L << magnitude) * 8 * 2;
+	}
+
+	@Override
+	public int getHashfull() {
+		int buckets = Math.min(HASHFULL_SAMPLE / ENTRIES, table.length / BUCKET_LONGS);
+		int used = 0;
+		for (int bucket=0; bucket<buckets*BUCKET_LONGS; bucket+=BUCKET_LONGS){
+			long checks = table[bucket + ENTRIES];
+			for (int i=0; i<ENTRIES; i++){
+				if (table[bucket + i] != 0 && ((int)(checks >>> (SLOT_BITS*i + 16)) & GENERATION_MASK) == currentAge){
+					used++;
+				}
+			}
+		}
+		return used * 1000 / (buckets * ENTRIES);
+	}
+
+	@Override
+	public boolean isPersistent() {
+		return true;
+	}
+
+	@Override
+	public void save(File file) throws IOException {
+		TranspositionTableSnapshot.save(file, this, new long[]{currentAge},
+				(index, chunk) -> chunk.put(table, (int) index, chunk.remaining()));
+	}
+
+	@Override
+	public boolean load(File file) throws IOException {
+		long[] state = new long[TranspositionTableSnapshot.STATE_LONGS];
+		if (!TranspositionTableSnapshot.load(file, this, state, (index, chunk) -> chunk.get(table, (int) index, chunk.remaining()))) {
+			return false;
+		}
+		currentAge = (int) state[0];
+		return true;
+	}
+
+}
@@ -26,8 +26,9 @@ public class TranspositionTableDummy implements TranspositionTable {
     }
 
     @Override
-    public void setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth) {
+    public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth) {
         // Dummy
+        return NOT_STORED;
     }
 
     @Override
@@ -45,4 +46,14 @@ public class TranspositionTableDummy implements TranspositionTable {
         //no-op
     }
 
+    @Override
+    public long getSizeInBytes() {
+        return 0;
+    }
+
+    @Override
+    public int getHashfull() {
+        return 0;
+    }
+
 }
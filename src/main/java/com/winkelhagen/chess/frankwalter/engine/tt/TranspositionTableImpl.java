@@ -17,8 +17,6 @@
  */
 package com.winkelhagen.chess.frankwalter.engine.tt;
 
-import java.util.Arrays;
-
 /**
  * Of the three implementations of the Transposition table, this one seems to work the best in practice: we see a much
  * higher nodecount in short games.
@@ -49,24 +47,28 @@ public class TranspositionTableImpl implements TranspositionTable {
      * @see com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable#setEntry(long, short, short, int, byte)
      */
     @Override
-    public void setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth) {
+    public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth) {
         short todepth = Entry.todepth(selDepth, type);
         int key = (int) hashKey & mask;
         Entry entry = table[key];
+        int result;
         if (entry == null) {
             entry = new Entry();
             table[key] = entry;
+            result = STORED_EMPTY;
         } else {
             if (entry.hashKey == hashKey && Entry._depth(entry.depth) > selDepth && type != Entry.EXACT) {
                 // If this is the same position AND it is searched deeper then do not overwrite.
                 // Unless the new entry is exact: note that then the old entry would not be exact OR would be less deep.
-                return;
+                return NOT_STORED;
             }
+            result = entry.hashKey == hashKey ? STORED_SAME_KEY : STORED_FOREIGN;
         }
         entry.hashKey = hashKey;
         entry.depth = todepth;
         entry.score = Entry.correctMateScore(score, todepth);
         entry.move = move;
+        return result;
     }
 
     /*
@@ -90,7 +92,7 @@ public class TranspositionTableImpl implements TranspositionTable {
 
     @Override
     public void clear() {
-        Arrays.fill(table, null);
+        ParallelClear.clear(table);
     }
 
     @Override
@@ -98,4 +100,22 @@ public class TranspositionTableImpl implements TranspositionTable {
         //no-op
     }
 
+    @Override
+    public long getSizeInBytes() {
+        //only the references: the entries themselves are allocated on demand
+        return (1L << magnitude) * 8;
+    }
+
+    @Override
+    public int getHashfull() {
+        int sample = Math.min(HASHFULL_SAMPLE, table.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (table[i] != null) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
 }
@@ -0,0 +1,175 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.util.MV;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Transposition table that can be shared by search threads without locking.
+ * Like the TranspositionTableQuadArrayImpl it uses buckets of four entries of two longs, but every bit of the data word
+ * is verified: the first long holds hashKey^data (Hyatt's lockless hashing). An entry of which the two longs were written
+ * by different threads (or a long that was torn by the JVM) does not validate, so getEntry never returns a mix of two entries.
+ * The age of an entry is stored in the unused upper bits of the move in the data word.
+ * Clearing the table is O(1): the verification word is also xor-ed with a salt per generation, so entries of
+ * earlier generations no longer validate. They are marked as old, so they are the first to be replaced.
+ * Which entry of a full bucket is replaced is decided by the ReplacementPolicy.
+ */
+public class TranspositionTableLocklessImpl implements TranspositionTable {
+	private static final int AGE_SHIFT = 51;
+	private static final int AGE_MASK = (1 << (64 - AGE_SHIFT)) - 1;
+	private static final long ENTRY_MASK = (1L << AGE_SHIFT) - 1;
+	private static final long GENERATION_SALT = 0x9E3779B97F4A7C15L;
+
+	private long[] table = null;
+
+	private int magnitude; //bits of the key
+	private long mask;
+	private int currentAge;
+	private int generation;
+	private long salt;
+	private final ReplacementPolicy policy;
+
+	public TranspositionTableLocklessImpl(int magnitude){
+		this(magnitude, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+
+	public TranspositionTableLocklessImpl(int magnitude, ReplacementPolicy policy){
+		this.magnitude = magnitude;
+		this.policy = policy;
+		this.mask = (1 << (magnitude-2)) -1L;
+		initTable();
+	}
+
+	private void initTable(){
+		int size = 1 << magnitude;
+		table = new long[size*2];
+		currentAge = 0;
+	}
+
+	@Override
+	public void increaseAge(){
+		currentAge = (currentAge+1)&AGE_MASK;
+	}
+
+	@Override
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+		int key = (int)(hashKey & mask)<<2;
+		int replaceIndex = 0;
+		int replaceValue = Integer.MAX_VALUE;
+		int result = STORED_FOREIGN;
+		for (int i=0; i<4;i++) {
+			long check = table[(key+i) * 2] ^ salt;
+			long data = table[(key+i) * 2 + 1];
+			if (check==salt && data==0){
+				replaceIndex = i;
+				result = STORED_EMPTY;
+				break;
+			}
+			int entryDepth = Entry._depth(data);
+			int relativeAge = (currentAge - (int)(data >>> AGE_SHIFT)) & AGE_MASK;
+			if ((check^data) == hashKey) {
+				//this is the one
+				if (policy.keepSameKey(i, entryDepth, relativeAge, selDepth, type)){
+					return NOT_STORED;
+				}
+				replaceIndex = i;
+				result = STORED_SAME_KEY;
+				break;
+			}
+			int value = policy.value(hashKey, i, entryDepth, relativeAge, selDepth);
+			if (value<replaceValue){
+				replaceIndex = i;
+				replaceValue = value;
+			}
+		}
+		long data = Entry.toLong(Entry.correctMateScore(score, depth), selDepth, MV.stripScore(move), type) | ((long)currentAge << AGE_SHIFT);
+		table[(key+replaceIndex)*2] = hashKey^data^salt;
+		table[(key+replaceIndex)*2+1] = data;
+		return result;
+	}
+
+	@Override
+	public long getEntry(long hashKey){
+		int key = (int)(hashKey & mask)<<2;
+		for (int i=0; i<4;i++) {
+			long check = table[(key+i) * 2] ^ salt;
+			long data = table[(key+i) * 2 + 1];
+			if ((check^data) == hashKey) {
+				return data & ENTRY_MASK;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void free() {
+		table = null;
+	}
+
+	@Override
+	public void clear() {
+		generation++;
+		salt = generation * GENERATION_SALT;
+		increaseAge();
+	}
+
+	@Override
+	public long getSizeInBytes() {
+		return (1L << magnitude) * 8 * 2;
+	}
+
+	@Override
+	public int getHashfull() {
+		int sample = Math.min(HASHFULL_SAMPLE, table.length/2);
+		int used = 0;
+		for (int i=0; i<sample; i++){
+			long data = table[i*2+1];
+			if (data != 0 && (int)(data >>> AGE_SHIFT) == currentAge){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	@Override
+	public boolean isPersistent() {
+		return true;
+	}
+
+	@Override
+	public void save(File file) throws IOException {
+		TranspositionTableSnapshot.save(file, this, new long[]{currentAge, generation, salt},
+				(index, chunk) -> chunk.put(table, (int) index, chunk.remaining()));
+	}
+
+	@Override
+	public boolean load(File file) throws IOException {
+		long[] state = new long[TranspositionTableSnapshot.STATE_LONGS];
+		if (!TranspositionTableSnapshot.load(file, this, state, (index, chunk) -> chunk.get(table, (int) index, chunk.remaining()))) {
+			return false;
+		}
+		currentAge = (int) state[0];
+		generation = (int) state[1];
+		salt = state[2];
+		return true;
+	}
+
+}
@@ -0,0 +1,259 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.util.MV;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Transposition table in a memory mapped file, so that several engine processes (on the same machine) can share it.
+ * Put the file on a memory backed file system such as /dev/shm.
+ * The entries are those of the TranspositionTableLocklessImpl: buckets of four entries of two longs, hashKey^data and
+ * data, where data is an Entry with the age in the upper bits. Processes write without locking; an entry of which the two
+ * longs were written by different processes does not validate.
+ * The file starts with a header of one bucket: magic, format version, version key, size in bytes and age. A process that
+ * finds a file with another header (another engine version, evaluation or table size) replaces it by a new, empty file.
+ * Processes that still map the old file keep using it, but no longer share with the others. Creating and checking the file
+ * is guarded by a lock on a sibling '.lock' file.
+ * The age is shared as well: it is read from the header on every store, and every new search (of any process) increments
+ * it under the same lock. So the entries of all running searches are current, and those of finished searches of any
+ * process are older. clear() does not remove entries (that would throw away the work of the other processes), it only
+ * starts a new age.
+ */
+public class TranspositionTableMappedImpl implements TranspositionTable {
+	private static final long MAGIC = 0x46574B5454534D50L; //FWKTTSMP
+	private static final long FORMAT_VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final int AGE_INDEX = 4;
+	private static final int BUCKET_LONGS = 8;
+	private static final int CHUNK_BUCKET_BITS = 24;
+	private static final int AGE_SHIFT = 51;
+	private static final int AGE_MASK = (1 << (64 - AGE_SHIFT)) - 1;
+	private static final long ENTRY_MASK = (1L << AGE_SHIFT) - 1;
+
+	private final File file;
+	private final long sizeInBytes;
+	private final long mask;
+	private final ReplacementPolicy policy;
+	private FileChannel lockChannel;
+	private LongBuffer header;
+	private LongBuffer[] chunks;
+
+	/**
+	 * map the table in the file, creating the file if it does not exist or does not fit.
+	 * @param magnitude the table holds 2^magnitude entries of 16 bytes
+	 * @param file the file that holds the table
+	 * @param policy decides which entry of a bucket is replaced
+	 */
+	public TranspositionTableMappedImpl(int magnitude, File file, ReplacementPolicy policy) {
+		this.file = file;
+		this.sizeInBytes = (1L << magnitude) * 16;
+		this.mask = (1L << (magnitude-2)) - 1;
+		this.policy = policy;
+		try {
+			map();
+		} catch (IOException e) {
+			throw new UncheckedIOException("unable to map the transposition table in " + file, e);
+		}
+	}
+
+	private void map() throws IOException {
+		Path path = file.toPath();
+		//the lock channel stays open: increaseAge locks it to update the age in the header
+		lockChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = lockChannel.lock();
+			try {
+				if (!hasValidHeader(path)) {
+					create(path);
+				}
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					header = map(channel, 0, HEADER_BYTES);
+					long chunkBytes = (long) BUCKET_LONGS * 8 << CHUNK_BUCKET_BITS;
+					chunks = new LongBuffer[(int) ((sizeInBytes + chunkBytes - 1) / chunkBytes)];
+					for (int chunk = 0; chunk < chunks.length; chunk++) {
+						long offset = chunk * chunkBytes;
+						chunks[chunk] = map(channel, HEADER_BYTES + offset, Math.min(chunkBytes, sizeInBytes - offset));
+					}
+				}
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	private boolean hasValidHeader(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			if (channel.size() != HEADER_BYTES + sizeInBytes) {
+				return false;
+			}
+			LongBuffer header = map(channel, 0, HEADER_BYTES);
+			return header.get() == MAGIC && header.get() == FORMAT_VERSION
+					&& header.get() == TranspositionTableSnapshot.versionKey() && header.get() == sizeInBytes;
+		}
+	}
+
+	/**
+	 * create an empty table next to the file and move it in place, so that processes using the old file are not disturbed.
+	 */
+	private void create(Path path) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			//the file is extended with zeros, which are empty entries
+			channel.write(ByteBuffer.allocate(1), HEADER_BYTES + sizeInBytes - 1);
+			LongBuffer header = map(channel, 0, HEADER_BYTES);
+			header.put(MAGIC).put(FORMAT_VERSION).put(TranspositionTableSnapshot.versionKey()).put(sizeInBytes);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static LongBuffer map(FileChannel channel, long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_WRITE, position, length).order(ByteOrder.nativeOrder()).asLongBuffer();
+	}
+
+	/**
+	 * start a new age for all processes that share the table.
+	 */
+	@Override
+	public synchronized void increaseAge(){
+		try {
+			FileLock lock = lockChannel.lock();
+			try {
+				header.put(AGE_INDEX, (header.get(AGE_INDEX) + 1) & AGE_MASK);
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("unable to lock the transposition table in " + file, e);
+		}
+	}
+
+	@Override
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+		long bucket = hashKey & mask;
+		LongBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+		int key = (int) (bucket & ((1 << CHUNK_BUCKET_BITS) - 1)) * BUCKET_LONGS;
+		int replaceIndex = 0;
+		int replaceValue = Integer.MAX_VALUE;
+		int result = STORED_FOREIGN;
+		int currentAge = (int) header.get(AGE_INDEX);
+		for (int i=0; i<4;i++) {
+			long check = chunk.get(key + i*2);
+			long data = chunk.get(key + i*2 + 1);
+			if (check==0 && data==0){
+				replaceIndex = i;
+				result = STORED_EMPTY;
+				break;
+			}
+			int entryDepth = Entry._depth(data);
+			int relativeAge = (currentAge - (int)(data >>> AGE_SHIFT)) & AGE_MASK;
+			if ((check^data) == hashKey) {
+				//this is the one
+				if (policy.keepSameKey(i, entryDepth, relativeAge, selDepth, type)){
+					return NOT_STORED;
+				}
+				replaceIndex = i;
+				result = STORED_SAME_KEY;
+				break;
+			}
+			int value = policy.value(hashKey, i, entryDepth, relativeAge, selDepth);
+			if (value<replaceValue){
+				replaceIndex = i;
+				replaceValue = value;
+			}
+		}
+		long data = Entry.toLong(Entry.correctMateScore(score, depth), selDepth, MV.stripScore(move), type) | ((long)currentAge << AGE_SHIFT);
+		chunk.put(key + replaceIndex*2, hashKey^data);
+		chunk.put(key + replaceIndex*2 + 1, data);
+		return result;
+	}
+
+	@Override
+	public long getEntry(long hashKey){
+		long bucket = hashKey & mask;
+		LongBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+		int key = (int) (bucket & ((1 << CHUNK_BUCKET_BITS) - 1)) * BUCKET_LONGS;
+		for (int i=0; i<4;i++) {
+			long check = chunk.get(key + i*2);
+			long data = chunk.get(key + i*2 + 1);
+			if ((check^data) == hashKey) {
+				return data & ENTRY_MASK;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * drop the mapping; it is released when the buffers are garbage collected. The file stays, for the other processes.
+	 */
+	@Override
+	public void free() {
+		chunks = null;
+		header = null;
+		try {
+			lockChannel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("unable to close the lock of " + file, e);
+		}
+	}
+
+	@Override
+	public void clear() {
+		increaseAge();
+	}
+
+	@Override
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+
+	@Override
+	public int getHashfull() {
+		LongBuffer chunk = chunks[0];
+		int currentAge = (int) header.get(AGE_INDEX);
+		int sample = (int) Math.min(HASHFULL_SAMPLE, sizeInBytes / 16);
+		int used = 0;
+		for (int i=0; i<sample; i++){
+			long data = chunk.get(i*2+1);
+			if (data != 0 && (int)(data >>> AGE_SHIFT) == currentAge){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+}
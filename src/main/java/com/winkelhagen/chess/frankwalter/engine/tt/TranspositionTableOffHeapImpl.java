@@ -0,0 +1,274 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.util.MV;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Transposition table in native memory, for tables that do not fit in (or should not burden) the java heap.
+ * The table is an array of direct buffers of 16 MB (CHUNK_BUCKET_BITS), like the TranspositionTableMappedImpl, so the
+ * table size is only limited by the available memory and -XX:MaxDirectMemorySize.
+ * The layout and the lockless verification are those of the TranspositionTableLocklessImpl: buckets of four entries of
+ * two longs (hashKey^data, data). Like in the TranspositionTableLocklessImpl, clearing only starts a new generation.
+ * The chunks are allocated (and so zeroed) by all cores, so that the pages are spread over the memory nodes of the cores
+ * that use them.
+ * Every chunk is allocated 64 bytes too large and sliced at the first 64 byte boundary, so that a bucket never straddles
+ * two cache lines. The address is found with ByteBuffer.alignmentOffset on java 9+ and with DirectBuffer.address on java 8.
+ */
+public class TranspositionTableOffHeapImpl implements TranspositionTable {
+	private static final int BUCKET_LONGS = 8;
+	private static final int CHUNK_BUCKET_BITS = 18;
+	private static final int CHUNK_LONG_BITS = CHUNK_BUCKET_BITS + 3;
+	private static final int AGE_SHIFT = 51;
+	private static final int AGE_MASK = (1 << (64 - AGE_SHIFT)) - 1;
+	private static final long ENTRY_MASK = (1L << AGE_SHIFT) - 1;
+	private static final long GENERATION_SALT = 0x9E3779B97F4A7C15L;
+	static final int BUCKET_BYTES = BUCKET_LONGS * 8;
+	private static final Method ALIGNMENT_OFFSET = findMethod(ByteBuffer.class.getName(), "alignmentOffset", int.class, int.class);
+	private static final Method ADDRESS = findMethod("sun.nio.ch.DirectBuffer", "address");
+
+	private final long sizeInBytes;
+	private final long mask;
+	private LongBuffer[] chunks;
+	private int currentAge;
+	private int generation;
+	private long salt;
+	private final ReplacementPolicy policy;
+
+	/**
+	 * @param magnitude the table holds 2^magnitude entries of 16 bytes
+	 */
+	public TranspositionTableOffHeapImpl(int magnitude){
+		this(magnitude, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+
+	/**
+	 * @param magnitude the table holds 2^magnitude entries of 16 bytes
+	 * @param policy decides which entry of a bucket is replaced
+	 */
+	public TranspositionTableOffHeapImpl(int magnitude, ReplacementPolicy policy){
+		this.policy = policy;
+		sizeInBytes = (1L << magnitude) * 16;
+		mask = (1L << (magnitude-2)) - 1;
+		long chunkBytes = (long) BUCKET_LONGS * 8 << CHUNK_BUCKET_BITS;
+		chunks = IntStream.range(0, (int) ((sizeInBytes + chunkBytes - 1) / chunkBytes)).parallel()
+				.mapToObj(chunk -> allocateAligned((int) Math.min(chunkBytes, sizeInBytes - chunk * chunkBytes))
+						.order(ByteOrder.nativeOrder()).asLongBuffer())
+				.toArray(LongBuffer[]::new);
+	}
+
+	/**
+	 * allocate a direct buffer that starts at a 64 byte boundary.
+	 * @param bytes the size of the buffer
+	 * @return the aligned buffer, which keeps the over-allocated buffer alive
+	 */
+	static ByteBuffer allocateAligned(int bytes){
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes + BUCKET_BYTES);
+		int offset = alignmentOffset(buffer);
+		if (offset < 0){
+			offset = 0;
+		}
+		buffer.position(offset);
+		buffer.limit(offset + bytes);
+		return buffer.slice();
+	}
+
+	/**
+	 * @param buffer a direct buffer
+	 * @return the number of bytes from the start of the buffer to the first 64 byte boundary, or -1 if the address of the
+	 * buffer cannot be read on this jvm
+	 */
+	static int alignmentOffset(ByteBuffer buffer){
+		try {
+			long misalignment;
+			if (ALIGNMENT_OFFSET != null){
+				misalignment = (Integer) ALIGNMENT_OFFSET.invoke(buffer, 0, BUCKET_BYTES);
+			} else if (ADDRESS != null){
+				misalignment = (Long) ADDRESS.invoke(buffer) & (BUCKET_BYTES - 1);
+			} else {
+				return -1;
+			}
+			return (int) ((BUCKET_BYTES - misalignment) & (BUCKET_BYTES - 1));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	private static Method findMethod(String className, String name, Class<?>... parameterTypes){
+		try {
+			return Class.forName(className).getMethod(name, parameterTypes);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void increaseAge(){
+		currentAge = (currentAge+1)&AGE_MASK;
+	}
+
+	@Override
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+		long bucket = hashKey & mask;
+		LongBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+		int key = (int) (bucket & ((1 << CHUNK_BUCKET_BITS) - 1)) * BUCKET_LONGS;
+		int replaceIndex = 0;
+		int replaceValue = Integer.MAX_VALUE;
+		int result = STORED_FOREIGN;
+		for (int i=0; i<4;i++) {
+			long check = chunk.get(key + i*2) ^ salt;
+			long data = chunk.get(key + i*2 + 1);
+			if (check==salt && data==0){
+				replaceIndex = i;
+				result = STORED_EMPTY;
+				break;
+			}
+			int entryDepth = Entry._depth(data);
+			int relativeAge = (currentAge - (int)(data >>> AGE_SHIFT)) & AGE_MASK;
+			if ((check^data) == hashKey) {
+				//this is the one
+				if (policy.keepSameKey(i, entryDepth, relativeAge, selDepth, type)){
+					return NOT_STORED;
+				}
+				replaceIndex = i;
+				result = STORED_SAME_KEY;
+				break;
+			}
+			int value = policy.value(hashKey, i, entryDepth, relativeAge, selDepth);
+			if (value<replaceValue){
+				replaceIndex = i;
+				replaceValue = value;
+			}
+		}
+		long data = Entry.toLong(Entry.correctMateScore(score, depth), selDepth, MV.stripScore(move), type) | ((long)currentAge << AGE_SHIFT);
+		chunk.put(key + replaceIndex*2, hashKey^data^salt);
+		chunk.put(key + replaceIndex*2 + 1, data);
+		return result;
+	}
+
+	@Override
+	public long getEntry(long hashKey){
+		long bucket = hashKey & mask;
+		LongBuffer chunk = chunks[(int) (bucket >>> CHUNK_BUCKET_BITS)];
+		int key = (int) (bucket & ((1 << CHUNK_BUCKET_BITS) - 1)) * BUCKET_LONGS;
+		for (int i=0; i<4;i++) {
+			long check = chunk.get(key + i*2) ^ salt;
+			long data = chunk.get(key + i*2 + 1);
+			if ((check^data) == hashKey) {
+				return data & ENTRY_MASK;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * drop the buffers; the native memory is released when they are garbage collected. The table must not be used
+	 * afterwards (that fails with a NullPointerException). Calling free more than once is harmless.
+	 */
+	@Override
+	public void free() {
+		chunks = null;
+	}
+
+	@Override
+	public void clear() {
+		generation++;
+		salt = generation * GENERATION_SALT;
+		increaseAge();
+	}
+
+	@Override
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+
+	@Override
+	public int getHashfull() {
+		LongBuffer chunk = chunks[0];
+		int sample = (int) Math.min(HASHFULL_SAMPLE, sizeInBytes / 16);
+		int used = 0;
+		for (int i=0; i<sample; i++){
+			long data = chunk.get(i*2+1);
+			if (data != 0 && (int)(data >>> AGE_SHIFT) == currentAge){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	@Override
+	public boolean isPersistent() {
+		return true;
+	}
+
+	@Override
+	public void save(File file) throws IOException {
+		TranspositionTableSnapshot.save(file, this, new long[]{currentAge, generation, salt}, this::copyFromTable);
+	}
+
+	@Override
+	public boolean load(File file) throws IOException {
+		long[] state = new long[TranspositionTableSnapshot.STATE_LONGS];
+		if (!TranspositionTableSnapshot.load(file, this, state, this::copyToTable)) {
+			return false;
+		}
+		currentAge = (int) state[0];
+		generation = (int) state[1];
+		salt = state[2];
+		return true;
+	}
+
+	private void copyFromTable(long index, LongBuffer chunk) {
+		while (chunk.hasRemaining()) {
+			LongBuffer source = slice(index, chunk.remaining());
+			index += source.remaining();
+			chunk.put(source);
+		}
+	}
+
+	private void copyToTable(long index, LongBuffer chunk) {
+		int limit = chunk.limit();
+		while (chunk.hasRemaining()) {
+			LongBuffer target = slice(index, chunk.remaining());
+			index += target.remaining();
+			chunk.limit(chunk.position() + target.remaining());
+			target.put(chunk);
+			chunk.limit(limit);
+		}
+	}
+
+	/**
+	 * @return a view of the table from the long at index, of at most length longs: a view does not cross a chunk boundary
+	 */
+	private LongBuffer slice(long index, int length) {
+		LongBuffer view = chunks[(int) (index >>> CHUNK_LONG_BITS)].duplicate();
+		int position = (int) (index & ((1 << CHUNK_LONG_BITS) - 1));
+		view.position(position);
+		view.limit(Math.min(view.capacity(), position + length));
+		return view;
+	}
+
+}
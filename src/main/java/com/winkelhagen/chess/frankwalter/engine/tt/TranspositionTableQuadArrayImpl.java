@@ -17,7 +17,8 @@
  */
 package com.winkelhagen.chess.frankwalter.engine.tt;
 
-import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Of the three implementations of the Transposition table, this one seems to work the best in practice: we see a much higher nodecount in short games.
@@ -31,9 +32,15 @@ public class TranspositionTableQuadArrayImpl implements TranspositionTable {
 	private long mask;
 	private long inverseMask;
 	private int currentAge;
+	private final ReplacementPolicy policy;
 
 	public TranspositionTableQuadArrayImpl(int magnitude){
+		this(magnitude, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+
+	public TranspositionTableQuadArrayImpl(int magnitude, ReplacementPolicy policy){
 		this.magnitude = magnitude;
+		this.policy = policy;
 		this.mask = (1 << (magnitude-2)) -1L;
 		this.inverseMask = ~mask;
 		initTable();
@@ -54,42 +61,42 @@ public class TranspositionTableQuadArrayImpl implements TranspositionTable {
 	 * @see com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable#setEntry(long, short, short, int, byte)
 	 */
     @Override
-	public void setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
+	public int setEntry(long hashKey, int score, short selDepth, int move, byte type, int depth){
     	int maskedKey = (int)(hashKey & mask);
 		int key = maskedKey<<2;
 		int replaceIndex = 0;
-		int replaceDepth = Integer.MAX_VALUE;
+		int replaceValue = Integer.MAX_VALUE;
+		int result = STORED_FOREIGN;
 		for (int i=0; i<4;i++) {
 			long entryHash = table[(key+i) * 2];
 			if (entryHash==0){
 				replaceIndex = i;
+				result = STORED_EMPTY;
 				break;
 			}
 			long entry = table[(key+i)*2+1];
 			int entryDepth = Entry._depth(entry);
+			int relativeAge = (currentAge - (int)(entryHash&mask)) & (int)mask;
 			if (((entryHash^entry)&inverseMask) == (hashKey&inverseMask)) {
 				//this is the one
-				if (entryDepth>selDepth && type != Entry.EXACT){
-					return;
+				if (policy.keepSameKey(i, entryDepth, relativeAge, selDepth, type)){
+					return NOT_STORED;
 				}
 				replaceIndex = i;
+				result = STORED_SAME_KEY;
 				break;
 			}
 
-			int entryAge = (int)(entryHash&mask);
-			//entries from an older search can be overwritten anyway
-			if (entryAge!=currentAge){
-				replaceIndex = i;
-				break;
-				//replace least deep: todo: try to de-prioritize replacing EXACT entries
-			} else if (entryDepth<replaceDepth){
+			int value = policy.value(hashKey, i, entryDepth, relativeAge, selDepth);
+			if (value<replaceValue){
 				replaceIndex = i;
-				replaceDepth = entryDepth;
+				replaceValue = value;
 			}
 		}
 		long entry = Entry.toLong(Entry.correctMateScore(score, depth), selDepth, move, type);
 		table[(key+replaceIndex)*2] = ((hashKey^entry)&inverseMask)|(long)currentAge;
 		table[(key+replaceIndex)*2+1] = entry;
+		return result;
 	}
 	
 	/* (non-Javadoc)
@@ -116,7 +123,46 @@ public class TranspositionTableQuadArrayImpl implements TranspositionTable {
 	@Override
 	public void clear() {
 		currentAge = 0;
-		Arrays.fill(table, 0);
+		ParallelClear.clear(table);
+	}
+
+	@Override
+	public long getSizeInBytes() {
+		return (1L << magnitude) * 8 * 2;
+	}
+
+	@Override
+	public int getHashfull() {
+		int sample = Math.min(HASHFULL_SAMPLE, table.length/2);
+		int used = 0;
+		for (int i=0; i<sample; i++){
+			long entryHash = table[i*2];
+			if (entryHash != 0 && (entryHash&mask) == currentAge){
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	@Override
+	public boolean isPersistent() {
+		return true;
+	}
+
+	@Override
+	public void save(File file) throws IOException {
+		TranspositionTableSnapshot.save(file, this, new long[]{currentAge},
+				(index, chunk) -> chunk.put(table, (int) index, chunk.remaining()));
+	}
+
+	@Override
+	public boolean load(File file) throws IOException {
+		long[] state = new long[TranspositionTableSnapshot.STATE_LONGS];
+		if (!TranspositionTableSnapshot.load(file, this, state, (index, chunk) -> chunk.get(table, (int) index, chunk.remaining()))) {
+			return false;
+		}
+		currentAge = (int) state[0];
+		return true;
 	}
 
 }
@@ -0,0 +1,156 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes the entries of a transposition table to a file and reads them back, through memory mapped chunks.
+ * The file starts with a header of HEADER_LONGS longs:
+ * <pre>
+ * magic, format version, version key, table type, size in bytes, STATE_LONGS longs of table state (age, generation, ...)
+ * </pre>
+ * followed by the entries exactly as the table holds them. The version key is a hash of the engine name (which includes
+ * the revision of snapshot builds) and the evaluation parameters, so a table written by a different engine or evaluation
+ * is rejected, as is a table of a different type or size. The file is written in native byte order; a file of the other
+ * byte order has a different magic and is rejected as well.
+ */
+final class TranspositionTableSnapshot {
+
+    static final int STATE_LONGS = 3;
+
+    private static final long MAGIC = 0x46574B5454534E50L; //FWKTTSNP
+    private static final long FORMAT_VERSION = 1;
+    private static final int HEADER_LONGS = 5 + STATE_LONGS;
+    private static final long HEADER_BYTES = HEADER_LONGS * 8L;
+    private static final long CHUNK_BYTES = 1L << 27;
+
+    /**
+     * copies a chunk of entries between the table and a mapped part of the file.
+     */
+    interface ChunkCopier {
+        /**
+         * @param index the index (in longs) in the table of the first long of the chunk
+         * @param chunk the mapped chunk of the file
+         */
+        void copy(long index, LongBuffer chunk);
+    }
+
+    private TranspositionTableSnapshot() {
+        //empty
+    }
+
+    /**
+     * write the table to the file. The file is written next to the target and then moved in place, so an interrupted
+     * save leaves an earlier snapshot intact.
+     * @param file the file to write
+     * @param table the table to save, which determines the type and size
+     * @param state the table state that is needed to interpret the entries
+     * @param writer copies the entries of the table into the file
+     */
+    static void save(File file, TranspositionTable table, long[] state, ChunkCopier writer) throws IOException {
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long sizeInBytes = table.getSizeInBytes();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (long offset = 0; offset < sizeInBytes; offset += CHUNK_BYTES) {
+                long length = Math.min(CHUNK_BYTES, sizeInBytes - offset);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + offset, length);
+                writer.copy(offset / 8, asLongBuffer(chunk));
+                chunk.force();
+            }
+            //the header is written last, so a file with a valid header holds all entries
+            MappedByteBuffer mappedHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            LongBuffer header = asLongBuffer(mappedHeader);
+            header.put(MAGIC).put(FORMAT_VERSION).put(versionKey()).put(tableType(table)).put(sizeInBytes);
+            header.put(Arrays.copyOf(state, STATE_LONGS));
+            mappedHeader.force();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * read the table from the file, if the file was written for this engine, evaluation, table type and size.
+     * @param file the file to read
+     * @param table the table to load into, which determines the expected type and size
+     * @param state receives the table state that was saved
+     * @param reader copies the entries from the file into the table
+     * @return true if the table was loaded, false if the file was rejected (the table is left untouched)
+     */
+    static boolean load(File file, TranspositionTable table, long[] state, ChunkCopier reader) throws IOException {
+        long sizeInBytes = table.getSizeInBytes();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + sizeInBytes) {
+                return false;
+            }
+            LongBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.get() != MAGIC || header.get() != FORMAT_VERSION || header.get() != versionKey()
+                    || header.get() != tableType(table) || header.get() != sizeInBytes) {
+                return false;
+            }
+            header.get(state);
+            for (long offset = 0; offset < sizeInBytes; offset += CHUNK_BYTES) {
+                long length = Math.min(CHUNK_BYTES, sizeInBytes - offset);
+                reader.copy(offset / 8, map(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset, length));
+            }
+            return true;
+        }
+    }
+
+    private static LongBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long length) throws IOException {
+        return asLongBuffer(channel.map(mode, position, length));
+    }
+
+    private static LongBuffer asLongBuffer(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * @return a hash of the engine name and the evaluation parameters
+     */
+    static long versionKey() {
+        long key = Constants.getEngineName().hashCode();
+        for (Map.Entry<String, Object> parameter : EvalParams.DEFAULT.getParameters().entrySet()) {
+            Object value = parameter.getValue();
+            key = key * 31 + parameter.getKey().hashCode();
+            key = key * 31 + (value instanceof int[] ? Arrays.hashCode((int[]) value) : Objects.hashCode(value));
+        }
+        return key;
+    }
+
+    private static long tableType(TranspositionTable table) {
+        return table.getClass().getName().hashCode();
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+/**
+ * Enumeration of the layouts of the transposition table on the java heap.
+ * LOCKLESS is the TranspositionTableLocklessImpl: four entries of two longs in a bucket, with every bit of the data verified.
+ * COMPACT is the TranspositionTableCompactImpl: three entries in a bucket of four longs, 1.5 times as many entries in the
+ * same memory, that also store the static evaluation.
+ * Tables in native memory or in a shared file always have the layout of the TranspositionTableLocklessImpl.
+ */
+public enum TranspositionTableType {
+    LOCKLESS, COMPACT;
+
+    /**
+     * @param type the name of the type, case insensitive
+     * @return the matching TranspositionTableType or null if there is no such type
+     */
+    public static TranspositionTableType parse(String type) {
+        for (TranspositionTableType transpositionTableType : values()) {
+            if (transpositionTableType.name().equalsIgnoreCase(type)) {
+                return transpositionTableType;
+            }
+        }
+        return null;
+    }
+}
@@ -39,12 +39,14 @@ public class EpdReader {
     public static EpdReader create(String creationString){
         String[] splits = creationString.split(":");
         if (splits.length!=3 && splits.length!=4){
-            logger.warn("EpdReader creationString {} is not of format <type>:<millis>:<file>[:id]", creationString);
+            logger.warn("EpdReader creationString {} is not of format <type>:<millis|depth>:<file>[:id]", creationString);
             return null;
         }
         switch (splits[0].toLowerCase()){
             case "bm":
                 return new EpdReader(splits[2], new BestMoveProcessor(Integer.parseInt(splits[1]), splits.length==3?null:splits[3]));
+            case "perft":
+                return new EpdReader(splits[2], new PerftProcessor(Integer.parseInt(splits[1]), splits.length==3?null:splits[3]));
             default:
                 logger.warn("unsupported EPD type '{}'", splits[0]);
                 return null;
@@ -17,20 +17,46 @@
  */
 package com.winkelhagen.chess.frankwalter.tools.epd;
 
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.moves.PerftHashTable;
 import com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * This class allows one to run a perft based EPD file from the commandline.
+ * The root moves of every position are divided over a fork-join pool, each worker on its own board.
+ * As an example the following command can be ran from the target directory:
+ * <pre>java -jar frankwalter.jar -epd perft:5:../perftsuite.epd</pre>
+ */
 public class PerftProcessor extends EpdProcessor {
 
-    private int[][] movesTable = new int[10][256];
+    private static final int PERFT_HASH_MAGNITUDE = 20;
+
+    private final int maxDepth;
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final PerftHashTable perftHashTable = new PerftHashTable(PERFT_HASH_MAGNITUDE);
 
     private int positions = 0;
     private int solves = 0;
+    private long totalNodes = 0;
+    private long totalNanos = 0;
 
     public PerftProcessor(String id) {
+        this(EpdOpCode.PERFT_OP_CODES.length, id);
+    }
+
+    /**
+     * @param maxDepth perft results for depths larger than this are not verified
+     * @param id the id of the single position to verify, or null to verify all positions
+     */
+    public PerftProcessor(int maxDepth, String id) {
         super(id);
+        this.maxDepth = maxDepth;
     }
 
     @Override
@@ -38,10 +64,15 @@ public class PerftProcessor extends EpdProcessor {
         positions++;
         solves++;
         List<String> results = new ArrayList<>();
+        long nodes = 0;
+        long startTime = System.nanoTime();
         for (EpdOpCode perftOpCode : EpdOpCode.PERFT_OP_CODES){
             String value = epd.getOpCodeValue(perftOpCode);
-            if (value!=null){
-                if (verifyPerft(Integer.parseInt(value), Integer.parseInt(perftOpCode.name().substring(5)))){
+            int depth = Integer.parseInt(perftOpCode.name().substring(5));
+            if (value!=null && depth<=maxDepth){
+                long perftNodes = pool.invoke(new PerftTask(epd.getFen(), 0, depth));
+                nodes += perftNodes;
+                if (Long.parseLong(value) == perftNodes){
                     results.add(perftOpCode.name());
                 } else {
                     results.add(String.format("Failed: %s", perftOpCode.name()));
@@ -50,32 +81,95 @@ public class PerftProcessor extends EpdProcessor {
                 }
             }
         }
+        long duration = System.nanoTime() - startTime;
+        totalNodes += nodes;
+        totalNanos += duration;
+        results.add(String.format("(%d nodes, %d knps)", nodes, knps(nodes, duration)));
         return String.join(" ", results);
     }
 
-    private boolean verifyPerft(int nodes, int depth) {
-        return (nodes == perft(depth));
+    private static long knps(long nodes, long nanos) {
+        return nanos==0 ? 0 : nodes * 1000000L / nanos;
     }
 
-    private long perft(int depth){
-        long nodeCount = 0;
-        int moves[] = movesTable[depth];
-        int movesNr = StaticMoveGenerator.generateLegalMoves(fwConfig.smpController.getBoard(), moves);
+    /**
+     * counts the leaf nodes below a single root move (or below the root when move is 0) on a board of its own
+     */
+    private class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final String fen;
+        private final int move;
+        private final int depth;
+        private final Board board = new Board(fwConfig.getAttackMode());
+        private int[][] movesTable;
+
+        PerftTask(String fen, int move, int depth) {
+            this.fen = fen;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                board.setupBoard(fen);
+            } catch (IllegalFENException e) {
+                throw new IllegalStateException("position was set up before", e);
+            }
+            if (move == 0){
+                return splitRootMoves();
+            }
+            movesTable = new int[depth][256];
+            board.doMove(move);
+            return perft(depth - 1);
+        }
 
-        if (depth==1){
-            return movesNr;
+        private long splitRootMoves() {
+            int[] moves = new int[256];
+            int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+            if (depth==1){
+                return movesNr;
+            }
+            List<PerftTask> tasks = new ArrayList<>();
+            for (int i=0; i<movesNr; i++){
+                tasks.add(new PerftTask(fen, moves[i], depth));
+            }
+            long nodeCount = 0;
+            for (PerftTask task : invokeAll(tasks)){
+                nodeCount += task.join();
+            }
+            return nodeCount;
         }
-        for (int i=0; i<movesNr; i++){
-            fwConfig.smpController.doSingleMove(moves[i]);
-            nodeCount += perft(depth-1);
-            fwConfig.smpController.undoSingleMove();
+
+        private long perft(int depth){
+            if (depth==0){
+                return 1;
+            }
+            int moves[] = movesTable[depth];
+            if (depth==1){
+                //bulk counting: the generated moves are legal, so there is no need to execute them.
+                return StaticMoveGenerator.generateLegalMoves(board, moves);
+            }
+            long nodeCount = perftHashTable.probe(board.getHashKey(), depth);
+            if (nodeCount != -1){
+                return nodeCount;
+            }
+            int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+            nodeCount = 0;
+            for (int i=0; i<movesNr; i++){
+                board.doMove(moves[i]);
+                nodeCount += perft(depth-1);
+                board.undoMove();
+            }
+            perftHashTable.store(board.getHashKey(), depth, nodeCount);
+            return nodeCount;
         }
-        return nodeCount;
     }
 
     @Override
     public String getResult() {
-        return String.format("Result: %d/%d", solves, positions);
+        return String.format("Result: %d/%d, %d nodes in %d milliseconds (%d knps)", solves, positions, totalNodes, totalNanos / 1000000L, knps(totalNodes, totalNanos));
     }
 
     @Override
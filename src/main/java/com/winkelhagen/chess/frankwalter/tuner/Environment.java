@@ -21,22 +21,69 @@ import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
 import com.winkelhagen.chess.frankwalter.board.Board;
 import com.winkelhagen.chess.frankwalter.engine.Engine;
 import com.winkelhagen.chess.frankwalter.engine.ScoutEngineImpl;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
 import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable;
 import com.winkelhagen.chess.frankwalter.util.Constants;
 
 public class Environment {
 
     private Engine engine = new ScoutEngineImpl();
     private Board board = new Board();
+    private Evaluator evaluator = new Evaluator(EvalParams.DEFAULT);
 
     public Environment(){
         engine.setBoard(board);
     }
 
+    /**
+     * By default the q-search runs without a transposition table, so that a score does not depend on earlier positions or
+     * weights. Resolving positions to their quiet position reads the principal variation from a transposition table though.
+     * @param tt the transposition table for the q-search
+     */
+    public Environment(TranspositionTable tt){
+        this();
+        engine.setTranspositionTable(tt);
+    }
+
+    /**
+     * evaluate with the given parameters from now on. Call this before setting up the board.
+     * @param evalParams the evaluation parameters
+     */
+    public void setEvalParams(EvalParams evalParams) {
+        if (evaluator.getParams() != evalParams) {
+            evaluator = new Evaluator(evalParams);
+            engine.setEvalParams(evalParams);
+        }
+    }
+
     public void setupBoard(String fen) throws IllegalFENException {
         board.setupBoard2(fen);
     }
 
+    /**
+     * set up a position of a binary dataset
+     * @return the result of the game the position was taken from
+     */
+    public WDL setupBoard(PositionFile positionFile, long index) {
+        return positionFile.setup(index, board);
+    }
+
+    /**
+     * play the moves of the q-search principal variation, so the board holds the quiet position the q-search score comes from.
+     * This needs a transposition table.
+     */
+    public void resolveQuiet() {
+        engine.getQScore();
+        for (int move : engine.getQPrincipalVariation()) {
+            board.doMove(move);
+        }
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
     public int getQScore(){
 //        engine.clearCaches();
         int qScore = engine.getQScore();
@@ -44,7 +91,7 @@ public class Environment {
     }
 
     public int eval(){
-        int eval = Evaluator.eval(board, -32000, 32000);
+        int eval = evaluator.eval(board, -32000, 32000);
         return board.getSideToMove() == Constants.WHITE? eval: -eval;
     }
 
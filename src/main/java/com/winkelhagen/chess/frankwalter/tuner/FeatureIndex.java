@@ -0,0 +1,143 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalFeatures;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates the error of weights incrementally, for a local search that changes a weight at a time.
+ * It holds an inverted index from every weight to the positions whose evaluation depends on it (with the coefficient, see
+ * EvalFeatures), and the evaluation and error of every position for the weights of the last call to error. The next call
+ * only re-evaluates the positions of the weights that changed since.
+ * The index is stored as one array of positions and one of coefficients, in the order of the weights, with the offset of
+ * every weight in offsets. Not thread safe, although a single call uses all threads.
+ */
+public class FeatureIndex {
+
+    private final double k;
+    private final int[] offsets = new int[EvalParams.PARAMETER_COUNT + 1];
+    private final int[] positions;
+    private final float[] coefficients;
+
+    private final double[] results;
+    private final double[] scores;
+    private final double[] errors;
+    private final int[] weights;
+    private double errorSum;
+
+    /**
+     * @param tuningSet the positions; the first call to error starts from the parameters their features were extracted with
+     * @param k the scaling constant of the sigmoid
+     */
+    public FeatureIndex(TuningSet tuningSet, double k) {
+        this(tuningSet, 0, tuningSet.size(), k);
+    }
+
+    /**
+     * index a shard of the positions
+     * @param tuningSet the positions; the first call to error starts from the parameters their features were extracted with
+     * @param from the first position of the shard
+     * @param to the position after the last position of the shard
+     * @param k the scaling constant of the sigmoid
+     */
+    public FeatureIndex(TuningSet tuningSet, int from, int to, double k) {
+        this.k = k;
+        int size = to - from;
+        for (int position = 0; position < size; position++) {
+            EvalFeatures features = tuningSet.getFeatures(from + position);
+            for (int feature = 0; feature < features.size(); feature++) {
+                offsets[features.getIndex(feature) + 1]++;
+            }
+        }
+        for (int weight = 0; weight < EvalParams.PARAMETER_COUNT; weight++) {
+            offsets[weight + 1] += offsets[weight];
+        }
+        positions = new int[offsets[EvalParams.PARAMETER_COUNT]];
+        coefficients = new float[positions.length];
+        int[] next = Arrays.copyOf(offsets, EvalParams.PARAMETER_COUNT);
+        results = new double[size];
+        scores = new double[size];
+        errors = new double[size];
+        for (int position = 0; position < size; position++) {
+            EvalFeatures features = tuningSet.getFeatures(from + position);
+            for (int feature = 0; feature < features.size(); feature++) {
+                int entry = next[features.getIndex(feature)]++;
+                positions[entry] = position;
+                coefficients[entry] = features.getCoefficient(feature);
+            }
+            results[position] = tuningSet.getResult(from + position);
+            scores[position] = features.getEval();
+            errors[position] = error(position);
+            errorSum += errors[position];
+        }
+        weights = tuningSet.getEvalParams().getWeights();
+    }
+
+    /**
+     * @param weights the weights
+     * @return the average error of the positions for the weights, according to the features
+     */
+    public double error(int[] weights) {
+        for (int weight = 0; weight < EvalParams.PARAMETER_COUNT; weight++) {
+            int step = weights[weight] - this.weights[weight];
+            if (step != 0) {
+                errorSum += step(weight, step);
+                this.weights[weight] = weights[weight];
+            }
+        }
+        return errorSum / scores.length;
+    }
+
+    /**
+     * @return the number of positions
+     */
+    public int size() {
+        return scores.length;
+    }
+
+    /**
+     * @return the number of positions whose evaluation depends on the weight
+     */
+    public int getPositionCount(int weight) {
+        return offsets[weight + 1] - offsets[weight];
+    }
+
+    /**
+     * change the scores and errors of the positions that depend on the weight.
+     * Every position occurs at most once per weight, so the positions can be updated in parallel.
+     * @return the change of the sum of the errors
+     */
+    private double step(int weight, int step) {
+        return IntStream.range(offsets[weight], offsets[weight + 1]).parallel().mapToDouble(entry -> {
+            int position = positions[entry];
+            double previous = errors[position];
+            scores[position] += coefficients[entry] * step;
+            errors[position] = error(position);
+            return errors[position] - previous;
+        }).sum();
+    }
+
+    private double error(int position) {
+        double sigmoid = 1 / (1 + Math.pow(10, -k * scores[position] / 400d));
+        return Math.pow(results[position] - sigmoid, 2d);
+    }
+}
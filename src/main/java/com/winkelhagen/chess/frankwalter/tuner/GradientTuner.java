@@ -0,0 +1,155 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalFeatures;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+/**
+ * Texel tuner that minimizes the error of the static evaluation with the Adam optimizer. The evaluation is linear in the
+ * tuning weights, so the features of every position are extracted once (see Evaluator.extractFeatures); after that an
+ * epoch costs a sparse dot product per position instead of a board setup and a search.
+ * The positions should be quiet (as in quiet-labeled.epd): the static evaluation stands in for the quiescence search.
+ * TuningRunner runs it from the command line (-tune with -tunemethod gradient).
+ */
+public class GradientTuner {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final TuningSet tuningSet;
+    private final EvalParams evalParams;
+    private final double k;
+
+    /**
+     * @param tuningSet the positions to tune with; tuning starts from the parameters their features were extracted with
+     * @param k the scaling constant of the sigmoid
+     */
+    public GradientTuner(TuningSet tuningSet, double k) {
+        this.tuningSet = tuningSet;
+        this.evalParams = tuningSet.getEvalParams();
+        this.k = k;
+    }
+
+    /**
+     * minimize the error with the Adam optimizer, starting from the weights of the parameters
+     * @param epochs the maximum number of passes over all positions
+     * @param learningRate the step size, in weight units
+     * @return the tuned weights, rounded
+     */
+    public int[] tune(int epochs, double learningRate) {
+        return tune(epochs, learningRate, (weights, error) -> { });
+    }
+
+    /**
+     * minimize the error with the Adam optimizer, starting from the weights of the parameters
+     * @param epochs the maximum number of passes over all positions
+     * @param learningRate the step size, in weight units
+     * @param listener receives the rounded weights and their error every 50 epochs
+     * @return the tuned weights, rounded
+     */
+    int[] tune(int epochs, double learningRate, TuningEpdReader.ImprovementListener listener) {
+        long millis = System.currentTimeMillis();
+        double[] delta = new double[EvalParams.PARAMETER_COUNT];
+        double[] gradient = new double[EvalParams.PARAMETER_COUNT];
+        double[] m = new double[EvalParams.PARAMETER_COUNT];
+        double[] v = new double[EvalParams.PARAMETER_COUNT];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double error = gradient(delta, gradient);
+            for (int i = 0; i < delta.length; i++) {
+                m[i] = BETA1 * m[i] + (1 - BETA1) * gradient[i];
+                v[i] = BETA2 * v[i] + (1 - BETA2) * gradient[i] * gradient[i];
+                double mHat = m[i] / (1 - Math.pow(BETA1, epoch));
+                double vHat = v[i] / (1 - Math.pow(BETA2, epoch));
+                delta[i] -= learningRate * mHat / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (epoch % 50 == 0) {
+                logger.info("epoch {}\t{}\t{}", epoch, error, Duration.ofMillis(System.currentTimeMillis() - millis));
+                int[] weights = round(delta);
+                listener.improved(weights, error(weights));
+            }
+        }
+        return round(delta);
+    }
+
+    private int[] round(double[] delta) {
+        int[] weights = evalParams.getWeights();
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] += (int) Math.round(delta[i]);
+        }
+        return weights;
+    }
+
+    /**
+     * @param weights the weights
+     * @return the average error of the positions for the weights, according to the features
+     */
+    public double error(int[] weights) {
+        int[] initial = evalParams.getWeights();
+        double[] delta = new double[EvalParams.PARAMETER_COUNT];
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = weights[i] - initial[i];
+        }
+        return IntStream.range(0, tuningSet.size()).parallel()
+                .mapToDouble(position -> Math.pow(tuningSet.getResult(position) - sigmoid(tuningSet.getFeatures(position).evaluate(delta)), 2d))
+                .average().orElse(0);
+    }
+
+    /**
+     * calculate the gradient of the average error
+     * @param delta the change of the weights, relative to the weights of the parameters
+     * @param gradient receives the gradient
+     * @return the average error
+     */
+    double gradient(double[] delta, double[] gradient) {
+        double[] sums = IntStream.range(0, tuningSet.size()).parallel().collect(
+                () -> new double[EvalParams.PARAMETER_COUNT + 1],
+                (partial, position) -> {
+                    EvalFeatures positionFeatures = tuningSet.getFeatures(position);
+                    double sigmoid = sigmoid(positionFeatures.evaluate(delta));
+                    double difference = sigmoid - tuningSet.getResult(position);
+                    // derivative of (result - sigmoid)^2 to the score
+                    double factor = 2 * difference * sigmoid * (1 - sigmoid) * Math.log(10) * k / 400;
+                    for (int feature = 0; feature < positionFeatures.size(); feature++) {
+                        partial[positionFeatures.getIndex(feature)] += factor * positionFeatures.getCoefficient(feature);
+                    }
+                    partial[EvalParams.PARAMETER_COUNT] += difference * difference;
+                },
+                (partial, other) -> {
+                    for (int i = 0; i < partial.length; i++) {
+                        partial[i] += other[i];
+                    }
+                });
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] = sums[i] / tuningSet.size();
+        }
+        return sums[EvalParams.PARAMETER_COUNT] / tuningSet.size();
+    }
+
+    private double sigmoid(double valuation) {
+        return 1 / (1 + Math.pow(10, -k * valuation / 400d));
+    }
+}
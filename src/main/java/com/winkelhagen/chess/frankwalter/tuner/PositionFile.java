@@ -0,0 +1,226 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableLocklessImpl;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A tuning dataset in binary form: fixed width records of positions that need no parsing, read through memory mapped
+ * chunks, so that datasets much larger than the heap can be streamed by all threads at once.
+ * The file starts with a header record (magic, format version, number of positions) followed by a record per position:
+ * <pre>
+ * white pieces, queens, rooks, bishops, knights, kings, pawns, info
+ * </pre>
+ * where info holds the side to move (bit 0), the castle mask (bits 1-4), the en passant square + 1 (bits 5-11), the
+ * number of plies since the last capture or pawn move (bits 12-19) and the result (bits 20-21, the ordinal of the WDL).
+ * The file is little endian, so that it can be moved between machines.
+ * Use convert to create a file from an EPD file. The positions are stored as the quiet position at the end of the q-search
+ * principal variation, so the static evaluation of a stored position is its q-search score.
+ */
+public class PositionFile {
+
+    public static final String EXTENSION = ".bin";
+
+    static final int RECORD_LONGS = 8;
+
+    private static final long MAGIC = 0x46574B54554E4550L; //FWKTUNEP
+    private static final long FORMAT_VERSION = 1;
+    private static final int RECORD_BYTES = RECORD_LONGS * 8;
+    private static final int CHUNK_RECORD_BITS = 24;
+    private static final int BATCH_SIZE = 1 << 16;
+    private static final int TT_MAGNITUDE = 16;
+    private static final WDL[] WDLS = WDL.values();
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final LongBuffer[] chunks;
+    private final long size;
+
+    /**
+     * map the positions of the file
+     * @param path the file, as written by convert
+     */
+    public PositionFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LongBuffer header = map(channel, 0, RECORD_BYTES);
+            if (header.get() != MAGIC || header.get() != FORMAT_VERSION) {
+                throw new IOException("not a position file: " + path);
+            }
+            size = header.get();
+            if (channel.size() != (size + 1) * RECORD_BYTES) {
+                throw new IOException("incomplete position file: " + path);
+            }
+            long chunkRecords = 1L << CHUNK_RECORD_BITS;
+            chunks = new LongBuffer[(int) ((size + chunkRecords - 1) / chunkRecords)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long first = chunk * chunkRecords;
+                chunks[chunk] = map(channel, (first + 1) * RECORD_BYTES, Math.min(chunkRecords, size - first) * RECORD_BYTES);
+            }
+        }
+    }
+
+    /**
+     * convert an EPD file (see TuningEpdReader.readPosition) to a position file.
+     * usage: PositionFile &lt;epd file&gt; &lt;position file&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        long millis = System.currentTimeMillis();
+        long count = convert(Paths.get(args[0]), Paths.get(args[1]));
+        logger.info("converted {} positions in {} ms", count, System.currentTimeMillis() - millis);
+    }
+
+    /**
+     * @return the number of positions
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * set up a position on the board. Several threads can read positions at the same time.
+     * @param index the index of the position
+     * @param board the board to set up
+     * @return the result of the game the position was taken from
+     */
+    public WDL setup(long index, Board board) {
+        LongBuffer chunk = chunks[(int) (index >>> CHUNK_RECORD_BITS)];
+        int offset = (int) (index & ((1 << CHUNK_RECORD_BITS) - 1)) * RECORD_LONGS;
+        long[][] pieces = new long[2][Constants.PAWN + 1];
+        long white = chunk.get(offset);
+        for (int piece = Constants.QUEEN; piece <= Constants.PAWN; piece++) {
+            long bitboard = chunk.get(offset + piece);
+            pieces[Constants.WHITE][piece] = bitboard & white;
+            pieces[Constants.BLACK][piece] = bitboard & ~white;
+        }
+        long info = chunk.get(offset + 7);
+        board.setupBoard(pieces, (int) (info & 1), (int) (info >>> 1) & 0xF, (int) (info >>> 5 & 0x7F) - 1, (int) (info >>> 12) & 0xFF);
+        return WDLS[(int) (info >>> 20) & 0x3];
+    }
+
+    /**
+     * convert an EPD file to a position file, resolving every position to the end of its q-search principal variation.
+     * Positions that cannot be read are skipped. The file is written next to the target and then moved in place.
+     * @param epd the EPD file, with the result in a c1 or c9 opcode
+     * @param target the position file to write
+     * @return the number of positions written
+     */
+    public static long convert(Path epd, Path target) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        ThreadLocal<Environment> environment = ThreadLocal.withInitial(
+                () -> new Environment(new TranspositionTableLocklessImpl(TT_MAGNITUDE)));
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(epd, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            long[] records = new long[BATCH_SIZE * RECORD_LONGS];
+            boolean[] valid = new boolean[BATCH_SIZE];
+            ByteBuffer buffer = ByteBuffer.allocate(BATCH_SIZE * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(RECORD_BYTES);
+            String line = reader.readLine();
+            while (line != null) {
+                lines.clear();
+                while (line != null && lines.size() < BATCH_SIZE) {
+                    if (!line.trim().isEmpty()) {
+                        lines.add(line);
+                    }
+                    line = reader.readLine();
+                }
+                IntStream.range(0, lines.size()).parallel()
+                        .forEach(i -> valid[i] = resolve(environment.get(), lines.get(i), records, i * RECORD_LONGS));
+                buffer.clear();
+                LongBuffer longs = buffer.asLongBuffer();
+                for (int i = 0; i < lines.size(); i++) {
+                    if (valid[i]) {
+                        longs.put(records, i * RECORD_LONGS, RECORD_LONGS);
+                        count++;
+                    }
+                }
+                buffer.limit(longs.position() * 8);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putLong(FORMAT_VERSION).putLong(count).clear();
+            channel.write(header, 0);
+            channel.force(false);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static boolean resolve(Environment environment, String line, long[] records, int offset) {
+        WdlFen wdlFen;
+        try {
+            wdlFen = TuningEpdReader.readPosition(line);
+            environment.setupBoard(wdlFen.getFen());
+        } catch (IllegalFENException | RuntimeException e) {
+            logger.warn("skipping illegal position {}", line);
+            return false;
+        }
+        if (wdlFen.getWdl() == null) {
+            logger.warn("skipping position without result {}", line);
+            return false;
+        }
+        environment.resolveQuiet();
+        encode(environment.getBoard(), wdlFen.getWdl(), records, offset);
+        return true;
+    }
+
+    /**
+     * write the record of the position on the board
+     */
+    static void encode(Board board, WDL wdl, long[] records, int offset) {
+        long[][] pieces = board.getPieces();
+        records[offset] = pieces[Constants.WHITE][Constants.ALL];
+        for (int piece = Constants.QUEEN; piece <= Constants.PAWN; piece++) {
+            records[offset + piece] = pieces[Constants.WHITE][piece] | pieces[Constants.BLACK][piece];
+        }
+        records[offset + 7] = board.getSideToMove()
+                | (long) board.getCastleMask() << 1
+                | (long) (board.getEpSquare() + 1) << 5
+                | (long) Math.min(board.getQuiet50(), 0xFF) << 12
+                | (long) wdl.ordinal() << 20;
+    }
+
+    private static LongBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+}
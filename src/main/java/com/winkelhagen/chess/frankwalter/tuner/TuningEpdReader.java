@@ -17,7 +17,7 @@
  */
 package com.winkelhagen.chess.frankwalter.tuner;
 
-import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
 import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
 import com.winkelhagen.chess.frankwalter.util.BB;
 import org.apache.logging.log4j.LogManager;
@@ -30,7 +30,9 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 public class TuningEpdReader {
@@ -56,31 +58,49 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
 
     private static final double STEP = 0.01;
 
+    // evaluate statically through a FeatureIndex, which only re-evaluates the positions that depend on the changed weight.
+    // The positions should be quiet (such as quiet-labeled.epd or a PositionFile); without the index the q-search is used.
+    private static final boolean USE_FEATURE_INDEX = true;
+
     private static ThreadLocal<Environment> environment = ThreadLocal.withInitial(Environment::new);
 
     private static ForkJoinPool forkJoinPool = new ForkJoinPool(4);
 
     private static volatile int count = 0;
     private static List<WdlFen> positions = new ArrayList<>();
+    private static PositionFile positionFile;
+    private static FeatureIndex featureIndex;
     private static boolean breakHere = false;
 
     public static void main(String args[]) {
 
-        String fileName = "/home/laurens/Downloads/quiet-labeled.epd";
+        String fileName = args.length > 0 ? args[0] : "/home/laurens/Downloads/quiet-labeled.epd";
 
-        //read file into stream, try-with-resources
-        try (Stream<String> stream = Files.lines(Paths.get(fileName))) {
-            positions = stream
-//                    .limit(LIMIT)
-                    .map(TuningEpdReader::readPosition).collect(Collectors.toList());
-            System.out.println(positions.size());
-        } catch (IOException e) {
-            logger.error("IOException reading file {}", fileName);
-            logger.error("stacktrace", e);
+        if (fileName.endsWith(PositionFile.EXTENSION)) {
+            // a binary dataset (see PositionFile) is streamed from disk instead of read into memory
+            try {
+                positionFile = new PositionFile(Paths.get(fileName));
+                logger.info("{} positions", positionFile.size());
+            } catch (IOException e) {
+                logger.error("IOException reading file {}", fileName);
+                logger.error("stacktrace", e);
+                return;
+            }
+        } else {
+            //read file into stream, try-with-resources
+            try (Stream<String> stream = Files.lines(Paths.get(fileName))) {
+                positions = stream
+//                        .limit(LIMIT)
+                        .map(TuningEpdReader::readPosition).collect(Collectors.toList());
+                System.out.println(positions.size());
+            } catch (IOException e) {
+                logger.error("IOException reading file {}", fileName);
+                logger.error("stacktrace", e);
+            }
+            System.out.println("W: "+positions.stream().filter(w -> w.getWdl().equals(WDL.WIN)).count());
+            System.out.println("D: "+positions.stream().filter(w -> w.getWdl().equals(WDL.DRAW)).count());
+            System.out.println("L: "+positions.stream().filter(w -> w.getWdl().equals(WDL.LOSS)).count());
         }
-        System.out.println("W: "+positions.stream().filter(w -> w.getWdl().equals(WDL.WIN)).count());
-        System.out.println("D: "+positions.stream().filter(w -> w.getWdl().equals(WDL.DRAW)).count());
-        System.out.println("L: "+positions.stream().filter(w -> w.getWdl().equals(WDL.LOSS)).count());
 
         new Thread(() -> {
             System.out.println("press any key to stop");
@@ -95,7 +115,7 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
 //        determineK(positions);
 
 
-        int[] weights = new int[Evaluator.PARAMETER_COUNT];//{0, 0, 0, -1, 0, -2, 0, 0, 0, 0, 0, 1, 0, 0, 0, 1, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, -1, 0, 2, 0, 1, 0, 0, 0, 0, 1, 0, 0, 1, 0, 1, 0, 2, 0, 0, -1, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, -1, -1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 2, -1, 0, 0, 0, 0, 0, 0, 1, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0};
+        int[] weights = new int[EvalParams.PARAMETER_COUNT];//{0, 0, 0, -1, 0, -2, 0, 0, 0, 0, 0, 1, 0, 0, 0, 1, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, -1, 0, 2, 0, 1, 0, 0, 0, 0, 1, 0, 0, 1, 0, 1, 0, 2, 0, 0, -1, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, -1, -1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 2, -1, 0, 0, 0, 0, 0, 0, 1, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0};
 //        weights[0]--;
 
 
@@ -109,6 +129,11 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
 
 //        double error = calculateError(weights);
 
+        if (USE_FEATURE_INDEX) {
+            EvalParams initial = new EvalParams(weights);
+            featureIndex = new FeatureIndex(positionFile != null ? TuningSet.extract(positionFile, initial) : TuningSet.extract(positions, initial), K);
+            logger.info("indexed the features in {}", Duration.ofMillis(System.currentTimeMillis() - millis));
+        }
         logger.info("initial {}", Arrays.toString(weights));
         int[] result = localOptimize(weights);
         logger.info("result {}", Arrays.toString(result));
@@ -117,12 +142,31 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
     }
 
     private static int[] localOptimize(int[] initial){
+        return localOptimize(initial, TuningEpdReader::calculateError, (weights, error) -> {});
+    }
+
+    /**
+     * receives the weights whenever the local search improves them.
+     */
+    interface ImprovementListener {
+        void improved(int[] weights, double error);
+    }
+
+    /**
+     * local search: step every weight by +1 or -1 while that improves the error, then repeat the successful steps, best
+     * improvement first.
+     * @param initial the weights to start from
+     * @param errorFunction calculates the error of weights
+     * @param listener is told about every improvement
+     * @return the best weights
+     */
+    static int[] localOptimize(int[] initial, ToDoubleFunction<int[]> errorFunction, ImprovementListener listener){
         long millis = System.currentTimeMillis();
         final int nParams = initial.length;
-        double bestError = calculateError(initial);
+        double bestError = errorFunction.applyAsDouble(initial);
         int[] bestWeights = Arrays.copyOf(initial, initial.length);
         boolean improved = true;
-        System.out.println("starting error:  " + bestError);
+        logger.info("starting error: {}", bestError);
 //        System.out.print("improving    ");
         while(improved){
             improved = false;
@@ -130,7 +174,7 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
             for (int pi = 0; pi<nParams; pi++){
                 int[] toTest = Arrays.copyOf(bestWeights, bestWeights.length);
                 toTest[pi]+=1;
-                double newError = calculateError(toTest);
+                double newError = errorFunction.applyAsDouble(toTest);
                 if (newError < bestError){
                     double improvement = bestError-newError;
                     if (improvement>EPSILON) {
@@ -138,11 +182,12 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
                         bestError = newError;
                         bestWeights = Arrays.copyOf(toTest, toTest.length);
                         improved = true;
+                        listener.improved(bestWeights, bestError);
                         logger.info("\n{}\t{} improved {} to {} (+1)", bestError, Duration.ofMillis(System.currentTimeMillis() - millis), pi, toTest[pi]);
                     }
                 } else {
                     toTest[pi]-=2;
-                    newError = calculateError(toTest);
+                    newError = errorFunction.applyAsDouble(toTest);
                     if (newError < bestError) {
                         double improvement = bestError-newError;
                         if (improvement>EPSILON) {
@@ -150,6 +195,7 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
                             bestError = newError;
                             bestWeights = Arrays.copyOf(toTest, toTest.length);
                             improved = true;
+                            listener.improved(bestWeights, bestError);
                             logger.info("\n{}\t{} improved {} to {} (-1)", bestError, Duration.ofMillis(System.currentTimeMillis() - millis), pi, toTest[pi]);
                         }
                     }
@@ -157,20 +203,21 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
                 if (breakHere) break;
             }
             if (breakHere) break;
-            System.out.println(pq.size());
+            logger.info("repeating {} successful steps", pq.size());
             while (!pq.isEmpty()){
                 PreviousSuccess ps = pq.poll();
-                System.out.println(ps);
+                logger.info("{}", ps);
                 int pi = ps.getFeature();
                 int[] toTest = Arrays.copyOf(bestWeights, bestWeights.length);
                 toTest[pi]+=ps.getStep();
-                double newError = calculateError(toTest);
+                double newError = errorFunction.applyAsDouble(toTest);
                 if (newError < bestError) {
                     double improvement = bestError - newError;
                     if (improvement > EPSILON) {
                         pq.add(new PreviousSuccess(improvement, pi, ps.step));
                         bestError = newError;
                         bestWeights = Arrays.copyOf(toTest, toTest.length);
+                        listener.improved(bestWeights, bestError);
                         logger.info("\n{}\t{} improved {} to {} ({}) {} left", bestError, Duration.ofMillis(System.currentTimeMillis() - millis), pi, toTest[pi], ps.getStep(), pq.size());
                     }
                 } else {
@@ -182,12 +229,25 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
         return bestWeights;
     }
 
+    /**
+     * calculate the average error of the positions for the weights. Without a feature index, this does not change any
+     * global state, so errors for several weight vectors can be calculated concurrently.
+     */
     private static double calculateError(int[] weights){
         try {
-            Evaluator.applyWeights(weights);
+            if (featureIndex != null) {
+                return forkJoinPool.submit(() -> featureIndex.error(weights)).get();
+            }
+            EvalParams evalParams = new EvalParams(weights);
+            if (positionFile != null) {
+                return forkJoinPool.submit(
+                        () -> LongStream.range(0, positionFile.size()).parallel()
+                                .mapToDouble(index -> valuationError(positionFile, index, evalParams)).average().orElse(0)
+                ).get();
+            }
             return forkJoinPool.submit(
                     () -> positions.parallelStream()
-                            .collect(Collectors.averagingDouble(TuningEpdReader::valuationError))
+                            .collect(Collectors.averagingDouble(wdlFen -> valuationError(wdlFen, evalParams)))
             ).get();
         } catch (InterruptedException | ExecutionException e) {
             logger.warn(e);
@@ -201,7 +261,7 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
         boolean reversed = false;
         while (true) {
             count = 0;
-            newAvgError = positions.stream().peek(TuningEpdReader::debug).collect(Collectors.averagingDouble(TuningEpdReader::valuationError));
+            newAvgError = positions.stream().peek(TuningEpdReader::debug).collect(Collectors.averagingDouble(wdlFen -> valuationError(wdlFen, EvalParams.DEFAULT)));
             System.out.println("\nK:"+ K +" "+ newAvgError);
             if (bestAvgError == 0 || newAvgError < bestAvgError){
                 bestAvgError = newAvgError;
@@ -233,10 +293,10 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
     }
 
 
-    static double valuationError(WdlFen wdlFen){
+    static double valuationError(WdlFen wdlFen, EvalParams evalParams){
         int valuation;
 //        if (wdlFen.getValuation()==null){
-        valuation = valuate(wdlFen.getFen());
+        valuation = valuate(wdlFen.getFen(), evalParams);
 //            wdlFen.setValuation(valuation);
 //        } else {
 //            valuation = wdlFen.getValuation();
@@ -244,13 +304,23 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
         return Math.pow(wdlFen.getWdl().getValue() - sigmoid(valuation), 2d);
     }
 
+    /**
+     * the positions of a position file are quiet already, so their static evaluation stands in for the q-search.
+     */
+    static double valuationError(PositionFile positionFile, long index, EvalParams evalParams){
+        environment.get().setEvalParams(evalParams);
+        WDL wdl = environment.get().setupBoard(positionFile, index);
+        return Math.pow(wdl.getValue() - sigmoid(environment.get().eval()), 2d);
+    }
+
     static double sigmoid(double valuation){
         double power = -K * valuation/400d;
         return 1/(1+Math.pow(10, power));
     }
 
-    static int valuate(String fen) {
+    static int valuate(String fen, EvalParams evalParams) {
         try {
+            environment.get().setEvalParams(evalParams);
             environment.get().setupBoard(fen);
             return environment.get().getQScore();
         } catch (IllegalFENException e) {
@@ -301,16 +371,23 @@ time in millis: 22354383 K: 1.58: 0.05985391497254735
     }
 
     public static void displayNewValues() {
-        Evaluator.applyWeights(WEIGHTS);
-        Map<String, Object> parameterMap = Evaluator.getParameters();
+        displayNewValues(WEIGHTS);
+    }
+
+    /**
+     * print the parameters for the weights, as declarations to paste into EvalParams.
+     * @param weights the weights
+     */
+    public static void displayNewValues(int[] weights) {
+        Map<String, Object> parameterMap = new EvalParams(weights).getParameters();
         for (String parameterName : parameterMap.keySet()){
             String type = null;
             if (parameterMap.get(parameterName) instanceof int[]){
                 int[] array = (int[]) parameterMap.get(parameterName);
-                System.out.println(String.format("private static int[] %s = {%s};", parameterName, Arrays.toString(array).replaceAll("\\[|\\]","")));
+                System.out.println(String.format("private static final int[] %s = {%s};", parameterName, Arrays.toString(array).replaceAll("\\[|\\]","")));
             } else if (parameterMap.get(parameterName) instanceof Integer){
                 int primitive = (int) parameterMap.get(parameterName);
-                System.out.println(String.format("private static int %s = %d;", parameterName, primitive));
+                System.out.println(String.format("private static final int %s = %d;", parameterName, primitive));
             }
         }
     }
@@ -0,0 +1,40 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+/**
+ * Enumeration of the ways TuningRunner can tune the evaluation.
+ * LOCAL changes one weight at a time for as long as that improves the error (see TuningEpdReader.localOptimize),
+ * GRADIENT minimizes the error with the Adam optimizer (see GradientTuner).
+ */
+public enum TuningMethod {
+    LOCAL, GRADIENT;
+
+    /**
+     * @param method the name of the method, case insensitive
+     * @return the matching TuningMethod or null if there is no such method
+     */
+    public static TuningMethod parse(String method) {
+        for (TuningMethod tuningMethod : values()) {
+            if (tuningMethod.name().equalsIgnoreCase(method)) {
+                return tuningMethod;
+            }
+        }
+        return null;
+    }
+}
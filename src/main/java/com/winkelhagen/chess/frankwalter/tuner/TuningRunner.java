@@ -0,0 +1,240 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tunes the evaluation with a dataset, from the command line (-tune), with the local search of TuningEpdReader or with
+ * the GradientTuner (-tunemethod).
+ * The features of the positions are extracted once. For the local search the dataset is split in a shard (FeatureIndex)
+ * per worker of a pool that is sized to the machine, so every error calculation is spread over all cores; the
+ * GradientTuner runs its parallel streams in the same pool.
+ * The best weights and their error are written to a checkpoint file every CHECKPOINT_INTERVAL and when the process stops.
+ * A run resumes from the checkpoint file, if it exists. At the end, the parameters are printed as declarations for EvalParams.
+ */
+public class TuningRunner {
+
+    private static final double K = 1.58; // based on quiet-labeled.epd, see TuningEpdReader
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(5);
+    private static final int EPOCHS = 2000;
+    private static final double LEARNING_RATE = 0.5;
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final String dataset;
+    private final Path checkpoint;
+    private final TuningMethod method;
+    private final ForkJoinPool pool;
+    private final Thread checkpointOnExit = new Thread(this::writeCheckpointOnExit, "tuningCheckpoint");
+
+    private FeatureIndex[] shards;
+    private int size;
+    private int[] bestWeights;
+    private double bestError;
+    private long lastCheckpoint;
+
+    /**
+     * @param dataset the positions to tune with: a PositionFile or an EPD file with quiet positions
+     * @param checkpoint the checkpoint file
+     * @param cores the number of worker threads
+     * @param method the way to tune
+     */
+    public TuningRunner(String dataset, Path checkpoint, int cores, TuningMethod method) {
+        this.dataset = dataset;
+        this.checkpoint = checkpoint;
+        this.method = method;
+        this.pool = new ForkJoinPool(cores);
+    }
+
+    /**
+     * tune until no step improves the error any further (LOCAL) or for EPOCHS epochs (GRADIENT).
+     * @return the tuned weights
+     */
+    public int[] run() throws IOException {
+        int[] checkpointed = readCheckpoint();
+        if (checkpointed != null) {
+            logger.info("resuming from {}", checkpoint);
+        }
+        int[] initial = checkpointed != null ? checkpointed : EvalParams.DEFAULT.getWeights();
+        long millis = System.currentTimeMillis();
+        TuningSet tuningSet = extract(new EvalParams(initial));
+        logger.info("extracted the features of {} positions in {}", tuningSet.size(), Duration.ofMillis(System.currentTimeMillis() - millis));
+
+        int[] result;
+        double error;
+        if (method == TuningMethod.GRADIENT) {
+            GradientTuner tuner = new GradientTuner(tuningSet, K);
+            start(initial, submit(() -> tuner.error(initial)));
+            result = submit(() -> tuner.tune(EPOCHS, LEARNING_RATE, this::improved));
+            error = submit(() -> tuner.error(result));
+        } else {
+            index(tuningSet);
+            start(initial, error(initial));
+            result = TuningEpdReader.localOptimize(initial, this::error, this::improved);
+            error = error(result);
+        }
+        Runtime.getRuntime().removeShutdownHook(checkpointOnExit);
+        writeCheckpoint(result, error);
+        logger.info("tuned to an error of {} in {}", error, Duration.ofMillis(System.currentTimeMillis() - millis));
+        TuningEpdReader.displayNewValues(result);
+        pool.shutdown();
+        return result;
+    }
+
+    private TuningSet extract(EvalParams evalParams) throws IOException {
+        try {
+            return submit(() -> TuningSet.extract(dataset, evalParams));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void index(TuningSet tuningSet) {
+        size = tuningSet.size();
+        int shardCount = Math.max(1, Math.min(pool.getParallelism(), size));
+        shards = submit(() -> IntStream.range(0, shardCount).parallel()
+                .mapToObj(shard -> new FeatureIndex(tuningSet, (int) ((long) size * shard / shardCount),
+                        (int) ((long) size * (shard + 1) / shardCount), K))
+                .toArray(FeatureIndex[]::new));
+        logger.info("indexed {} positions in {} shards", size, shards.length);
+    }
+
+    /**
+     * start with the initial weights as the best weights, and write them to the checkpoint when the process stops.
+     */
+    private synchronized void start(int[] initial, double initialError) {
+        bestWeights = initial;
+        bestError = initialError;
+        lastCheckpoint = System.currentTimeMillis();
+        Runtime.getRuntime().addShutdownHook(checkpointOnExit);
+    }
+
+    /**
+     * @return the average error of all positions: every shard calculates the error of its positions in a task of its own
+     */
+    private double error(int[] weights) {
+        return submit(() -> Arrays.stream(shards).parallel()
+                .mapToDouble(shard -> shard.error(weights) * shard.size()).sum() / size);
+    }
+
+    private synchronized void improved(int[] weights, double error) {
+        if (error >= bestError) {
+            return;
+        }
+        bestWeights = weights;
+        bestError = error;
+        if (System.currentTimeMillis() - lastCheckpoint > CHECKPOINT_INTERVAL.toMillis()) {
+            writeCheckpoint(weights, error);
+        }
+    }
+
+    private synchronized void writeCheckpointOnExit() {
+        writeCheckpoint(bestWeights, bestError);
+    }
+
+    /**
+     * write the checkpoint next to the target and move it in place, so a process that is killed while writing leaves the
+     * previous checkpoint intact.
+     */
+    private void writeCheckpoint(int[] weights, double error) {
+        Properties properties = new Properties();
+        properties.setProperty("dataset", dataset);
+        properties.setProperty("error", Double.toString(error));
+        properties.setProperty("weights", Arrays.stream(weights).mapToObj(Integer::toString).collect(Collectors.joining(",")));
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "FrankWalter tuning checkpoint");
+            }
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastCheckpoint = System.currentTimeMillis();
+            logger.info("checkpoint {} written to {}", error, checkpoint);
+        } catch (IOException e) {
+            logger.warn("unable to write the checkpoint to {}", checkpoint, e);
+        }
+    }
+
+    /**
+     * @return the weights of the checkpoint, or null if there is no (usable) checkpoint
+     */
+    int[] readCheckpoint() {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            int[] weights = Arrays.stream(properties.getProperty("weights", "").split(",")).map(String::trim)
+                    .mapToInt(Integer::parseInt).toArray();
+            if (weights.length != EvalParams.PARAMETER_COUNT) {
+                logger.warn("ignoring {}: it holds {} weights instead of {}", checkpoint, weights.length, EvalParams.PARAMETER_COUNT);
+                return null;
+            }
+            if (!dataset.equals(properties.getProperty("dataset"))) {
+                logger.warn("{} was written for {}, resuming with {}", checkpoint, properties.getProperty("dataset"), dataset);
+            }
+            return weights;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("ignoring unreadable checkpoint {}", checkpoint, e);
+            return null;
+        }
+    }
+
+    private interface PoolTask<T> {
+        T call() throws IOException;
+    }
+
+    private <T> T submit(PoolTask<T> task) {
+        try {
+            return pool.submit(() -> {
+                try {
+                    return task.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
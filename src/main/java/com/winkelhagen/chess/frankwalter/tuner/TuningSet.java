@@ -0,0 +1,131 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalFeatures;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import com.winkelhagen.chess.frankwalter.engine.evaluator.Evaluator;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * the features (see Evaluator.extractFeatures) and results of the positions of a dataset, extracted once, in parallel.
+ * The features describe the static evaluation, so the positions should be quiet: either a quiet dataset such as
+ * quiet-labeled.epd, or a PositionFile.
+ */
+public final class TuningSet {
+
+    private final EvalParams evalParams;
+    private final EvalFeatures[] features;
+    private final double[] results;
+
+    private interface PositionLoader {
+        /**
+         * set up a position
+         * @return the result of the game the position was taken from
+         */
+        WDL setup(int index, Board board);
+    }
+
+    private TuningSet(int size, EvalParams evalParams, PositionLoader loader) {
+        this.evalParams = evalParams;
+        ThreadLocal<Board> boards = ThreadLocal.withInitial(() -> {
+            Board board = new Board();
+            board.setEvalParams(evalParams);
+            return board;
+        });
+        Evaluator evaluator = new Evaluator(evalParams);
+        features = new EvalFeatures[size];
+        results = new double[size];
+        IntStream.range(0, size).parallel().forEach(index -> {
+            Board board = boards.get();
+            results[index] = loader.setup(index, board).getValue();
+            features[index] = evaluator.extractFeatures(board);
+        });
+    }
+
+    /**
+     * extract the features of the positions
+     * @param positions the positions with their results
+     * @param evalParams the parameters to extract the features with
+     */
+    public static TuningSet extract(List<WdlFen> positions, EvalParams evalParams) {
+        return new TuningSet(positions.size(), evalParams, (index, board) -> {
+            WdlFen wdlFen = positions.get(index);
+            try {
+                board.setupBoard2(wdlFen.getFen());
+            } catch (IllegalFENException e) {
+                throw new IllegalStateException("illegal fen: " + wdlFen.getFen(), e);
+            }
+            return wdlFen.getWdl();
+        });
+    }
+
+    /**
+     * extract the features of the positions of a binary dataset
+     * @param positionFile the positions with their results
+     * @param evalParams the parameters to extract the features with
+     */
+    public static TuningSet extract(PositionFile positionFile, EvalParams evalParams) {
+        return new TuningSet(Math.toIntExact(positionFile.size()), evalParams, positionFile::setup);
+    }
+
+    /**
+     * extract the features of the positions of a file
+     * @param fileName a PositionFile (by its extension) or an EPD file
+     * @param evalParams the parameters to extract the features with
+     */
+    public static TuningSet extract(String fileName, EvalParams evalParams) throws IOException {
+        if (fileName.endsWith(PositionFile.EXTENSION)) {
+            return extract(new PositionFile(Paths.get(fileName)), evalParams);
+        }
+        try (Stream<String> stream = Files.lines(Paths.get(fileName))) {
+            return extract(stream.map(TuningEpdReader::readPosition).collect(Collectors.toList()), evalParams);
+        }
+    }
+
+    /**
+     * @return the parameters the features were extracted with
+     */
+    public EvalParams getEvalParams() {
+        return evalParams;
+    }
+
+    public int size() {
+        return features.length;
+    }
+
+    EvalFeatures getFeatures(int position) {
+        return features[position];
+    }
+
+    /**
+     * @return the result of the position: 1 for a white win, 0.5 for a draw, 0 for a black win
+     */
+    double getResult(int position) {
+        return results[position];
+    }
+}
@@ -130,13 +130,7 @@ public class BB {
 	 * All squares on the bitboard a rook can go to on an empty board, 
 	 * except the last square on a file/rank.
 	 */
-	private static long fileMask[] = new long[64];
-	private static long fileFullMask[] = new long[64]; // Same including the last square.
-	private static long rankMask[] = new long[64];
-	private static long rankFullMask[] = new long[64]; // Same including the last square.
-
-	private static long fileAttacks[][] = new long[64][64];
-	private static long rankAttacks[][] = new long[64][64];
+	static long[] rookMask = new long[64];
 
 	/*
 	 * All squares on the bitboard a bishop can go to on an empty board, 
@@ -175,15 +169,43 @@ public class BB {
 	  60,60,59,59,59,59,60,60,
 	  59,60,59,59,59,59,60,59};
 
-	private static long bishop[][] = {
-	  new long[32],new long[16],new long[32],new long[32],new long[32],new long[32],new long[16],new long[32],
-	  new long[16],new long[16],new long[32],new long[32],new long[32],new long[32],new long[16],new long[16],
-	  new long[16],new long[16],new long[128],new long[128],new long[128],new long[128],new long[32],new long[32],
-	  new long[32],new long[32],new long[128],new long[512],new long[512],new long[128],new long[32],new long[32],
-	  new long[32],new long[32],new long[128],new long[512],new long[512],new long[128],new long[32],new long[32],
-	  new long[16],new long[16],new long[128],new long[128],new long[128],new long[128],new long[16],new long[16],
-	  new long[16],new long[16],new long[32],new long[32],new long[32],new long[32],new long[16],new long[16],
-	  new long[32],new long[16],new long[32],new long[32],new long[32],new long[32],new long[16],new long[32]};
+	/* self generated magics (fixed shift per square) */
+	static final long[] rookMagic = {
+
+		   0x9080004000801022L,0x014000402002100cL,0x1e00094082002010L,0x0100040900100020L,
+		   0x2280040002080080L,0x08801a0004008015L,0x3180010002000080L,0x0500038141000322L,
+		   0x0068800020904002L,0x0402004081002200L,0x5008802000821000L,0x8081801001800800L,
+		   0x0090808004000800L,0x3000800400800200L,0x2e14000408108102L,0x2101000040810002L,
+		   0x0180044004200040L,0x000040400020100dL,0x0041818030002000L,0x0c08090010002104L,
+		   0x2021818008000c00L,0x0400808004000200L,0x0029240010410a18L,0x0001020000804401L,
+		   0x0840002080004080L,0x0820002240100040L,0x0110002020040800L,0x0010102200084200L,
+		   0x4088020040400400L,0x0000020080800400L,0x308002040008a110L,0x4200008200005104L,
+		   0x0180004000802080L,0x0010002002404000L,0x0440102001004105L,0x0302004112000a20L,
+		   0x4000080080800400L,0x2002040080800200L,0xd051000409002200L,0x02220410e2000289L,
+		   0x08400080c0e28001L,0x8020008040018028L,0x2280200010008080L,0x8a90000804004040L,
+		   0x0144040008008080L,0x4802008004008002L,0x0216004001004080L,0x120081d122820004L,
+		   0x0000410080003100L,0x0040201040008080L,0x6450008418200080L,0x001a800806100080L,
+		   0x4400080080040080L,0x8100040002008080L,0x0008500841028400L,0x0080240100804200L,
+		   0x0804254211048001L,0x2a00420100192182L,0x04060020c1100882L,0x0002050120081001L,
+		   0x0209000210080085L,0x0001000804000201L,0x3048012090023804L,0x00800902440a2486L};
+
+	static final int[] rookShift = {
+	  52,53,53,53,53,53,53,52,
+	  53,54,54,54,54,54,54,53,
+	  53,54,54,54,54,54,54,53,
+	  53,54,54,54,54,54,54,53,
+	  53,54,54,54,54,54,54,53,
+	  53,54,54,54,54,54,54,53,
+	  53,54,54,54,54,54,54,53,
+	  52,53,53,53,53,53,53,52};
+
+	/*
+	 * the attack sets of all rook and bishop positions, indexed by magic, in one contiguous table shared by all threads.
+	 * The attack sets of a square start at rookOffset / bishopOffset.
+	 */
+	private static final int[] rookOffset = new int[64];
+	private static final int[] bishopOffset = new int[64];
+	private static final long[] sliderAttacks;
 /* end of the public longs! */
 
 
@@ -191,8 +213,8 @@ public class BB {
 	static boolean fillBishopBitboards(long done, long todo, long magic, int shift, int sq, boolean resultSet[], long resultLng[]){
 		if (todo==0){
 			long attacks = bishopAttacks(1L << sq, (todo | done));
-			int result = applyBishopMagic(todo | done, magic, shift);
-			bishop[sq][result] = attacks;
+			int result = applyMagic(todo | done, magic, shift);
+			sliderAttacks[bishopOffset[sq] + result] = attacks;
 			if (resultSet[result] == true){
 				if (resultLng[result] != attacks){
 					return false;
@@ -208,59 +230,32 @@ public class BB {
 		}
 		return true;
 	}
-	private static int applyBishopMagic(long occ, long magic, int shift){
-        occ      *= magic;
-	    occ     >>>= shift;
-		return (int)(occ);
-	}
- 
-	private static boolean fillFileBitboards(long done, long todo, int sq, boolean resultSet[], long resultLng[]){
+	static boolean fillRookBitboards(long done, long todo, long magic, int shift, int sq, boolean resultSet[], long resultLng[]){
 		if (todo==0){
-			long attacks = fileAttacks(1L << sq, (todo | done));
-			int result = applyFileMagic(todo | done);
-			fileAttacks[sq][result] = attacks;
-			if (resultSet[result] == true || attacks==0){
-				return false;
-			} else {
-				resultLng[result] = attacks;
-				resultSet[result] = true;
-			}
-		} else {
-			long twiddleBit = todo & ( - todo);
-			if (!fillFileBitboards(done|twiddleBit, todo ^ twiddleBit, sq, resultSet, resultLng)) return false;
-			if (!fillFileBitboards(done, todo ^ twiddleBit, sq, resultSet, resultLng)) return false;
-		}
-		return true;
-	}
-	private static int applyFileMagic(long occ) {
-	   long fold  = (int)occ | (int)((occ >>> 32) << 3) ;
-	   int occ64 = (int)(fold * 0x01041041) >>> 26;
-	   return occ64;
-	}
-	private static boolean fillRankBitboards(long done, long todo, int sq, boolean resultSet[], long resultLng[]){
-		if (todo==0){
-			long attacks = rankAttacks(1L << sq, (todo | done));
-			int result = applyRankMagic(todo | done, sq);
-			rankAttacks[sq][result] = attacks;
-			if (resultSet[result] == true || attacks==0){
-				return false;
+			long attacks = rookAttacks(1L << sq, (todo | done));
+			int result = applyMagic(todo | done, magic, shift);
+			sliderAttacks[rookOffset[sq] + result] = attacks;
+			if (resultSet[result] == true){
+				if (resultLng[result] != attacks){
+					return false;
+				}
 			} else {
 				resultLng[result] = attacks;
 				resultSet[result] = true;
 			}
 		} else {
 			long twiddleBit = todo & ( - todo);
-			if (!fillRankBitboards(done|twiddleBit, todo ^ twiddleBit, sq, resultSet, resultLng)) return false;
-			if (!fillRankBitboards(done, todo ^ twiddleBit, sq, resultSet, resultLng)) return false;
+			if (!fillRookBitboards(done|twiddleBit, todo ^ twiddleBit, magic, shift, sq, resultSet, resultLng)) return false;
+			if (!fillRookBitboards(done, todo ^ twiddleBit, magic, shift, sq, resultSet, resultLng)) return false;
 		}
 		return true;
 	}
-	static int applyRankMagic(long occ, int sq) {
-		int occ64 = (int)(occ >>> ((sq>>3)*8+1));
-		return occ64;
+	private static int applyMagic(long occ, long magic, int shift){
+        occ      *= magic;
+	    occ     >>>= shift;
+		return (int)(occ);
 	}
-
-
+ 
 /* Initialization function^^ */
 	static {
 		//Castle stuff
@@ -293,10 +288,15 @@ public class BB {
 		rank23[0] = BB.ranksBetween[1][2];
 		rank23[1] = BB.ranksBetween[5][6];
 
-		for (int rank = 1; rank<7; rank ++){
+		//also fill the first (last) rank for white (black), so that the tables can be used to find the pawns attacking a square
+		for (int rank = 0; rank<8; rank ++){
 			for (int file = 0; file<8; file++){
-				pawn[0][rank*8 + file] = ranksBetween[rank+1][rank+1] & closeFiles[file];
-				pawn[1][rank*8 + file] = ranksBetween[rank-1][rank-1] & closeFiles[file];
+				if (rank<7) {
+					pawn[0][rank * 8 + file] = ranksBetween[rank + 1][rank + 1] & closeFiles[file];
+				}
+				if (rank>0) {
+					pawn[1][rank * 8 + file] = ranksBetween[rank - 1][rank - 1] & closeFiles[file];
+				}
 			}
 		}
 		for (int i=0; i<64; i++){
@@ -321,6 +321,14 @@ public class BB {
 			knight[i] = knightMoves(i);
 		}
 		
+		int tableSize = 0;
+		for (int i=0; i<64;i++){
+			rookOffset[i] = tableSize;
+			tableSize += 1 << (64-rookShift[i]);
+			bishopOffset[i] = tableSize;
+			tableSize += 1 << (64-bishopShift[i]);
+		}
+		sliderAttacks = new long[tableSize];
 		for (int i=0; i<64;i++){
 			int range = 1 << (64-bishopShift[i]);
 			boolean resultSet[] = new boolean[range];
@@ -333,30 +341,13 @@ public class BB {
 			}
 		}
 		for (int i=0; i<64;i++){
-			int range = 64;
+			int range = 1 << (64-rookShift[i]);
 			boolean resultSet[] = new boolean[range];
 			long resultLng[] = new long[range];
-			for (int j = 0; j<range; j++){
-				resultSet[j] = false;
-			}
-			fileFullMask[i] = BB.fileAttacks(1L << i, (1L << i));
-			long mask = fileFullMask[i] & ~(rank[0]|rank[7]);
-			fileMask[i] = mask;
-			if (!fillFileBitboards(0L, mask, i, resultSet, resultLng)){
-			    logger.error("Failure Detected! Generating rook moves for square: {}.", Square.byNumber(i));
-			}
-		}
-		for (int i=0; i<64;i++){
-			int range = 64;
-			boolean resultSet[] = new boolean[range];
-			long resultLng[] = new long[range];
-			for (int j = 0; j<range; j++){
-				resultSet[j] = false;
-			}
-			rankFullMask[i] = BB.rankAttacks(1L << i, (1L << i));
-			long mask = rankFullMask[i] & ~(file[0]|file[7]);
-			rankMask[i] = mask;
-			if (!fillRankBitboards(0L, mask, i, resultSet, resultLng)){
+			long mask = (BB.fileAttacks(1L << i, (1L << i)) & ~(rank[0]|rank[7]))
+					| (BB.rankAttacks(1L << i, (1L << i)) & ~(file[0]|file[7]));
+			rookMask[i] = mask;
+			if (!fillRookBitboards(0L, mask, rookMagic[i], rookShift[i], i, resultSet, resultLng)){
 			    logger.error("Failure Detected! Generating rook moves for square: {}.", Square.byNumber(i));
 			}
 		}
@@ -409,17 +400,16 @@ public class BB {
 
 	/**
 	 * Get the horizontal and vertical all moves bitboard for a certain square and occupancy.<br>
-	 * This uses Kindergarten Bitboards for verticals and plain bitboards for horizontals.
+	 * This uses magic bitboards.
 	 * @param square the square the piece is on
 	 * @param occupied the relevant occupancy
 	 * @return a bitboard with horizontally and vertically attacked squares
 	 */
 	public static long getRookMoves(int square, long occupied) {
-		long rankBB = rankAttacks[square][(int)((occupied & rankMask[square]) >>> ((square>>3)*8+1))];
-		occupied &= fileMask[square];
-		int fold  = (int)occupied | (int)((occupied >>> 32) << 3);
-		int occ64 = (int)(fold * 0x01041041) >>> 26;
-		return fileAttacks[square][occ64] | rankBB ;
+		occupied	  &= rookMask [square];
+		occupied	  *= rookMagic[square];
+		occupied	>>>= rookShift[square];
+		return sliderAttacks[rookOffset[square] + (int)(occupied)];
 	}
 
 	/**
@@ -433,7 +423,18 @@ public class BB {
 		occupied	  &= bishopMask [square];	
 		occupied	  *= bishopMagic[square];
 		occupied	>>>= bishopShift[square];
-		return bishop[square][(int)(occupied)];
+		return sliderAttacks[bishopOffset[square] + (int)(occupied)];
+	}
+
+	/**
+	 * Get the horizontal, vertical and diagonal all moves bitboard for a certain square and occupancy.<br>
+	 * This uses magic bitboards.
+	 * @param square the square the piece is on
+	 * @param occupied the relevant occupancy
+	 * @return a bitboard with all squares attacked by a queen
+	 */
+	public static long getQueenMoves(int square, long occupied){
+		return getRookMoves(square, occupied) | getBishopMoves(square, occupied);
 	}
 
 	/* Basic operations */
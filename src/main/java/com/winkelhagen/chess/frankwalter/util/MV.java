@@ -372,6 +372,24 @@ public class MV {
         }
     }
 
+    /**
+     * pack the move into 16 bits: from, to and promotion keep their place, the special bit becomes the 16th bit.
+     * @param move the move
+     * @return the move in 16 bits, without captured piece and score
+     */
+    public static int toCompact(int move) {
+        return (move & 0x7FFF) | ((move & SPECIAL_BIT) >>> 3);
+    }
+
+    /**
+     * unpack a move packed by toCompact
+     * @param compact the move in 16 bits
+     * @return the move with from, to, promotion and special set
+     */
+    public static int fromCompact(int compact) {
+        return (compact & 0x7FFF) | ((compact & 0x8000) << 3);
+    }
+
     /**
      * return the move without the move ordering score
      * @param move the scored move.
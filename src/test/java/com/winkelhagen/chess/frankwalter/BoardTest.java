@@ -20,6 +20,7 @@ package com.winkelhagen.chess.frankwalter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
 import com.winkelhagen.chess.frankwalter.board.Board;
 import com.winkelhagen.chess.frankwalter.board.BoardView;
 import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
@@ -53,4 +54,51 @@ public class BoardTest {
 		
 		
 	}
+
+	@Test
+	public void testLongHistory() throws IllegalFENException{
+		Board board = new Board();
+		BoardView boardView = new BoardView(board);
+		board.setupBoard(Constants.STARTPOS);
+		long hashKey = board.getHashKey();
+		long[] attacked = new long[64];
+		long[] attacking = new long[64];
+		for (int square = 0; square < 64; square++){
+			attacked[square] = board.getAttacked(square);
+			attacking[square] = board.getAttacking(square);
+		}
+		String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+		for (int i = 0; i < 1000; i++){
+			board.doMove(MV.toBasicMove(shuffle[i % 4]));
+		}
+		assertEquals(1000, board.getPlyCount());
+		for (int i = 0; i < 1000; i++){
+			board.undoMove();
+		}
+		assertEquals(hashKey, board.getHashKey());
+		for (int square = 0; square < 64; square++){
+			assertEquals(attacked[square], board.getAttacked(square));
+			assertEquals(attacking[square], board.getAttacking(square));
+		}
+		assertEquals(Constants.STARTPOS, boardView.getFEN(false));
+	}
+
+	@Test
+	public void testLazyAttacks() throws IllegalFENException{
+		Board incremental = new Board();
+		Board lazy = new Board(AttackMode.LAZY);
+		String[] positions = {
+				Constants.STARTPOS,
+				"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+				"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1"
+		};
+		for (String position : positions){
+			incremental.setupBoard(position);
+			lazy.setupBoard(position);
+			for (int square = 0; square < 64; square++){
+				assertEquals(incremental.getAttacked(square), lazy.getAttacked(square));
+				assertEquals(incremental.getAttacking(square), lazy.getAttacking(square));
+			}
+		}
+	}
 }
@@ -17,10 +17,18 @@
  */
 package com.winkelhagen.chess.frankwalter;
 
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
 import com.winkelhagen.chess.frankwalter.config.FWConfig;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableCompactImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableType;
+import com.winkelhagen.chess.frankwalter.tuner.TuningMethod;
 import org.junit.Test;
 
+import java.io.File;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by laurens on 14-11-18 for frankwalter.
@@ -75,5 +83,44 @@ public class FWConfigTest {
         assertEquals("Size too large should scale back to 26 magnitude", 26, size);
     }
 
+    @Test
+    public void testTTSizeBeyondTwoGigabytes(){
+        assertEquals("32gb holds 2^31 entries of 16 bytes", 31, new FWConfig(new String[]{"-debug", "-tt", "32gb"}).getTTSize(40));
+        assertEquals("64gb holds 2^32 entries of 16 bytes", 32, new FWConfig(new String[]{"-debug", "-tt", "64GB"}).getTTSize(40));
+    }
+
+    @Test
+    public void testTranspositionTableType(){
+        assertEquals("default table type should be lockless", TranspositionTableType.LOCKLESS, new FWConfig(new String[]{"-debug"}).getTranspositionTableType());
+        FWConfig fwConfig = new FWConfig(new String[]{"-debug", "-tt", "1mb", "-tttype", "compact"});
+        fwConfig.setTranspositionTable();
+        assertTrue("the table on the heap should be compact", fwConfig.smpController.getTranspositionTable() instanceof TranspositionTableCompactImpl);
+        fwConfig.smpController.getTranspositionTable().free();
+        assertEquals("unknown table type should be ignored", TranspositionTableType.LOCKLESS, new FWConfig(new String[]{"-debug", "-tttype", "sparse"}).getTranspositionTableType());
+    }
+
+    @Test
+    public void testAttackMode(){
+        assertEquals("default attack mode should be incremental", AttackMode.INCREMENTAL, new FWConfig(new String[]{"-debug"}).getAttackMode());
+        FWConfig fwConfig = new FWConfig(new String[]{"-debug", "-attacks", "LAZY"});
+        assertEquals("attack mode should be lazy", AttackMode.LAZY, fwConfig.getAttackMode());
+        assertEquals("boards should be lazy", AttackMode.LAZY, fwConfig.smpController.getBoard().getAttackMode());
+        assertEquals("unknown attack mode should be ignored", AttackMode.INCREMENTAL, new FWConfig(new String[]{"-debug", "-attacks", "eager"}).getAttackMode());
+    }
+
+    @Test
+    public void testTune(){
+        assertNull("without -tune the engine should play", new FWConfig(new String[]{"-debug"}).getTuneDataset());
+        FWConfig fwConfig = new FWConfig(new String[]{"-debug", "-tune", "positions.bin", "-cores", "3"});
+        assertEquals(new File("positions.bin").getAbsolutePath(), fwConfig.getTuneDataset());
+        assertEquals(new File("positions.bin.checkpoint").getAbsolutePath(), fwConfig.getTuneCheckpoint());
+        assertEquals(3, fwConfig.getTuneCores());
+        assertEquals("default tuning method should be local", TuningMethod.LOCAL, fwConfig.getTuneMethod());
+        fwConfig = new FWConfig(new String[]{"-debug", "-tune", "positions.bin", "-checkpoint", "run.checkpoint"});
+        assertEquals(new File("run.checkpoint").getAbsolutePath(), fwConfig.getTuneCheckpoint());
+        assertEquals(Runtime.getRuntime().availableProcessors(), fwConfig.getTuneCores());
+        assertEquals(TuningMethod.GRADIENT, new FWConfig(new String[]{"-debug", "-tune", "positions.bin", "-tunemethod", "gradient"}).getTuneMethod());
+    }
+
 
 }
\ No newline at end of file
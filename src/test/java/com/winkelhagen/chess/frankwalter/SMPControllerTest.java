@@ -0,0 +1,64 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter;
+
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
+import com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableQuadArrayImpl;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class SMPControllerTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+
+    @Test
+    public void testRepeatedSearchesReuseWorkers() throws IllegalFENException {
+        SMPController smpController = new SMPController(AttackMode.INCREMENTAL);
+        smpController.setTranspositionTable(new TranspositionTableQuadArrayImpl(16));
+        smpController.setCores(Math.min(4, Runtime.getRuntime().availableProcessors()));
+        smpController.setPost(false);
+        smpController.setMaxDepth(4);
+        smpController.setupBoard(KIWIPETE);
+        for (int i = 0; i < 20; i++) {
+            int bestMove = smpController.getBestMove(new HashSet<>());
+            assertTrue("the best move should be legal", StaticMoveGenerator.isLegalMove(smpController.getBoard(), bestMove, new int[256]));
+            assertFalse(smpController.isRunning());
+        }
+        LatencyStatistics latencyStatistics = smpController.getLatencyStatistics();
+        assertEquals(20, latencyStatistics.getSearches());
+        assertTrue(latencyStatistics.getMaxStartNanos() >= latencyStatistics.getAverageStartNanos());
+        assertTrue(latencyStatistics.getMaxStopNanos() >= latencyStatistics.getAverageStopNanos());
+    }
+
+    @Test
+    public void testRemovingWorkers() throws IllegalFENException {
+        SMPController smpController = new SMPController(AttackMode.INCREMENTAL);
+        smpController.setTranspositionTable(new TranspositionTableQuadArrayImpl(16));
+        smpController.setCores(Runtime.getRuntime().availableProcessors());
+        smpController.setCores(1);
+        smpController.setPost(false);
+        smpController.setMaxDepth(3);
+        smpController.setupBoard(KIWIPETE);
+        assertTrue("a move should be found", smpController.getBestMove(new HashSet<>()) != 0);
+    }
+}
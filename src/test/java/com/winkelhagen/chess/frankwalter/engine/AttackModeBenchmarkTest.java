@@ -0,0 +1,113 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine;
+
+import com.winkelhagen.chess.frankwalter.board.AttackMode;
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableQuadArrayImpl;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * compare the incremental and the lazy attack modes of the board: both should give the same results, the timings are logged.
+ * This is a benchmark rather than a test, so it is ignored by the build.
+ */
+@Ignore
+public class AttackModeBenchmarkTest {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int PERFT_DEPTH = 4;
+    private static final int SEARCH_DEPTH = 8;
+
+    private static final String[] POSITIONS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1B1PPP/R2QKB1R w KQ - 0 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -"
+    };
+
+    private int[][] movesTable = new int[10][Board.ABSOLUTE_MAX_MOVES];
+
+    @Test
+    public void testPerft() throws IllegalFENException {
+        for (String fen : POSITIONS) {
+            long[] nodes = new long[2];
+            for (AttackMode attackMode : AttackMode.values()) {
+                Board board = new Board(attackMode);
+                board.setupBoard(fen);
+                long startTime = System.nanoTime();
+                nodes[attackMode.ordinal()] = perft(board, PERFT_DEPTH);
+                long duration = System.nanoTime() - startTime;
+                logger.info("{} perft({}) {}: {} nodes in {} millis", attackMode, PERFT_DEPTH, fen, nodes[attackMode.ordinal()], duration / 1000000);
+            }
+            assertEquals("perft should not depend on the attack mode", nodes[0], nodes[1]);
+        }
+    }
+
+    @Test
+    public void testFixedDepthSearch() throws IllegalFENException {
+        for (String fen : POSITIONS) {
+            int[] moves = new int[2];
+            long[] nodes = new long[2];
+            for (AttackMode attackMode : AttackMode.values()) {
+                Board board = new Board(attackMode);
+                board.setupBoard(fen);
+                ScoutEngineImpl engine = new ScoutEngineImpl();
+                engine.setBoard(board);
+                engine.setTranspositionTable(new TranspositionTableQuadArrayImpl(16));
+                engine.setMaxDepth(SEARCH_DEPTH);
+                List<AtomicInteger> searchDepths = new ArrayList<>();
+                searchDepths.add(new AtomicInteger(1));
+                SearchStatistics statistics = new SearchStatistics();
+                long startTime = System.nanoTime();
+                moves[attackMode.ordinal()] = engine.getBestMove(new HashSet<>(), searchDepths, statistics);
+                long duration = System.nanoTime() - startTime;
+                nodes[attackMode.ordinal()] = statistics.getTotalNodeCount();
+                logger.info("{} search({}) {}: {} nodes in {} millis", attackMode, SEARCH_DEPTH, fen, nodes[attackMode.ordinal()], duration / 1000000);
+            }
+            assertEquals("the best move should not depend on the attack mode", moves[0], moves[1]);
+            assertEquals("the search tree should not depend on the attack mode", nodes[0], nodes[1]);
+        }
+    }
+
+    private long perft(Board board, int depth) {
+        int[] moves = movesTable[depth];
+        int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+        if (depth == 1) {
+            return movesNr;
+        }
+        long nodeCount = 0;
+        for (int i = 0; i < movesNr; i++) {
+            board.doMove(moves[i]);
+            nodeCount += perft(board, depth - 1);
+            board.undoMove();
+        }
+        return nodeCount;
+    }
+}
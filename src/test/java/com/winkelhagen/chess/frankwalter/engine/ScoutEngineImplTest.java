@@ -0,0 +1,55 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableLocklessImpl;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import com.winkelhagen.chess.frankwalter.util.MV;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+public class ScoutEngineImplTest {
+
+    /*
+     * white is far behind, and Kf7 (or Kf8) stalemates black: the rook and bishop of black are boxed in by their own pawns.
+     * Before the first move was picked, a null move of the stalemated side failed high, and Kxe6 was played instead.
+     */
+    @Test
+    public void testStalemateIsNotPrunedByNullMove() throws IllegalFENException {
+        for (int maxDepth = 2; maxDepth <= 6; maxDepth++) {
+            Board board = new Board();
+            board.setupBoard("rb5k/p1p1K3/p1P1p1P1/p3P3/p7/P7/8/8 w - - 0 1");
+            ScoutEngineImpl engine = new ScoutEngineImpl();
+            engine.setBoard(board);
+            engine.setTranspositionTable(new TranspositionTableLocklessImpl(16));
+            engine.setMaxDepth(maxDepth);
+            List<AtomicInteger> searchDepths = new ArrayList<>();
+            searchDepths.add(new AtomicInteger(1));
+            String move = MV.toString(engine.getBestMove(new HashSet<>(), searchDepths, new SearchStatistics()));
+            assertTrue("white should stalemate at max depth " + maxDepth + " instead of " + move,
+                    "e7f7".equals(move) || "e7f8".equals(move));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchStatisticsTest {
+
+    @Test
+    public void testAggregatesThreadCounters() {
+        SearchStatistics statistics = new SearchStatistics();
+        SearchCounters first = new SearchCounters();
+        SearchCounters second = new SearchCounters();
+        statistics.register(first);
+        statistics.register(second);
+        first.nodecount = 3_000_000_000L;
+        first.qnodecount = 5;
+        second.nodecount = 7;
+        second.qnodecount = 11;
+        assertEquals("counters should not overflow an int", 3_000_000_007L, statistics.getNodeCount());
+        assertEquals(16, statistics.getQNodeCount());
+        assertEquals(3_000_000_023L, statistics.getTotalNodeCount());
+        first.reset();
+        assertEquals(18, statistics.getTotalNodeCount());
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTable;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableCompactImpl;
+import com.winkelhagen.chess.frankwalter.engine.tt.TranspositionTableQuadArrayImpl;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * compare the quad array and the compact transposition table at the same (small) size: the hit rates and timings are logged.
+ * This is a benchmark rather than a test, so it is ignored by the build.
+ */
+@Ignore
+public class TranspositionTableBenchmarkTest {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int MAGNITUDE = 12;
+    private static final int DEPTH = 8;
+
+    private static final String[] POSITIONS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1B1PPP/R2QKB1R w KQ - 0 8",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -"
+    };
+
+    @Test
+    public void testFixedDepthSearch() throws IllegalFENException {
+        for (String fen : POSITIONS) {
+            search("quad", fen, TranspositionTableQuadArrayImpl::new);
+            search("compact", fen, TranspositionTableCompactImpl::new);
+        }
+    }
+
+    private void search(String name, String fen, IntFunction<TranspositionTable> tableFactory) throws IllegalFENException {
+        Board board = new Board();
+        board.setupBoard(fen);
+        ScoutEngineImpl engine = new ScoutEngineImpl();
+        engine.setBoard(board);
+        engine.setTranspositionTable(tableFactory.apply(MAGNITUDE));
+        engine.setMaxDepth(DEPTH);
+        List<AtomicInteger> searchDepths = new ArrayList<>();
+        searchDepths.add(new AtomicInteger(1));
+        SearchStatistics statistics = new SearchStatistics();
+        long startTime = System.nanoTime();
+        int move = engine.getBestMove(new HashSet<>(), searchDepths, statistics);
+        long duration = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+        long nodes = statistics.getTotalNodeCount();
+        logger.info("{} search({}) {}: {} nodes, {} tt cutoffs, {} knps", name, DEPTH, fen, nodes, statistics.getTTHits(), nodes / duration);
+        assertTrue(move != 0);
+    }
+}
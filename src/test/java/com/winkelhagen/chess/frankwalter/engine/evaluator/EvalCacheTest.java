@@ -0,0 +1,76 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+public class EvalCacheTest {
+
+	private static final Evaluator EVALUATOR = new Evaluator(EvalParams.DEFAULT);
+
+	private static final String[] FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - -",
+		"4k3/8/8/8/8/8/8/R3K3 w - -"
+	};
+
+	@Test
+	public void testCachedEvalEqualsEval() throws IllegalFENException {
+		EvalCache evalCache = new EvalCache(10);
+		Board board = new Board();
+		for (String fen : FENS) {
+			board.setupBoard(fen);
+			int expected = EVALUATOR.eval(board, -32000, 32000);
+			assertEquals(fen, expected, EVALUATOR.eval(board, -32000, 32000, null, null, evalCache));
+			assertEquals(fen, expected, EVALUATOR.eval(board, -32000, 32000, null, null, evalCache));
+		}
+		assertEquals(8, evalCache.getProbes());
+		assertEquals(4, evalCache.getHits());
+	}
+
+	@Test
+	public void testLazyEvalIsNotCached() throws IllegalFENException {
+		EvalCache evalCache = new EvalCache(10);
+		Board board = new Board();
+		board.setupBoard("1nb1kbn1/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ -");
+		int lazyScore = EVALUATOR.eval(board, -32000, -31000, null, null, evalCache);
+		assertEquals(lazyScore, EVALUATOR.eval(board, -32000, -31000));
+		assertEquals(false, evalCache.contains(board.getHashKey()));
+		int expected = EVALUATOR.eval(board, -32000, 32000);
+		assertEquals(expected, EVALUATOR.eval(board, -32000, 32000, null, null, evalCache));
+		assertEquals(true, evalCache.contains(board.getHashKey()));
+	}
+
+	@Test
+	public void testStoreAndClear() {
+		EvalCache evalCache = new EvalCache(4);
+		evalCache.store(0x123456789L, -42);
+		assertEquals(true, evalCache.contains(0x123456789L));
+		assertEquals(-42, evalCache.getScore(0x123456789L));
+		assertEquals(false, evalCache.contains(0x123456789L ^ (1L << 40)));
+		evalCache.clear(7);
+		assertEquals(false, evalCache.contains(0x123456789L));
+		assertEquals(7, evalCache.getGeneration());
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+public class EvalFeaturesTest {
+
+	private static final String[] FENS = {
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+			"r1bq1rk1/pp2ppbp/2np1np1/8/3NP3/2N1BP2/PPPQ2PP/R3KB1R b KQ -",
+			"8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 b - -",
+			"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 85 120"
+	};
+
+	@Test
+	public void testUnchangedWeights() throws IllegalFENException {
+		Evaluator evaluator = new Evaluator(EvalParams.DEFAULT);
+		for (String fen : FENS) {
+			Board board = new Board();
+			board.setupBoard(fen);
+			EvalFeatures features = evaluator.extractFeatures(board);
+			int score = evaluator.eval(board, -32000, 32000);
+			assertEquals(fen, board.getSideToMove() == Constants.WHITE ? score : -score, features.getEval());
+			assertEquals(fen, features.getEval(), features.evaluate(new double[EvalParams.PARAMETER_COUNT]), 0.001);
+		}
+	}
+
+	/*
+	 * the features predict the evaluation for other weights, up to the rounding of the evaluation.
+	 */
+	@Test
+	public void testOtherWeights() throws IllegalFENException {
+		Evaluator evaluator = new Evaluator(EvalParams.DEFAULT);
+		int[] defaultWeights = EvalParams.DEFAULT.getWeights();
+		Random random = new Random(42);
+		for (int run = 0; run < 10; run++) {
+			int[] weights = defaultWeights.clone();
+			double[] delta = new double[EvalParams.PARAMETER_COUNT];
+			for (int i = 0; i < weights.length; i++) {
+				delta[i] = random.nextInt(11) - 5;
+				weights[i] += (int) delta[i];
+			}
+			EvalParams tuned = new EvalParams(weights);
+			Evaluator tunedEvaluator = new Evaluator(tuned);
+			for (String fen : FENS) {
+				Board board = new Board();
+				board.setupBoard(fen);
+				EvalFeatures features = evaluator.extractFeatures(board);
+				Board tunedBoard = new Board();
+				tunedBoard.setEvalParams(tuned);
+				tunedBoard.setupBoard(fen);
+				int score = tunedEvaluator.eval(tunedBoard, -32000, 32000);
+				assertEquals(fen, tunedBoard.getSideToMove() == Constants.WHITE ? score : -score, features.evaluate(delta), 2.5);
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+public class EvalParamsTest {
+
+	private static final String FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+
+	@Test
+	public void testWeightsDoNotChangeOtherParameters() throws IllegalFENException {
+		Evaluator defaultEvaluator = new Evaluator(EvalParams.DEFAULT);
+		Board board = new Board();
+		board.setupBoard(FEN);
+		int expected = defaultEvaluator.eval(board, -32000, 32000);
+
+		int[] weights = new int[EvalParams.PARAMETER_COUNT];
+		weights[403] = 50; // isolated pawn penalty
+		weights[0] = 10; // knight on a1/h1
+		EvalParams tuned = new EvalParams(weights);
+		assertEquals(EvalParams.DEFAULT.isolatedPawnPenalty() + 50, tuned.isolatedPawnPenalty());
+		assertEquals(EvalParams.DEFAULT.pcsqMid(Constants.WHITE, Constants.KNIGHT, 0) + 40, tuned.pcsqMid(Constants.WHITE, Constants.KNIGHT, 0));
+		assertEquals(-tuned.pcsqMid(Constants.WHITE, Constants.KNIGHT, 0), tuned.pcsqMid(Constants.BLACK, Constants.KNIGHT, 56));
+		assertTrue(EvalParams.DEFAULT.getGeneration() != tuned.getGeneration());
+
+		Board tunedBoard = new Board();
+		tunedBoard.setEvalParams(tuned);
+		tunedBoard.setupBoard(FEN);
+		new Evaluator(tuned).eval(tunedBoard, -32000, 32000);
+		assertEquals("the default parameters should not change", expected, defaultEvaluator.eval(board, -32000, 32000));
+	}
+
+	@Test
+	public void testSetEvalParamsRecalculatesPcsq() throws IllegalFENException {
+		int[] weights = new int[EvalParams.PARAMETER_COUNT];
+		weights[329] = 5; // pawns on b2 and g2 (black has no pawns on b7 and g7)
+		EvalParams tuned = new EvalParams(weights);
+		Board board = new Board();
+		board.setupBoard(FEN);
+		int pcsqMid = board.getPcsqMid();
+		board.setEvalParams(tuned);
+		Board tunedBoard = new Board();
+		tunedBoard.setEvalParams(tuned);
+		tunedBoard.setupBoard(FEN);
+		assertEquals(tunedBoard.getPcsqMid(), board.getPcsqMid());
+		assertTrue(pcsqMid != board.getPcsqMid());
+		board.setEvalParams(EvalParams.DEFAULT);
+		assertEquals(pcsqMid, board.getPcsqMid());
+	}
+
+	@Test
+	public void testDefaultParameters() {
+		Map<String, Object> parameters = new EvalParams(new int[EvalParams.PARAMETER_COUNT]).getParameters();
+		for (Map.Entry<String, Object> parameter : EvalParams.DEFAULT.getParameters().entrySet()) {
+			Object value = parameters.get(parameter.getKey());
+			if (value instanceof int[]) {
+				assertArrayEquals(parameter.getKey(), (int[]) parameter.getValue(), (int[]) value);
+			} else {
+				assertEquals(parameter.getKey(), parameter.getValue(), value);
+			}
+		}
+		assertEquals(64, ((int[]) parameters.get("kingPSQ")).length);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+public class MaterialTableTest {
+
+	private static final Evaluator EVALUATOR = new Evaluator(EvalParams.DEFAULT);
+
+	@Test
+	public void testMaterialKey() throws IllegalFENException {
+		Board board = new Board();
+		board.setupBoard("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		long materialKey = board.getMaterialKey();
+		for (int color = Constants.WHITE; color <= Constants.BLACK; color++) {
+			assertEquals(1, MaterialTable.count(materialKey, color, Constants.QUEEN));
+			assertEquals(2, MaterialTable.count(materialKey, color, Constants.ROOK));
+			assertEquals(2, MaterialTable.count(materialKey, color, Constants.BISHOP));
+			assertEquals(2, MaterialTable.count(materialKey, color, Constants.KNIGHT));
+			assertEquals(8, MaterialTable.count(materialKey, color, Constants.PAWN));
+		}
+	}
+
+	@Test
+	public void testPack() {
+		int info = MaterialTable.pack(-123, 0, MaterialTable.SCALE_NORMAL, MaterialTable.ENDGAME_KBNK + Constants.BLACK);
+		assertEquals(-123, MaterialTable.imbalance(info));
+		assertEquals(0, MaterialTable.scale(info, Constants.WHITE));
+		assertEquals(MaterialTable.SCALE_NORMAL, MaterialTable.scale(info, Constants.BLACK));
+		assertEquals(MaterialTable.ENDGAME_KBNK + Constants.BLACK, MaterialTable.endgame(info));
+		assertFalse(MaterialTable.isPlain(info));
+		assertTrue(MaterialTable.isPlain(MaterialTable.pack(-123, MaterialTable.SCALE_NORMAL, MaterialTable.SCALE_NORMAL, MaterialTable.ENDGAME_NONE)));
+	}
+
+	@Test
+	public void testDeadDraw() throws IllegalFENException {
+		Board board = new Board();
+		board.setupBoard("8/8/4k3/8/8/3NK3/8/8 w - - 0 1");
+		assertTrue(MaterialTable.isDeadDraw(board.getMaterialKey()));
+		board.setupBoard("8/8/4k3/8/8/3bK3/8/8 w - - 0 1");
+		assertTrue(MaterialTable.isDeadDraw(board.getMaterialKey()));
+		board.setupBoard("8/8/4k3/8/8/3NK3/7P/8 w - - 0 1");
+		assertFalse(MaterialTable.isDeadDraw(board.getMaterialKey()));
+		board.setupBoard("8/8/4k3/8/8/3NKN2/8/8 w - - 0 1");
+		assertFalse(MaterialTable.isDeadDraw(board.getMaterialKey()));
+	}
+
+	@Test
+	public void testScaleFactors() throws IllegalFENException {
+		MaterialTable materialTable = new MaterialTable(6);
+		Board board = new Board();
+		board.setupBoard("8/8/4k3/8/8/3NKN2/8/8 w - - 0 1");
+		assertEquals("two knights cannot win", 0, EVALUATOR.eval(board, -32000, 32000, null, materialTable));
+		board.setupBoard("8/8/4k3/8/8/3NKB2/8/8 w - - 0 1");
+		assertTrue("bishop and knight can win", EVALUATOR.eval(board, -32000, 32000, null, materialTable) > 0);
+		board.setupBoard("8/8/4k3/8/7p/3NK3/8/8 w - - 0 1");
+		assertTrue("a knight cannot win against a pawn", EVALUATOR.eval(board, -32000, 32000, null, materialTable) <= 0);
+		assertEquals(3, materialTable.getProbes());
+	}
+
+	@Test
+	public void testOppositeBishops() throws IllegalFENException {
+		Board board = new Board();
+		board.setupBoard("8/5k2/8/1b6/8/2PB4/1P2K3/8 w - - 0 1");
+		int sameColor = EVALUATOR.eval(board, -32000, 32000);
+		board.setupBoard("8/5k2/8/2b5/8/2PB4/1P2K3/8 w - - 0 1");
+		int oppositeColor = EVALUATOR.eval(board, -32000, 32000);
+		assertTrue(oppositeColor > 0);
+		assertTrue(oppositeColor < sameColor);
+	}
+
+	@Test
+	public void testKBNKCorner() throws IllegalFENException {
+		Board board = new Board();
+		// dark squared bishop: the bare king belongs in a1 or h8
+		board.setupBoard("k7/8/1K6/8/8/3NB3/8/8 w - - 0 1");
+		int wrongCorner = EVALUATOR.eval(board, -32000, 32000);
+		board.setupBoard("7k/8/6K1/8/8/3NB3/8/8 w - - 0 1");
+		int rightCorner = EVALUATOR.eval(board, -32000, 32000);
+		assertTrue(rightCorner > wrongCorner);
+	}
+}
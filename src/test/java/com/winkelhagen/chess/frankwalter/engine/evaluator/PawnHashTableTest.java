@@ -0,0 +1,62 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.evaluator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+public class PawnHashTableTest {
+
+	private static final Evaluator EVALUATOR = new Evaluator(EvalParams.DEFAULT);
+
+	private static final String[] FENS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - -",
+		"4k3/8/8/8/8/8/8/R3K3 w - -"
+	};
+
+	@Test
+	public void testCachedEvalEqualsEval() throws IllegalFENException {
+		PawnHashTable pawnHashTable = new PawnHashTable(10);
+		Board board = new Board();
+		for (String fen : FENS) {
+			board.setupBoard(fen);
+			int expected = EVALUATOR.eval(board, -32000, 32000);
+			assertEquals(fen, expected, EVALUATOR.eval(board, -32000, 32000, pawnHashTable, null));
+			assertEquals(fen, expected, EVALUATOR.eval(board, -32000, 32000, pawnHashTable, null));
+		}
+		assertEquals(8, pawnHashTable.getProbes());
+		assertEquals(5, pawnHashTable.getHits());
+	}
+
+	@Test
+	public void testClear() {
+		PawnHashTable pawnHashTable = new PawnHashTable(4);
+		pawnHashTable.store(0x1234L, 42);
+		assertEquals(true, pawnHashTable.contains(0x1234L));
+		assertEquals(42, pawnHashTable.getScore(0x1234L));
+		pawnHashTable.clear(7);
+		assertEquals(false, pawnHashTable.contains(0x1234L));
+		assertEquals(7, pawnHashTable.getGeneration());
+	}
+}
@@ -18,21 +18,66 @@
 package com.winkelhagen.chess.frankwalter.engine.evaluator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.engine.moves.StaticMoveGenerator;
 import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
 import com.winkelhagen.chess.frankwalter.util.MV;
 
 public class SeeTest {
 
+	private static final String[] POSITIONS = {
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+			"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1B1PPP/R2QKB1R w KQ - 0 8",
+			"r2qkbr1/ppppppp1/4n3/7p/4P1P1/2Q5/PPPPbP1P/RNB1K1NR w KQq - 0 1"
+	};
+
+	/* a swap list that is reused by all calls, like the one of the MovePicker */
+	private final int[] gain = new int[Seer.MAX_EXCHANGES];
+
+	/*
+	 * assert the exact see value, and that the threshold variant agrees with it.
+	 */
+	private void assertSee(String message, int expected, int move, Board board) {
+		assertEquals(message, expected, Seer.see(move, board));
+		assertEquals(message, expected, Seer.see(move, board, gain));
+		assertTrue(message, Seer.seeGreaterOrEqual(move, board, expected));
+		assertFalse(message, Seer.seeGreaterOrEqual(move, board, expected + 1));
+	}
+
+	@Test
+	public void testSeeGreaterOrEqualMatchesSee() throws IllegalFENException{
+		Board board = new Board();
+		int[] moves = new int[256];
+		int[] replies = new int[256];
+		for (String fen : POSITIONS){
+			board.setupBoard(fen);
+			int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+			for (int i=0; i<movesNr; i++){
+				board.doMove(moves[i]);
+				int repliesNr = StaticMoveGenerator.generateUnquiet(board, replies);
+				for (int j=0; j<repliesNr; j++){
+					int see = Seer.see(replies[j], board);
+					for (int threshold = -12; threshold <= 12; threshold++){
+						assertEquals(MV.toString(replies[j]) + " after " + MV.toString(moves[i]) + " in " + fen + " threshold " + threshold,
+								see >= threshold, Seer.seeGreaterOrEqual(replies[j], board, threshold));
+					}
+				}
+				board.undoMove();
+			}
+		}
+	}
+
 	@Test
 	public void testSeeQxPRxQ() throws IllegalFENException{
 		Board board = new Board();
 		board.setupBoard("rnbqkbnr/ppppppp1/8/7p/4P3/8/PPPP1PPP/RNBQKBNR w KQkq h6 0 2");
 		int move = MV.toBasicMove("d1h5");
-		assertEquals("Queen takes pawn, rook takes queen",-8, Seer.see(move, board));
+		assertSee("Queen takes pawn, rook takes queen", -8, move, board);
 	}
 
 	@Test
@@ -40,7 +85,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnbqkbnr/ppppppp1/8/7p/4P3/8/PPPPBPPP/RNBQK1NR w KQkq h6 0 2");
 		int move = MV.toBasicMove("e2h5");
-		assertEquals("Bishop takes pawn", 1, Seer.see(move, board));
+		assertSee("Bishop takes pawn", 1, move, board);
 	}
 
 	@Test
@@ -48,7 +93,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnbqkb1r/ppppppp1/5n2/7p/4P3/8/PPPPBPPP/RNBQK1NR w KQkq h6 0 2");
 		int move = MV.toBasicMove("e2h5");
-		assertEquals("Bishop takes pawn, knight takes bishop", -2, Seer.see(move, board));
+		assertSee("Bishop takes pawn, knight takes bishop", -2, move, board);
 	}
 
 	@Test
@@ -56,7 +101,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnbqkb1r/ppppppp1/5n2/7p/4P1P1/8/PPPPBP1P/RNBQK1NR w KQkq h6 0 1");
 		int move = MV.toBasicMove("g4h5");
-		assertEquals("Pawn takes pawn", 1, Seer.see(move, board));
+		assertSee("Pawn takes pawn", 1, move, board);
 	}
 
 	@Test
@@ -64,7 +109,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnbqkb1r/ppppppp1/5n2/7p/4P1P1/8/PPPPBP1P/RNBQK1NR b KQkq g3 0 1");
 		int move = MV.toBasicMove("h5g4");
-		assertEquals("Pawn takes pawn, full exchange", 0, Seer.see(move, board));
+		assertSee("Pawn takes pawn, full exchange", 0, move, board);
 	}
 
 	@Test
@@ -72,7 +117,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnb1kbr1/pppppppq/5n2/7p/4P1P1/8/PPPPQP1P/RNBBK1NR w KQq - 0 1");
 		int move = MV.toBasicMove("g4h5");
-		assertEquals("Pawn takes pawn", 1, Seer.see(move, board));
+		assertSee("Pawn takes pawn", 1, move, board);
 	}
 
 	@Test
@@ -80,7 +125,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnb1kb1r/pppppppq/5n2/7p/4P1P1/8/PPPPQP1P/RNBBK1NR w KQq - 0 1");
 		int move = MV.toBasicMove("g4h5");
-		assertEquals("Pawn takes pawn, full exchange", 0, Seer.see(move, board));
+		assertSee("Pawn takes pawn, full exchange", 0, move, board);
 	}
 
 	@Test
@@ -88,7 +133,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("rnb1kbr1/pppppppq/8/7n/4P1P1/8/PPPPQP1P/RNB1KBNR w KQq - 0 1");
 		int move = MV.toBasicMove("g4h5");
-		assertEquals("Pawn takes knight", 3, Seer.see(move, board));
+		assertSee("Pawn takes knight", 3, move, board);
 	}
 
 	@Test
@@ -96,7 +141,7 @@ public class SeeTest {
 		Board board = new Board();
 		board.setupBoard("r2qkbr1/ppppppp1/4n3/7p/4P1P1/2Q5/PPPPbP1P/RNB1K1NR w KQq - 0 1");
 		int move = MV.toBasicMove("g4h5");
-		assertEquals("Pawn takes pawn, full exchange", 0, Seer.see(move, board));
+		assertSee("Pawn takes pawn, full exchange", 0, move, board);
 	}
 
 }
@@ -0,0 +1,138 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.moves;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.Constants;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+
+/**
+ * test that the staged move picker hands out every legal move exactly once, whatever hash move and killers it is given
+ */
+public class MovePickerTest {
+
+	private static final String[] positions = {
+			Constants.STARTPOS,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+	};
+
+	private final int[][][] history = new int[2][2][4096];
+	private final MovePicker[] movePickers = { new MovePicker(history[0], history[1]), new MovePicker(history[0], history[1]), new MovePicker(history[0], history[1]) };
+	private final List<Integer> candidates = new ArrayList<>();
+
+	@Test
+	public void testAllMovesOnce() throws IllegalFENException {
+		Board board = new Board();
+		int[] moves = new int[Board.ABSOLUTE_MAX_MOVES];
+		for (String fen : positions) {
+			board.setupBoard(fen);
+			int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+			for (int i = 0; i < movesNr; i++) {
+				candidates.add(moves[i]);
+			}
+		}
+		long nodes = 0;
+		for (String fen : positions) {
+			board.setupBoard(fen);
+			nodes += walk(board, 0, 3);
+		}
+		assertTrue(nodes > 0);
+	}
+
+	private long walk(Board board, int depth, int maxDepth) {
+		int[] expected = new int[Board.ABSOLUTE_MAX_MOVES];
+		int expectedNr = StaticMoveGenerator.generateLegalMoves(board, expected);
+		Set<Integer> expectedSet = new HashSet<>();
+		for (int i = 0; i < expectedNr; i++) {
+			expectedSet.add(expected[i]);
+		}
+		long nodes = 1;
+		// try a legal hash move, foreign hash moves and killers, and none at all
+		for (int attempt = 0; attempt < 4; attempt++) {
+			int hashMove = attempt == 0 && expectedNr > 0 ? expected[expectedNr / 2] : candidate(board, attempt);
+			int killer1 = candidate(board, attempt + 7);
+			int killer2 = attempt == 3 ? 0 : candidate(board, attempt + 13);
+			MovePicker movePicker = movePickers[depth];
+			int kingAttacker = StaticMoveGenerator.getKingAttacker(board, board.getSideToMove() ^ 1);
+			if (kingAttacker == Constants.NO_SQUARE) {
+				movePicker.init(board, hashMove, killer1, killer2);
+			} else {
+				assertEquals(expectedNr, movePicker.initEvasions(board, kingAttacker, hashMove, killer1, killer2));
+			}
+			List<Integer> picked = new ArrayList<>();
+			for (int move = movePicker.next(); move != 0; move = movePicker.next()) {
+				picked.add(move);
+				if (attempt == 0 && depth + 1 < maxDepth) {
+					board.doMove(move);
+					nodes += walk(board, depth + 1, maxDepth);
+					board.undoMove();
+				}
+			}
+			assertEquals(board.toString() + " picked " + picked, expectedNr, picked.size());
+			assertEquals(expectedSet, new HashSet<>(picked));
+		}
+		return nodes;
+	}
+
+	private int candidate(Board board, int seed) {
+		return candidates.get(Math.abs((int) board.getHashKey() * 31 + seed) % candidates.size());
+	}
+
+	@Test
+	public void testIsLegalMove() throws IllegalFENException {
+		Board board = new Board();
+		int[] moves = new int[Board.ABSOLUTE_MAX_MOVES];
+		int[] scratch = new int[Board.ABSOLUTE_MAX_MOVES];
+		List<Integer> allMoves = new ArrayList<>();
+		for (String fen : positions) {
+			board.setupBoard(fen);
+			int movesNr = StaticMoveGenerator.generateLegalMoves(board, moves);
+			for (int i = 0; i < movesNr; i++) {
+				allMoves.add(moves[i]);
+			}
+		}
+		for (String fen : positions) {
+			board.setupBoard(fen);
+			if (StaticMoveGenerator.getKingAttacker(board, board.getSideToMove() ^ 1) != Constants.NO_SQUARE) {
+				continue;
+			}
+			int movesNr = StaticMoveGenerator.generateMoves(board, moves);
+			Set<Integer> legal = new HashSet<>();
+			for (int i = 0; i < movesNr; i++) {
+				legal.add(moves[i]);
+			}
+			for (int move : allMoves) {
+				assertEquals(fen + " " + Arrays.toString(new int[]{move}), legal.contains(move), StaticMoveGenerator.isLegalMove(board, move, scratch));
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ParallelClearTest {
+
+    private static final int LENGTH = 3 * (1 << 20) + 5;
+
+    @Test
+    public void testClearLongArray() {
+        long[] table = new long[LENGTH];
+        Arrays.fill(table, -1L);
+        ParallelClear.clear(table);
+        assertTrue(Arrays.stream(table).allMatch(l -> l == 0L));
+    }
+
+    @Test
+    public void testClearObjectArray() {
+        Object[] table = new Object[LENGTH];
+        Arrays.fill(table, "entry");
+        ParallelClear.clear(table);
+        assertTrue(Arrays.stream(table).allMatch(o -> o == null));
+    }
+
+    @Test
+    public void testClearDirectBuffer() {
+        LongBuffer table = ByteBuffer.allocateDirect(LENGTH * 8).asLongBuffer();
+        for (int i = 0; i < LENGTH; i++) {
+            table.put(i, -1L);
+        }
+        ParallelClear.clear(table);
+        for (int i = 0; i < LENGTH; i++) {
+            assertEquals(0L, table.get(i));
+        }
+    }
+
+    @Test
+    public void testByteBufferTableIsCleared() {
+        TranspositionTable tt = new TranspositionTableByteBufferImpl(10);
+        long hashKey = 0x0FEDCBA987654321L;
+        tt.setEntry(hashKey, 33, (short) 4, 0x1234, Entry.EXACT, 0);
+        assertEquals(0x1234, Entry._move(tt.getEntry(hashKey)));
+        tt.clear();
+        assertEquals(0, tt.getEntry(hashKey));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplacementPolicyTest {
+
+    /*
+     * all keys map to the same bucket of four entries
+     */
+    private static long key(int i) {
+        return ((long) i << 40) | 1L;
+    }
+
+    private static TranspositionTable fullBucket(ReplacementPolicy policy, int... depths) {
+        TranspositionTable tt = new TranspositionTableLocklessImpl(6, policy);
+        for (int i = 0; i < depths.length; i++) {
+            assertEquals(TranspositionTable.STORED_EMPTY, tt.setEntry(key(i), 0, (short) depths[i], 0, Entry.FAIL_LOW, 0));
+        }
+        return tt;
+    }
+
+    @Test
+    public void testDepthPreferred() {
+        TranspositionTable tt = fullBucket(ReplacementPolicy.DEPTH_PREFERRED, 40, 30, 10, 20);
+        assertEquals(TranspositionTable.NOT_STORED, tt.setEntry(key(0), 0, (short) 8, 0, Entry.FAIL_LOW, 0));
+        assertEquals(TranspositionTable.STORED_SAME_KEY, tt.setEntry(key(0), 0, (short) 50, 0, Entry.EXACT, 0));
+        assertEquals(TranspositionTable.STORED_FOREIGN, tt.setEntry(key(9), 0, (short) 5, 0, Entry.FAIL_LOW, 0));
+        assertEquals("the least deep entry should be replaced", 0, tt.getEntry(key(2)));
+        assertTrue(tt.getEntry(key(9)) != 0);
+    }
+
+    @Test
+    public void testAlwaysReplace() {
+        TranspositionTable tt = fullBucket(ReplacementPolicy.ALWAYS_REPLACE, 40, 30, 10, 20);
+        assertEquals(TranspositionTable.STORED_SAME_KEY, tt.setEntry(key(0), 0, (short) 8, 0, Entry.FAIL_LOW, 0));
+        assertEquals(8, Entry._depth(tt.getEntry(key(0))));
+        assertEquals(TranspositionTable.STORED_FOREIGN, tt.setEntry(key(9), 0, (short) 5, 0, Entry.FAIL_LOW, 0));
+        assertTrue(tt.getEntry(key(9)) != 0);
+    }
+
+    @Test
+    public void testTwoTier() {
+        TranspositionTable tt = fullBucket(ReplacementPolicy.TWO_TIER, 40, 30, 10, 20);
+        assertEquals("the first entry is always replaced", TranspositionTable.STORED_SAME_KEY, tt.setEntry(key(0), 0, (short) 8, 0, Entry.FAIL_LOW, 0));
+        assertEquals(TranspositionTable.NOT_STORED, tt.setEntry(key(1), 0, (short) 8, 0, Entry.FAIL_LOW, 0));
+        tt.setEntry(key(8), 0, (short) 5, 0, Entry.FAIL_LOW, 0);
+        assertEquals("a shallow entry should go to the first entry", 0, tt.getEntry(key(0)));
+        assertTrue(tt.getEntry(key(2)) != 0);
+        tt.setEntry(key(9), 0, (short) 25, 0, Entry.FAIL_LOW, 0);
+        assertEquals("a deep entry should replace the least deep of the other entries", 0, tt.getEntry(key(2)));
+        assertTrue(tt.getEntry(key(8)) != 0);
+        assertTrue(tt.getEntry(key(9)) != 0);
+    }
+
+    @Test
+    public void testAgeDepthWeighted() {
+        TranspositionTable depthPreferred = new TranspositionTableLocklessImpl(6, ReplacementPolicy.DEPTH_PREFERRED);
+        TranspositionTable ageDepthWeighted = new TranspositionTableLocklessImpl(6, ReplacementPolicy.AGE_DEPTH_WEIGHTED);
+        for (TranspositionTable tt : new TranspositionTable[]{depthPreferred, ageDepthWeighted}) {
+            tt.setEntry(key(0), 0, (short) 100, 0, Entry.FAIL_LOW, 0);
+            tt.increaseAge();
+            tt.setEntry(key(1), 0, (short) 10, 0, Entry.FAIL_LOW, 0);
+            tt.setEntry(key(2), 0, (short) 20, 0, Entry.FAIL_LOW, 0);
+            tt.setEntry(key(3), 0, (short) 30, 0, Entry.FAIL_LOW, 0);
+            tt.setEntry(key(9), 0, (short) 5, 0, Entry.FAIL_LOW, 0);
+        }
+        assertEquals("depth preferred replaces any entry of an older search", 0, depthPreferred.getEntry(key(0)));
+        assertTrue("a deep entry of the previous search is worth keeping", ageDepthWeighted.getEntry(key(0)) != 0);
+        assertEquals(0, ageDepthWeighted.getEntry(key(1)));
+    }
+
+    @Test
+    public void testHashfull() {
+        TranspositionTable tt = new TranspositionTableLocklessImpl(12);
+        assertEquals(0, tt.getHashfull());
+        for (int i = 0; i < 1 << 12; i++) {
+            tt.setEntry(((long) i << 40) | i, 0, (short) 1, 0, Entry.EXACT, 0);
+        }
+        assertEquals(1000, tt.getHashfull());
+        tt.increaseAge();
+        assertEquals("entries of an older search do not count", 0, tt.getHashfull());
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(ReplacementPolicy.TWO_TIER, ReplacementPolicy.parse("twotier"));
+        assertEquals(ReplacementPolicy.AGE_DEPTH_WEIGHTED, ReplacementPolicy.parse("age-depth-weighted"));
+        assertEquals(ReplacementPolicy.DEPTH_PREFERRED, ReplacementPolicy.parse("DEPTH_PREFERRED"));
+        assertNull(ReplacementPolicy.parse("random"));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import com.winkelhagen.chess.frankwalter.util.MV;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableCompactImplTest {
+
+    @Test
+    public void testStoreAndRetrieve() {
+        TranspositionTable tt = new TranspositionTableCompactImpl(10);
+        assertEquals(new TranspositionTableQuadArrayImpl(10).getSizeInBytes(), tt.getSizeInBytes());
+        long hashKey = 0x123456789ABCDEF0L;
+        int promotion = MV.getMove(52, 60, 1);
+        tt.setEntry(hashKey, -99, (short) 812, promotion, Entry.FAIL_LOW, 0);
+        long entry = tt.getEntry(hashKey);
+        assertEquals(promotion, Entry._move(entry));
+        assertEquals(-99, Entry._score(entry, 0));
+        assertEquals(812, Entry._depth(entry));
+        assertEquals(Entry.FAIL_LOW, Entry._type(entry));
+        assertEquals(Entry.NO_EVAL, tt.getStaticEval(hashKey));
+        assertEquals("a different key in the same bucket should not match", 0, tt.getEntry(hashKey ^ (1L << 50)));
+        tt.clear();
+        assertEquals(0, tt.getEntry(hashKey));
+    }
+
+    @Test
+    public void testStaticEvalIsKept() {
+        TranspositionTable tt = new TranspositionTableCompactImpl(10);
+        long hashKey = 0x0FEDCBA987654321L;
+        int castle = MV.getSpecialMove(4, 6);
+        tt.setEntry(hashKey, 15, (short) 0, 0, Entry.FAIL_HIGH, 3, -1234);
+        assertEquals(-1234, tt.getStaticEval(hashKey));
+        tt.setEntry(hashKey, 25, (short) 16, castle, Entry.EXACT, 3);
+        long entry = tt.getEntry(hashKey);
+        assertEquals(castle, Entry._move(entry));
+        assertEquals(16, Entry._depth(entry));
+        assertEquals("an entry without static eval should keep the one stored before", -1234, tt.getStaticEval(hashKey));
+    }
+
+    @Test
+    public void testThreeEntriesPerBucket() {
+        TranspositionTable tt = new TranspositionTableCompactImpl(4);
+        long[] keys = new long[3];
+        short[] depths = {10, 30, 12};
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) (i + 1) << 48) | 5;
+            tt.setEntry(keys[i], i, depths[i], 0x100 + i, Entry.EXACT, 0);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(0x100 + i, Entry._move(tt.getEntry(keys[i])));
+        }
+        long fourth = (4L << 48) | 5;
+        tt.setEntry(fourth, 4, (short) 20, 0x104, Entry.EXACT, 0);
+        assertEquals(0x104, Entry._move(tt.getEntry(fourth)));
+        assertEquals("the least deep entry should have been replaced", 0, tt.getEntry(keys[0]));
+
+        tt.increaseAge();
+        tt.setEntry(fourth, 4, (short) 20, 0x104, Entry.EXACT, 0);
+        tt.setEntry(keys[2], 2, (short) 12, 0x102, Entry.EXACT, 0);
+        long fifth = (5L << 48) | 5;
+        tt.setEntry(fifth, 5, (short) 1, 0x105, Entry.EXACT, 0);
+        assertEquals(0x105, Entry._move(tt.getEntry(fifth)));
+        assertEquals("an entry of an older search is replaced before a less deep one", 0, tt.getEntry(keys[1]));
+        assertEquals(0x104, Entry._move(tt.getEntry(fourth)));
+        assertEquals(0x102, Entry._move(tt.getEntry(keys[2])));
+    }
+
+    @Test
+    public void testCompactMoves() {
+        for (int move : new int[]{MV.getMove(12, 28), MV.getMove(55, 63, 4), MV.getSpecialMove(60, 58), MV.getSpecialMove(36, 43)}) {
+            assertTrue(MV.toCompact(move) <= 0xFFFF);
+            assertEquals(move, MV.fromCompact(MV.toCompact(move)));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableLocklessImplTest {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 1_000_000;
+
+    @Test
+    public void testStoreAndRetrieve() {
+        TranspositionTable tt = new TranspositionTableLocklessImpl(10);
+        long hashKey = 0x123456789ABCDEF0L;
+        tt.setEntry(hashKey, -99, (short) 12, 0x2345, Entry.FAIL_LOW, 0);
+        long entry = tt.getEntry(hashKey);
+        assertEquals(0x2345, Entry._move(entry));
+        assertEquals(-99, Entry._score(entry, 0));
+        assertEquals(12, Entry._depth(entry));
+        assertEquals(Entry.FAIL_LOW, Entry._type(entry));
+        assertEquals("a different key in the same bucket should not match", 0, tt.getEntry(hashKey ^ (1L << 40)));
+        tt.clear();
+        assertEquals(0, tt.getEntry(hashKey));
+    }
+
+    @Test
+    public void testAgeDoesNotLeakIntoEntry() {
+        TranspositionTable tt = new TranspositionTableLocklessImpl(10);
+        for (int i = 0; i < 5000; i++) {
+            tt.increaseAge();
+        }
+        tt.setEntry(42L, 7, (short) 3, 0x7FFFF, Entry.EXACT, 0);
+        assertEquals(0x7FFFF, Entry._move(tt.getEntry(42L)));
+    }
+
+    /*
+     * many threads store entries in a tiny table. Every entry is a function of its hash key, so a torn entry would be noticed.
+     */
+    @Test
+    public void testConcurrentAccessNeverReturnsTornEntries() throws InterruptedException {
+        TranspositionTable tt = new TranspositionTableLocklessImpl(4);
+        long[] keys = new long[256];
+        Random random = new Random(7);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        AtomicInteger tornEntries = new AtomicInteger();
+        AtomicLong hits = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random threadRandom = new Random(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    long hashKey = keys[threadRandom.nextInt(keys.length)];
+                    if ((i & 1) == 0) {
+                        tt.setEntry(hashKey, score(hashKey), depth(hashKey), move(hashKey), Entry.EXACT, 0);
+                    } else {
+                        long entry = tt.getEntry(hashKey);
+                        if (entry != 0) {
+                            hits.incrementAndGet();
+                            if (Entry._move(entry) != move(hashKey) || Entry._score(entry, 0) != score(hashKey)
+                                    || Entry._depth(entry) != depth(hashKey) || Entry._type(entry) != Entry.EXACT) {
+                                tornEntries.incrementAndGet();
+                            }
+                        }
+                    }
+                    if ((i & 0xFFFF) == 0) {
+                        tt.increaseAge();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue("the table should have been used", hits.get() > 0);
+        assertEquals("no torn entries should be returned", 0, tornEntries.get());
+    }
+
+    private static int move(long hashKey) {
+        return (int) (hashKey >>> 20) & 0x7FFFF;
+    }
+
+    private static int score(long hashKey) {
+        return (int) (hashKey & 0x3FF) - 512;
+    }
+
+    private static short depth(long hashKey) {
+        return (short) ((hashKey >>> 40) & 0xFF);
+    }
+}
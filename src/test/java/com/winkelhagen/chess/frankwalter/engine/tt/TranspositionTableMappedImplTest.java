@@ -0,0 +1,98 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableMappedImplTest {
+
+    private Path directory;
+    private File file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("fwtt");
+        file = directory.resolve("shared.tt").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File child : directory.toFile().listFiles()) {
+            child.delete();
+        }
+        directory.toFile().delete();
+    }
+
+    /*
+     * two tables mapping the same file stand in for two engine processes.
+     */
+    @Test
+    public void testTablesShareEntries() {
+        TranspositionTable first = new TranspositionTableMappedImpl(10, file, ReplacementPolicy.DEPTH_PREFERRED);
+        TranspositionTable second = new TranspositionTableMappedImpl(10, file, ReplacementPolicy.DEPTH_PREFERRED);
+        long hashKey = 0x123456789ABCDEF0L;
+        first.setEntry(hashKey, -99, (short) 12, 0x2345, Entry.FAIL_LOW, 0);
+        long entry = second.getEntry(hashKey);
+        assertEquals(0x2345, Entry._move(entry));
+        assertEquals(-99, Entry._score(entry, 0));
+        assertEquals(12, Entry._depth(entry));
+        assertEquals(Entry.FAIL_LOW, Entry._type(entry));
+        second.clear();
+        assertEquals("clearing should not remove the entries of other processes", entry, first.getEntry(hashKey));
+        assertEquals(entry, second.getEntry(hashKey));
+    }
+
+    /*
+     * the age is kept in the file: the entries of the running search of another process are current, those of its
+     * previous search are older.
+     */
+    @Test
+    public void testTablesShareTheAge() {
+        TranspositionTable first = new TranspositionTableMappedImpl(10, file, ReplacementPolicy.DEPTH_PREFERRED);
+        TranspositionTable second = new TranspositionTableMappedImpl(10, file, ReplacementPolicy.DEPTH_PREFERRED);
+        first.increaseAge();
+        second.setEntry(0x123456789ABCDEF0L, -99, (short) 12, 0x2345, Entry.FAIL_LOW, 0);
+        assertTrue("the entry of the other process should be current", first.getHashfull() > 0);
+        second.increaseAge();
+        assertEquals("a new search of the other process should age the entry", 0, first.getHashfull());
+        first.free();
+        second.free();
+    }
+
+    @Test
+    public void testTableOfAnotherSizeReplacesTheFile() {
+        TranspositionTable small = new TranspositionTableMappedImpl(10, file, ReplacementPolicy.DEPTH_PREFERRED);
+        small.setEntry(42L, 7, (short) 3, 0x1234, Entry.EXACT, 0);
+        TranspositionTable large = new TranspositionTableMappedImpl(12, file, ReplacementPolicy.DEPTH_PREFERRED);
+        assertEquals(0, large.getEntry(42L));
+        assertEquals(64 + large.getSizeInBytes(), file.length());
+        assertEquals("the old mapping should still work", 0x1234, Entry._move(small.getEntry(42L)));
+        TranspositionTable reopened = new TranspositionTableMappedImpl(12, file, ReplacementPolicy.DEPTH_PREFERRED);
+        large.setEntry(43L, 7, (short) 3, 0x1235, Entry.EXACT, 0);
+        assertEquals(0x1235, Entry._move(reopened.getEntry(43L)));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableOffHeapImplTest {
+
+    @Test
+    public void testStoreAndRetrieve() {
+        TranspositionTable tt = new TranspositionTableOffHeapImpl(10);
+        assertEquals(16 * 1024, tt.getSizeInBytes());
+        long hashKey = 0x123456789ABCDEF0L;
+        tt.setEntry(hashKey, -99, (short) 12, 0x2345, Entry.FAIL_LOW, 0);
+        long entry = tt.getEntry(hashKey);
+        assertEquals(0x2345, Entry._move(entry));
+        assertEquals(-99, Entry._score(entry, 0));
+        assertEquals(12, Entry._depth(entry));
+        assertEquals(Entry.FAIL_LOW, Entry._type(entry));
+        assertEquals("a different key in the same bucket should not match", 0, tt.getEntry(hashKey ^ (1L << 40)));
+        tt.clear();
+        assertEquals(0, tt.getEntry(hashKey));
+        tt.free();
+        tt.free();
+    }
+
+    /*
+     * fill the table far beyond its capacity: every entry that is still found should be the one stored for its key.
+     */
+    @Test
+    public void testBehavesLikeTheHeapTable() {
+        TranspositionTable offHeap = new TranspositionTableOffHeapImpl(12);
+        TranspositionTable heap = new TranspositionTableLocklessImpl(12);
+        Random random = new Random(3);
+        long[] keys = new long[20000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            int move = (int) (keys[i] >>> 20) & 0x7FFFF;
+            short depth = (short) (i % 40);
+            offHeap.setEntry(keys[i], i % 500, depth, move, Entry.EXACT, 0);
+            heap.setEntry(keys[i], i % 500, depth, move, Entry.EXACT, 0);
+            if (i % 1000 == 0) {
+                offHeap.increaseAge();
+                heap.increaseAge();
+            }
+        }
+        for (long key : keys) {
+            assertEquals(heap.getEntry(key), offHeap.getEntry(key));
+        }
+        offHeap.free();
+    }
+
+    /*
+     * clear only starts a new generation: old entries no longer match, and they are replaced before current ones.
+     */
+    @Test
+    public void testClearInvalidatesEntries() {
+        TranspositionTable tt = new TranspositionTableOffHeapImpl(8);
+        long[] keys = new long[4];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) (i + 1) << 32) | 7;
+            tt.setEntry(keys[i], i, (short) 30, 0x100 + i, Entry.EXACT, 0);
+        }
+        tt.clear();
+        for (long key : keys) {
+            assertEquals(0, tt.getEntry(key));
+        }
+        long shallow = (5L << 32) | 7;
+        tt.setEntry(shallow, 1, (short) 1, 0x200, Entry.EXACT, 0);
+        assertEquals(0x200, Entry._move(tt.getEntry(shallow)));
+        tt.clear();
+        tt.clear();
+        assertEquals(0, tt.getEntry(shallow));
+        tt.free();
+    }
+
+    /*
+     * the chunks are sliced at a 64 byte boundary, so that every bucket lies in a single cache line.
+     */
+    @Test
+    public void testBucketsAreAligned() {
+        for (int bytes = TranspositionTableOffHeapImpl.BUCKET_BYTES; bytes <= 1 << 20; bytes <<= 1) {
+            ByteBuffer chunk = TranspositionTableOffHeapImpl.allocateAligned(bytes);
+            assertEquals(bytes, chunk.capacity());
+            assertTrue(chunk.isDirect());
+            assertEquals("chunk of " + bytes + " bytes", 0, TranspositionTableOffHeapImpl.alignmentOffset(chunk));
+            ByteBuffer unaligned = ByteBuffer.allocateDirect(bytes + 1);
+            unaligned.position(1);
+            int offset = TranspositionTableOffHeapImpl.alignmentOffset(unaligned.slice());
+            assertEquals((TranspositionTableOffHeapImpl.alignmentOffset(unaligned) + TranspositionTableOffHeapImpl.BUCKET_BYTES - 1)
+                    % TranspositionTableOffHeapImpl.BUCKET_BYTES, offset);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testUseAfterFree() {
+        TranspositionTable tt = new TranspositionTableOffHeapImpl(8);
+        tt.free();
+        tt.getEntry(42L);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.engine.tt;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableSnapshotTest {
+
+    @Test
+    public void testLocklessRoundTrip() throws IOException {
+        assertRoundTrip(TranspositionTableLocklessImpl::new);
+    }
+
+    @Test
+    public void testOffHeapRoundTrip() throws IOException {
+        assertRoundTrip(TranspositionTableOffHeapImpl::new);
+    }
+
+    /*
+     * a table of 32 MB consists of two chunks of direct memory, and the copies span both
+     */
+    @Test
+    public void testOffHeapRoundTripAcrossChunks() throws IOException {
+        assertRoundTrip(TranspositionTableOffHeapImpl::new, 21);
+    }
+
+    @Test
+    public void testCompactRoundTrip() throws IOException {
+        assertRoundTrip(TranspositionTableCompactImpl::new);
+    }
+
+    @Test
+    public void testOnlyPersistentTablesAreSaved() {
+        assertFalse(new TranspositionTableDummy().isPersistent());
+        assertFalse(new TranspositionTableByteBufferImpl(10).isPersistent());
+    }
+
+    @Test
+    public void testRejectsOtherTables() throws IOException {
+        File file = File.createTempFile("fwtt", ".snapshot");
+        try {
+            TranspositionTable tt = new TranspositionTableLocklessImpl(10);
+            tt.setEntry(42L, 7, (short) 3, 0x1234, Entry.EXACT, 0);
+            tt.save(file);
+            assertFalse("a table of another size should be rejected", new TranspositionTableLocklessImpl(11).load(file));
+            TranspositionTable quadArray = new TranspositionTableQuadArrayImpl(10);
+            assertFalse("a table of another type should be rejected", quadArray.load(file));
+            assertEquals(0, quadArray.getEntry(42L));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private static void assertRoundTrip(IntFunction<TranspositionTable> factory) throws IOException {
+        assertRoundTrip(factory, 12);
+    }
+
+    private static void assertRoundTrip(IntFunction<TranspositionTable> factory, int magnitude) throws IOException {
+        File file = File.createTempFile("fwtt", ".snapshot");
+        TranspositionTable saved = factory.apply(magnitude);
+        TranspositionTable loaded = factory.apply(magnitude);
+        try {
+            assertTrue(saved.isPersistent());
+            saved.increaseAge();
+            for (long key = 1; key < 2000; key++) {
+                saved.setEntry(key * 0x9E3779B97F4A7C15L, (int) key, (short) (key & 0xFF), (int) key & 0xFFF, Entry.EXACT, 0);
+            }
+            saved.save(file);
+            assertTrue(loaded.load(file));
+            for (long key = 1; key < 2000; key++) {
+                long hashKey = key * 0x9E3779B97F4A7C15L;
+                assertEquals(saved.getEntry(hashKey), loaded.getEntry(hashKey));
+            }
+            assertEquals("the age should be restored", saved.getHashfull(), loaded.getHashfull());
+        } finally {
+            saved.free();
+            loaded.free();
+            assertTrue(file.delete());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tools.epd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerftProcessorTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - perft1 48; perft2 2039; perft3 97862; perft4 4085603;";
+
+    @Test
+    public void testCreatePerftReader(){
+        assertNotNull("perft is a supported EPD type", EpdReader.create("perft:4:perftsuite.epd"));
+    }
+
+    @Test
+    public void testParallelPerft(){
+        PerftProcessor perftProcessor = new PerftProcessor(4, null);
+        ExtendPositionDescription epd = new ExtendPositionDescription(KIWIPETE);
+        assertTrue(perftProcessor.setup(epd));
+        String lineResult = perftProcessor.process(epd);
+        assertFalse("perft counts should match: " + lineResult, perftProcessor.filter(lineResult));
+        assertTrue(lineResult.startsWith("PERFT1 PERFT2 PERFT3 PERFT4 (4185552 nodes"));
+        //the second run is served from the perft hash table
+        assertFalse(perftProcessor.filter(perftProcessor.process(epd)));
+        assertTrue(perftProcessor.getResult().startsWith("Result: 2/2,"));
+    }
+
+    @Test
+    public void testMaxDepth(){
+        PerftProcessor perftProcessor = new PerftProcessor(2, null);
+        ExtendPositionDescription epd = new ExtendPositionDescription(KIWIPETE);
+        assertTrue(perftProcessor.setup(epd));
+        assertTrue(perftProcessor.process(epd).startsWith("PERFT1 PERFT2 (2087 nodes"));
+    }
+}
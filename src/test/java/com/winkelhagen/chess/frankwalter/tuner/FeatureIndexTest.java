@@ -0,0 +1,73 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FeatureIndexTest {
+
+    private static final List<WdlFen> POSITIONS = Arrays.asList(
+            new WdlFen("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq -", "1-0"),
+            new WdlFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", "1/2-1/2"),
+            new WdlFen("r1bq1rk1/pp2ppbp/2np1np1/8/3NP3/2N1BP2/PPPQ2PP/R3KB1R b KQ -", "0-1"),
+            new WdlFen("8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 b - -", "1/2-1/2"),
+            new WdlFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - -", "1-0"));
+
+    @Test
+    public void testIncrementalError() {
+        TuningSet tuningSet = TuningSet.extract(POSITIONS, EvalParams.DEFAULT);
+        FeatureIndex featureIndex = new FeatureIndex(tuningSet, 1.58);
+        GradientTuner tuner = new GradientTuner(tuningSet, 1.58);
+        int[] weights = EvalParams.DEFAULT.getWeights();
+        assertEquals(tuner.error(weights), featureIndex.error(weights), 1e-12);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int[] toTest = Arrays.copyOf(weights, weights.length);
+            toTest[random.nextInt(toTest.length)] += random.nextBoolean() ? 1 : -1;
+            assertEquals(tuner.error(toTest), featureIndex.error(toTest), 1e-12);
+            if (random.nextBoolean()) {
+                weights = toTest;
+            }
+        }
+        assertEquals("going back should restore the error", tuner.error(weights), featureIndex.error(weights), 1e-12);
+    }
+
+    @Test
+    public void testPositionCount() {
+        TuningSet tuningSet = TuningSet.extract(POSITIONS, EvalParams.DEFAULT);
+        FeatureIndex featureIndex = new FeatureIndex(tuningSet, 1.58);
+        int features = 0;
+        for (int position = 0; position < tuningSet.size(); position++) {
+            features += tuningSet.getFeatures(position).size();
+        }
+        int indexed = 0;
+        for (int weight = 0; weight < EvalParams.PARAMETER_COUNT; weight++) {
+            indexed += featureIndex.getPositionCount(weight);
+        }
+        assertEquals(features, indexed);
+        assertEquals("no knight on a1/h1", 0, featureIndex.getPositionCount(0));
+    }
+}
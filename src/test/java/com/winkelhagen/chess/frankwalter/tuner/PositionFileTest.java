@@ -0,0 +1,89 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.board.Board;
+import com.winkelhagen.chess.frankwalter.util.IllegalFENException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PositionFileTest {
+
+    private static final String QUIET = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq -";
+    private static final String EN_PASSANT = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6";
+    private static final String CAPTURES = "rnbqkb1r/pppp1ppp/8/4P3/6n1/7P/PPPNPPP1/R1BQKBNR b KQkq -";
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("fwtune");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        for (Path child : Files.newDirectoryStream(directory)) {
+            Files.delete(child);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testConvert() throws IOException, IllegalFENException {
+        Path epd = directory.resolve("positions.epd");
+        Files.write(epd, Arrays.asList(
+                QUIET + " c9 \"1-0\";",
+                "this is not a position",
+                EN_PASSANT + " c9 \"1/2-1/2\";",
+                CAPTURES + " c9 \"0-1\";"));
+        Path bin = directory.resolve("positions" + PositionFile.EXTENSION);
+        assertEquals(3, PositionFile.convert(epd, bin));
+
+        PositionFile positionFile = new PositionFile(bin);
+        assertEquals(3, positionFile.size());
+        Board board = new Board();
+        Board expected = new Board();
+
+        assertEquals(WDL.WIN, positionFile.setup(0, board));
+        expected.setupBoard(QUIET);
+        assertEquals("a quiet position should be stored as is", expected.getHashKey(), board.getHashKey());
+        assertEquals(expected.getCastleMask(), board.getCastleMask());
+
+        assertEquals(WDL.DRAW, positionFile.setup(1, board));
+        expected.setupBoard(EN_PASSANT);
+        assertEquals("the en passant square should be stored", expected.getEpSquare(), board.getEpSquare());
+        assertEquals(expected.getHashKey(), board.getHashKey());
+
+        assertEquals(WDL.LOSS, positionFile.setup(2, board));
+        expected.setupBoard(CAPTURES);
+        assertTrue("the capture should be resolved", expected.getHashKey() != board.getHashKey());
+        Environment environment = new Environment();
+        environment.setupBoard(CAPTURES);
+        int qScore = environment.getQScore();
+        environment.setupBoard(positionFile, 2);
+        assertEquals("the static evaluation of the stored position should be the q-search score", qScore, environment.eval());
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * FrankWalter - a java chess engine
+ * Copyright © 2019 Laurens Winkelhagen (ljgw@users.noreply.github.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.winkelhagen.chess.frankwalter.tuner;
+
+import com.winkelhagen.chess.frankwalter.engine.evaluator.EvalParams;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TuningRunnerTest {
+
+    /*
+     * a run on a quiet position stops when no step improves the error, and a new run resumes from its checkpoint.
+     */
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path directory = Files.createTempDirectory("fwtune");
+        Path dataset = directory.resolve("positions.epd");
+        Path checkpoint = directory.resolve("positions.checkpoint");
+        try {
+            Files.write(dataset, Collections.singletonList("4k3/8/8/8/8/8/4P3/4K3 w - - c9 \"1-0\";"));
+            TuningRunner runner = new TuningRunner(dataset.toString(), checkpoint, 2, TuningMethod.LOCAL);
+            assertNull("there is no checkpoint yet", runner.readCheckpoint());
+            int[] weights = runner.run();
+            assertFalse("the error should have improved", Arrays.equals(EvalParams.DEFAULT.getWeights(), weights));
+            assertArrayEquals(weights, new TuningRunner(dataset.toString(), checkpoint, 2, TuningMethod.LOCAL).readCheckpoint());
+
+            Files.write(checkpoint, Collections.singletonList("weights=1,2,3"));
+            assertNull("a checkpoint with another number of weights should be ignored", runner.readCheckpoint());
+
+            Files.delete(checkpoint);
+            weights = new TuningRunner(dataset.toString(), checkpoint, 2, TuningMethod.GRADIENT).run();
+            assertFalse("the gradient should have improved the error", Arrays.equals(EvalParams.DEFAULT.getWeights(), weights));
+            assertArrayEquals(weights, runner.readCheckpoint());
+        } finally {
+            Files.deleteIfExists(checkpoint);
+            Files.deleteIfExists(dataset);
+            Files.delete(directory);
+        }
+    }
+}
@@ -124,10 +124,11 @@ public class BitBoardTest {
 				if (ctrlRook!=actualRook){
 					System.out.println(j);
 					BB.display(occupied, actualRook);
-					System.out.println(BB.applyRankMagic(occupied, j)&63);
+					BB.display(occupied & BB.rookMask[j], actualRook);
 					BB.display(ctrlRook, actualRook);
 				}
 				assertEquals(ctrlRook, actualRook);
+				assertEquals(ctrlRook | ctrlBishop, BB.getQueenMoves(j, occupied));
 			}
 		}
 	}